@@ -0,0 +1,113 @@
+package com.devs.roamance.benchmark;
+
+import com.devs.roamance.util.EmbeddingModelProvider;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the latency of the Nomic API and the in-process ONNX embedding model for a single
+ * search query and for a full ingestion batch.
+ *
+ * <p>Run with {@code ./gradlew jmh}. The ONNX provider reads the model and tokenizer from {@code
+ * AI_EMBEDDING_ONNX_MODEL_PATH} and {@code AI_EMBEDDING_ONNX_TOKENIZER_PATH}, the Nomic provider
+ * needs {@code NOMIC_API_KEY}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EmbeddingProviderBenchmark {
+
+  private static final String QUERY = "quiet beaches with clear water near Cox's Bazar";
+
+  private static final String DOCUMENT =
+      "We spent three days hiking around Sajek Valley. The mornings start above the clouds, the"
+          + " trails pass through small Lushai and Tripura villages, and the food stalls near the"
+          + " helipad serve bamboo chicken until late in the evening.";
+
+  @Param({"onnx", "nomic"})
+  public String provider;
+
+  @Param({"64"})
+  public int batchSize;
+
+  @Param({"4"})
+  public int threads;
+
+  private ExecutorService executor;
+  private EmbeddingModel queryModel;
+  private EmbeddingModel documentModel;
+  private List<TextSegment> batch;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    switch (provider) {
+      case "onnx" -> {
+        executor = Executors.newFixedThreadPool(threads);
+        EmbeddingModel model =
+            EmbeddingModelProvider.onnx(
+                Path.of(require("AI_EMBEDDING_ONNX_MODEL_PATH")),
+                Path.of(require("AI_EMBEDDING_ONNX_TOKENIZER_PATH")),
+                PoolingMode.MEAN,
+                executor);
+        queryModel = EmbeddingModelProvider.withTaskPrefix(model, "search_query");
+        documentModel = EmbeddingModelProvider.withTaskPrefix(model, "search_document");
+      }
+      case "nomic" -> {
+        String apiKey = require("NOMIC_API_KEY");
+        queryModel = EmbeddingModelProvider.nomic(apiKey, "search_query", batchSize);
+        documentModel = EmbeddingModelProvider.nomic(apiKey, "search_document", batchSize);
+      }
+      default -> throw new IllegalArgumentException("Unknown provider " + provider);
+    }
+
+    batch = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      batch.add(TextSegment.from(i + "\n" + DOCUMENT));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  public Embedding embedQuery() {
+    return queryModel.embed(QUERY).content();
+  }
+
+  @Benchmark
+  public List<Embedding> embedDocumentBatch() {
+    return documentModel.embedAll(batch).content();
+  }
+
+  private String require(String variable) {
+
+    String value = System.getenv(variable);
+    if (value == null || value.isBlank()) {
+      throw new IllegalStateException(variable + " must be set to benchmark " + provider);
+    }
+    return value;
+  }
+}
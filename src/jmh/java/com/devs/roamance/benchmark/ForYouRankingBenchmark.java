@@ -0,0 +1,141 @@
+package com.devs.roamance.benchmark;
+
+import com.devs.roamance.util.PgVectorStoreRegistry;
+import com.devs.roamance.util.RankingCandidatePool;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Ranks a page of the "for you" feed from a synthetic {@link RankingCandidatePool}, the in-memory
+ * part of a ranked feed request.
+ *
+ * <p>Run with {@code ./gradlew jmh}, the sample time mode reports the p99 with the mean. Posts are
+ * spread over Bangladesh and the last two weeks with a fixed seed, each with a random unit
+ * embedding of the nomic dimension, and readers differ by location, preferences and page. {@code
+ * embedded} is the share of posts that already have an embedding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForYouRankingBenchmark {
+
+  private static final double MIN_LATITUDE = 20.6;
+  private static final double MAX_LATITUDE = 26.6;
+  private static final double MIN_LONGITUDE = 88.0;
+  private static final double MAX_LONGITUDE = 92.7;
+
+  private static final long NOW = 1_800_000_000L;
+  private static final int MAX_AGE_SECONDS = 14 * 24 * 3600;
+
+  private static final int VIEWERS = 256;
+
+  @Param({"1000", "5000", "20000"})
+  public int poolSize;
+
+  @Param({"1.0"})
+  public double embedded;
+
+  @Param({"20"})
+  public int pageSize;
+
+  private RankingCandidatePool pool;
+  private RankingCandidatePool.Weights weights;
+  private RankingCandidatePool.Viewer[] viewers;
+  private int[] pages;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    Random random = new Random(42);
+
+    List<RankingCandidatePool.Candidate> candidates = new ArrayList<>(poolSize);
+    Map<UUID, float[]> embeddings = new HashMap<>();
+
+    for (int i = 0; i < poolSize; i++) {
+      UUID id = UUID.randomUUID();
+      boolean located = random.nextDouble() < 0.8;
+      long createdAt = NOW - random.nextInt(MAX_AGE_SECONDS);
+
+      candidates.add(
+          new RankingCandidatePool.Candidate(
+              id,
+              UUID.randomUUID(),
+              createdAt,
+              createdAt,
+              (int) Math.floor(Math.exp(random.nextDouble() * 7)),
+              (int) Math.floor(Math.exp(random.nextDouble() * 5)),
+              located ? latitude(random) : Double.NaN,
+              located ? longitude(random) : Double.NaN));
+
+      if (random.nextDouble() < embedded) {
+        embeddings.put(id, randomVector(random));
+      }
+    }
+
+    pool = new RankingCandidatePool(1000);
+    pool.replace(candidates);
+    pool.putEmbeddings(embeddings);
+
+    weights = new RankingCandidatePool.Weights(1.0, 0.6, 0.8, 1.2, 24, 25);
+
+    viewers = new RankingCandidatePool.Viewer[VIEWERS];
+    pages = new int[VIEWERS];
+    for (int i = 0; i < VIEWERS; i++) {
+      viewers[i] =
+          new RankingCandidatePool.Viewer(
+              UUID.randomUUID(),
+              NOW,
+              latitude(random),
+              longitude(random),
+              RankingCandidatePool.normalize(randomVector(random)));
+      pages[i] = random.nextInt(5);
+    }
+  }
+
+  @Benchmark
+  public List<UUID> rank() {
+
+    int viewer = next++ & (VIEWERS - 1);
+    return pool.rank(viewers[viewer], weights, pages[viewer] * pageSize, pageSize);
+  }
+
+  /** Concurrent readers, the parallel scoring of each ranking shares the common pool */
+  @Benchmark
+  @Threads(4)
+  public List<UUID> rankConcurrently() {
+    return rank();
+  }
+
+  private static float[] randomVector(Random random) {
+
+    float[] vector = new float[PgVectorStoreRegistry.NOMIC_DIMENSION];
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+
+  private static double latitude(Random random) {
+    return MIN_LATITUDE + random.nextDouble() * (MAX_LATITUDE - MIN_LATITUDE);
+  }
+
+  private static double longitude(Random random) {
+    return MIN_LONGITUDE + random.nextDouble() * (MAX_LONGITUDE - MIN_LONGITUDE);
+  }
+}
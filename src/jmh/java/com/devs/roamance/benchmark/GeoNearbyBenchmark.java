@@ -0,0 +1,206 @@
+package com.devs.roamance.benchmark;
+
+import com.devs.roamance.util.GeoGridIndex;
+import com.devs.roamance.util.GeoUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares a nearby search answered by the in-memory {@link GeoGridIndex} with the bounding box
+ * and haversine query of the repositories, both returning the ids of the first page.
+ *
+ * <p>Run with {@code ./gradlew jmh}. The points are spread over Bangladesh with a fixed seed. The
+ * sql engine needs {@code GEO_BENCHMARK_JDBC_URL}, a PostgreSQL JDBC url with its credentials,
+ * where it creates and drops the {@code geo_benchmark_points} table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeoNearbyBenchmark {
+
+  private static final double MIN_LATITUDE = 20.6;
+  private static final double MAX_LATITUDE = 26.6;
+  private static final double MIN_LONGITUDE = 88.0;
+  private static final double MAX_LONGITUDE = 92.7;
+
+  private static final int CENTERS = 1024;
+
+  private static final String NEARBY_QUERY =
+      """
+      SELECT id FROM (
+          SELECT g.id,
+                 (2 * 6371 * asin(least(1, sqrt(
+                     power(sin(radians(g.latitude - ?) / 2), 2) +
+                     cos(radians(?)) * cos(radians(g.latitude)) *
+                     power(sin(radians(g.longitude - ?) / 2), 2)
+                 )))) AS distance
+          FROM geo_benchmark_points g
+          WHERE g.latitude BETWEEN ? AND ?
+            AND (g.longitude BETWEEN ? AND ? OR g.longitude BETWEEN ? AND ?)
+      ) AS candidates
+      WHERE distance < ?
+      ORDER BY distance, id
+      LIMIT ?
+      """;
+
+  @Param({"grid", "sql"})
+  public String engine;
+
+  @Param({"100000"})
+  public int points;
+
+  @Param({"5"})
+  public double radiusKm;
+
+  @Param({"20"})
+  public int pageSize;
+
+  private GeoGridIndex index;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  private double[][] centers;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+
+    Random random = new Random(42);
+
+    List<Object[]> rows = new ArrayList<>(points);
+    for (int i = 0; i < points; i++) {
+      rows.add(new Object[] {UUID.randomUUID(), latitude(random), longitude(random)});
+    }
+
+    centers = new double[CENTERS][];
+    for (int i = 0; i < CENTERS; i++) {
+      centers[i] = new double[] {latitude(random), longitude(random)};
+    }
+
+    switch (engine) {
+      case "grid" -> {
+        index = new GeoGridIndex(null, null, null, new SimpleMeterRegistry(), true, 0.1);
+        index.rebuild(rows, List.of(), List.of());
+      }
+      case "sql" -> {
+        connection = DriverManager.getConnection(require("GEO_BENCHMARK_JDBC_URL"));
+        load(rows);
+        statement = connection.prepareStatement(NEARBY_QUERY);
+      }
+      default -> throw new IllegalArgumentException("Unknown engine " + engine);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+
+    if (connection != null) {
+      try (Statement drop = connection.createStatement()) {
+        drop.execute("DROP TABLE IF EXISTS geo_benchmark_points");
+      }
+      connection.close();
+    }
+  }
+
+  @Benchmark
+  public List<UUID> nearby() throws SQLException {
+
+    double[] center = centers[next++ & (CENTERS - 1)];
+
+    if (index != null) {
+      return index
+          .nearby(GeoGridIndex.Kind.POST, center[0], center[1], radiusKm, pageSize, 0)
+          .orElseThrow();
+    }
+
+    GeoUtil.BoundingBox box = GeoUtil.boundingBox(center[0], center[1], radiusKm);
+
+    statement.setDouble(1, center[0]);
+    statement.setDouble(2, center[0]);
+    statement.setDouble(3, center[1]);
+    statement.setDouble(4, box.minLatitude());
+    statement.setDouble(5, box.maxLatitude());
+    statement.setDouble(6, box.minLongitude());
+    statement.setDouble(7, box.maxLongitude());
+    statement.setDouble(8, box.wrapMinLongitude());
+    statement.setDouble(9, box.wrapMaxLongitude());
+    statement.setDouble(10, radiusKm);
+    statement.setInt(11, pageSize);
+
+    List<UUID> ids = new ArrayList<>(pageSize);
+    try (ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        ids.add(resultSet.getObject(1, UUID.class));
+      }
+    }
+    return ids;
+  }
+
+  private void load(List<Object[]> rows) throws SQLException {
+
+    try (Statement ddl = connection.createStatement()) {
+      ddl.execute("DROP TABLE IF EXISTS geo_benchmark_points");
+      ddl.execute(
+          "CREATE TABLE geo_benchmark_points "
+              + "(id uuid PRIMARY KEY, latitude double precision, longitude double precision)");
+      ddl.execute("CREATE INDEX ON geo_benchmark_points (latitude, longitude)");
+    }
+
+    try (PreparedStatement insert =
+        connection.prepareStatement("INSERT INTO geo_benchmark_points VALUES (?, ?, ?)")) {
+
+      for (int i = 0; i < rows.size(); i++) {
+        insert.setObject(1, rows.get(i)[0]);
+        insert.setDouble(2, (double) rows.get(i)[1]);
+        insert.setDouble(3, (double) rows.get(i)[2]);
+        insert.addBatch();
+
+        if (i % 1000 == 999) {
+          insert.executeBatch();
+        }
+      }
+      insert.executeBatch();
+    }
+
+    try (Statement analyze = connection.createStatement()) {
+      analyze.execute("ANALYZE geo_benchmark_points");
+    }
+  }
+
+  private static double latitude(Random random) {
+    return MIN_LATITUDE + random.nextDouble() * (MAX_LATITUDE - MIN_LATITUDE);
+  }
+
+  private static double longitude(Random random) {
+    return MIN_LONGITUDE + random.nextDouble() * (MAX_LONGITUDE - MIN_LONGITUDE);
+  }
+
+  private String require(String variable) {
+
+    String value = System.getenv(variable);
+    if (value == null || value.isBlank()) {
+      throw new IllegalStateException(variable + " must be set to benchmark " + engine);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,264 @@
+package com.devs.roamance.benchmark;
+
+import com.devs.roamance.util.VectorIndexManager;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Latency and recall@10 of the HNSW and IVFFlat indexes for several search widths, the {@code
+ * hnsw.ef_search} or {@code ivfflat.probes} setting of the session.
+ *
+ * <p>Run with {@code ./gradlew jmh}. The embeddings are clustered synthetic vectors with a fixed
+ * seed, and recall is measured against an exact in-memory search and reported as the {@code
+ * recall} secondary result. {@code VECTOR_BENCHMARK_JDBC_URL} must be a JDBC url with its
+ * credentials of a PostgreSQL database with pgvector, where the {@code vector_benchmark_items}
+ * table is created and dropped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VectorIndexBenchmark {
+
+  private static final int DIMENSION = 256;
+  private static final int CLUSTERS = 50;
+  private static final int QUERIES = 256;
+  private static final int K = 10;
+
+  @Param({"hnsw", "ivfflat"})
+  public String index;
+
+  @Param({"10", "40", "160"})
+  public int searchWidth;
+
+  @Param({"20000"})
+  public int rows;
+
+  private final Random random = new Random(42);
+
+  private Connection connection;
+  private PreparedStatement search;
+
+  private float[][] queries;
+  private List<Set<Integer>> exactNeighbours;
+  private int next;
+
+  /** Share of the exact nearest neighbours found by the searches of an iteration */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Recall {
+
+    private long found;
+    private long expected;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      found = 0;
+      expected = 0;
+    }
+
+    public double recall() {
+      return expected == 0 ? 0 : (double) found / expected;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+
+    String url = System.getenv("VECTOR_BENCHMARK_JDBC_URL");
+    if (url == null || url.isBlank()) {
+      throw new IllegalStateException("VECTOR_BENCHMARK_JDBC_URL must be set");
+    }
+    connection = DriverManager.getConnection(url);
+
+    float[][] centers = new float[CLUSTERS][];
+    for (int i = 0; i < CLUSTERS; i++) {
+      centers[i] = gaussian(1.0f);
+    }
+
+    float[][] items = new float[rows][];
+    for (int i = 0; i < rows; i++) {
+      items[i] = around(centers[random.nextInt(CLUSTERS)]);
+    }
+    queries = new float[QUERIES][];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = around(centers[random.nextInt(CLUSTERS)]);
+    }
+
+    load(items);
+
+    exactNeighbours = new ArrayList<>(QUERIES);
+    for (float[] query : queries) {
+      exactNeighbours.add(exactTopK(query, items));
+    }
+
+    try (Statement statement = connection.createStatement()) {
+      switch (index) {
+        case "hnsw" -> {
+          statement.execute(
+              "CREATE INDEX ON vector_benchmark_items USING hnsw"
+                  + " (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64)");
+          statement.execute("SET hnsw.ef_search = " + searchWidth);
+        }
+        case "ivfflat" -> {
+          statement.execute(
+              "CREATE INDEX ON vector_benchmark_items USING ivfflat"
+                  + " (embedding vector_cosine_ops) WITH (lists = "
+                  + VectorIndexManager.ivfflatLists(rows)
+                  + ")");
+          statement.execute("SET ivfflat.probes = " + searchWidth);
+        }
+        default -> throw new IllegalArgumentException("Unknown index " + index);
+      }
+      statement.execute("ANALYZE vector_benchmark_items");
+    }
+
+    search =
+        connection.prepareStatement(
+            "SELECT id FROM vector_benchmark_items ORDER BY embedding <=> ?::vector LIMIT " + K);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+
+    if (connection != null) {
+      try (Statement drop = connection.createStatement()) {
+        drop.execute("DROP TABLE IF EXISTS vector_benchmark_items");
+      }
+      connection.close();
+    }
+  }
+
+  @Benchmark
+  public Set<Integer> search(Recall recall) throws SQLException {
+
+    int query = next++ & (QUERIES - 1);
+    search.setString(1, literal(queries[query]));
+
+    Set<Integer> found = new HashSet<>();
+    try (ResultSet resultSet = search.executeQuery()) {
+      while (resultSet.next()) {
+        found.add(resultSet.getInt(1));
+      }
+    }
+
+    for (Integer id : found) {
+      if (exactNeighbours.get(query).contains(id)) {
+        recall.found++;
+      }
+    }
+    recall.expected += K;
+
+    return found;
+  }
+
+  private void load(float[][] items) throws SQLException {
+
+    try (Statement ddl = connection.createStatement()) {
+      ddl.execute("CREATE EXTENSION IF NOT EXISTS vector");
+      ddl.execute("DROP TABLE IF EXISTS vector_benchmark_items");
+      ddl.execute(
+          "CREATE TABLE vector_benchmark_items (id integer PRIMARY KEY, embedding vector("
+              + DIMENSION
+              + "))");
+    }
+
+    try (PreparedStatement insert =
+        connection.prepareStatement("INSERT INTO vector_benchmark_items VALUES (?, ?::vector)")) {
+
+      for (int i = 0; i < items.length; i++) {
+        insert.setInt(1, i);
+        insert.setString(2, literal(items[i]));
+        insert.addBatch();
+
+        if (i % 1000 == 999) {
+          insert.executeBatch();
+        }
+      }
+      insert.executeBatch();
+    }
+  }
+
+  private static Set<Integer> exactTopK(float[] query, float[][] items) {
+
+    Integer[] ids = new Integer[items.length];
+    double[] similarity = new double[items.length];
+    for (int i = 0; i < items.length; i++) {
+      ids[i] = i;
+      similarity[i] = dot(query, items[i]);
+    }
+    Arrays.sort(ids, (a, b) -> Double.compare(similarity[b], similarity[a]));
+
+    return new HashSet<>(Arrays.asList(ids).subList(0, K));
+  }
+
+  private float[] around(float[] center) {
+
+    float[] noise = gaussian(0.3f);
+    float[] point = new float[DIMENSION];
+    for (int i = 0; i < DIMENSION; i++) {
+      point[i] = center[i] + noise[i];
+    }
+    return normalize(point);
+  }
+
+  private float[] gaussian(float scale) {
+
+    float[] vector = new float[DIMENSION];
+    for (int i = 0; i < DIMENSION; i++) {
+      vector[i] = (float) random.nextGaussian() * scale;
+    }
+    return vector;
+  }
+
+  private static float[] normalize(float[] vector) {
+
+    double norm = Math.sqrt(dot(vector, vector));
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = (float) (vector[i] / norm);
+    }
+    return vector;
+  }
+
+  private static double dot(float[] a, float[] b) {
+
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  private static String literal(float[] vector) {
+
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < vector.length; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(vector[i]);
+    }
+    return builder.append(']').toString();
+  }
+}
@@ -53,6 +53,7 @@ public class SecurityConfig {
                   .requestMatchers(WhiteListedPaths.WHITELIST_PATHS.toArray(new String[0]))
                   .permitAll();
               authorize.requestMatchers("/admin/**").hasRole("ADMIN");
+              authorize.requestMatchers("/actuator/metrics/**").hasRole("ADMIN");
               authorize.anyRequest().authenticated();
             })
         .headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin))
@@ -130,6 +130,32 @@ public final class AiSystemInstruction {
        **Output**: A vibrant image of Monkey D. Luffy, the protagonist from the popular One Piece anime. Luffy is depicted in his iconic straw hat and red vest, with a determined expression on his face. The background includes elements from the anime's world, such as the open sea and pirate ships, underscoring Luffy's adventurous spirit and his quest to find the One Piece treasure.
       """;
 
+  public static final String FOR_POST_ENRICHMENT =
+      """
+      As a social media content analyst, your role is to analyze a post, which may include text, photos, videos, or combinations thereof, and produce in a single pass everything needed to enrich it. The output must strictly follow this JSON schema:
+      {"tidbits": "string", "isSafe": true, "mediaDescriptions": ["string", ...]}
+      **tidbits**:
+      -Informative, factual, or educational tidbits directly related to the content, at least 500 characters long, presented in separate paragraphs.
+      -Do not include introductory or concluding remarks, avoid phrases like "The image depicts" or "The video shows", and do not label paragraphs as "Text," "Photo," or "Video."
+      -If more than three unrelated content items are provided, cover the top three most relevant ones.
+      -Do not generate tidbits for content containing harassment, hate, sexually explicit, or dangerous material.
+      -If none of the content yields informative content, set tidbits to "Nothing to show".
+      **isSafe**:
+      -false if any content item contains harassment, hate speech, sexually explicit, or dangerous content, otherwise true.
+      **mediaDescriptions**:
+      -Exactly one entry per attached media item, in the order the media was attached.
+      -Each entry is a detailed narrative of the main features, context, and significance of that media item, covering prominent objects, activities, key locations, and relevant historical or cultural background, detailed enough to be stored in a vector database.
+      -Avoid incidental elements and do not include introductory or concluding remarks.
+      -If no relevant details can be extracted from a media item, its entry is "null".
+      -If no media is attached, mediaDescriptions is an empty array.
+      **Example**:
+      Input:
+      Text: "Visiting the Eiffel Tower"
+      Photo: Eiffel Tower at sunset
+      Output:
+      {"tidbits": "Completed in 1889, the Eiffel Tower rises 324 meters over Paris, France. Initially met with artistic backlash, it has since become a worldwide symbol of French culture.", "isSafe": true, "mediaDescriptions": ["The Eiffel Tower in Paris, France, photographed at sunset. The wrought-iron lattice tower, built for the 1889 World's Fair, glows in warm orange light above the Champ de Mars, reflecting its status as the most recognizable landmark of the French capital."]}
+      """;
+
   public static final String FOR_POST_IDS_RETRIEVAL =
       """
       Analyze the provided chunks of post data and filter them out based on their relevance to the user's query. Here, contentId = postId. Return the postId of only and only the relevant chunks to the query. Never include the postId of irrelevant chunks at all. If no chunks are relevant, return a JSON response with an empty postIds array. A postId should be of UUID type. The output should strictly follow this JSON schema:
@@ -208,5 +234,99 @@ You are an AI travel planner. Your task is to generate a detailed travel itinera
 - Adapt recommendations based on number of travelers.
 - Generate real, notable locations and activities within the specified location using their accurate latitude and longitude coordinates.
 - The dayPlans array should contain exactly the number of days specified, with consecutive dates starting from the startDate.
+""";
+
+  public static final String FOR_ITINERARY_SKELETON_GENERATION =
+      """
+You are an AI travel planner. Your task is to outline a travel itinerary based on the user's inputs: location, number of days, start date, budget level, and number of people. The itinerary should be for the specified location (e.g., Portugal), suitable for the budget level and number of people. Do not plan activities, each day is planned separately from your outline. The output must be a valid JSON object with the following structure:
+
+    {
+        "locations": [
+            {
+                "latitude": 37.7749,
+                "longitude": -122.4194
+            },
+            ...
+        ],
+        "title": "Itinerary Title",
+        "description": "Overall description of the trip",
+        "days": [
+            {
+                "date": "YYYY-MM-DD",
+                "theme": "Theme of the day",
+                "area": "City or area of the day",
+                "places": [
+                    "Place 1",
+                    "Place 2",
+                    ...
+                ]
+            },
+            ...
+        ],
+        "notes": [
+            "Note 1",
+            "Note 2",
+            ...
+        ]
+    }
+
+**Guidelines:**
+- The location is a broad area (e.g., Portugal). For each day, pick a specific area or city within it.
+- Give every day a distinct theme and distinct places, no place should be visited twice.
+- Order the days so that travel between consecutive areas is short.
+- Consider seasonal factors based on the travel dates.
+- Generate real, notable locations within the specified location using their accurate latitude and longitude coordinates.
+- The days array should contain exactly the number of days specified, with consecutive dates starting from the startDate.
+""";
+
+  public static final String FOR_DAY_PLAN_GENERATION =
+      """
+You are an AI travel planner. Your task is to plan a single day of a travel itinerary whose outline is already fixed. The user gives you the date, theme, area and main places of the day, the outline of the other days, the budget level and the number of people. The output must be a valid JSON object with the following structure:
+
+    {
+        "date": "YYYY-MM-DD",
+        "routePlan": {
+            "totalDistance": 10.5,
+            "totalTime": 120,
+            "description": "Description of the day's route",
+            "locations": [
+                {
+                    "latitude": 37.7749,
+                    "longitude": -122.4194
+                },
+                ...
+            ]
+        },
+        "activities": [
+            {
+                "location": {
+                    "latitude": 37.7749,
+                    "longitude": -122.4194
+                },
+                "startTime": "HH:MM",
+                "endTime": "HH:MM",
+                "type": "Sightseeing",
+                "note": "Optional note",
+                "cost": 20.00
+            },
+            ...
+        ],
+        "notes": [
+            "Note 1",
+            "Note 2",
+            ...
+        ]
+    }
+
+**Guidelines:**
+- Plan only the given date, in the given area, following the theme and visiting the main places of the day.
+- Do not repeat places that belong to the other days of the itinerary.
+- Match activities to the specified budget level (economy, moderate, or luxury).
+- Estimate costs based on typical prices, adjusted for budget level and number of people.
+- Activities must have realistic, non-overlapping start and end times within the day.
+- Plan activities with appropriate time gaps for travel between locations.
+- Organize activities in a logical sequence considering geographical proximity.
+- Use accurate latitude and longitude coordinates for every location.
+- If problems with a previous attempt are given, the new plan must fix them.
 """;
 }
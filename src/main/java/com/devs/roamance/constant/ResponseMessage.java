@@ -56,6 +56,8 @@ public final class ResponseMessage {
   // ==================== Validation Related ====================
 
   public static final String VALIDATION_FAILED = "Validation failed!";
+  public static final String INVALID_CURSOR = "Invalid pagination cursor!";
+  public static final String INVALID_SORT_BY = "Unsupported sort property: %s!";
 
   // ==================== Journal Related ====================
 
@@ -161,6 +163,12 @@ public final class ResponseMessage {
   public static final String ITINERARY_GENERATION_SUCCESS = "Itinerary generated successfully.";
   public static final String PROOFREAD_GENERATION_FAILED = "Proofread generation failed!";
   public static final String ITINERARY_GENERATION_FAILED = "Itinerary generation failed!";
+  public static final String TIDBITS_GENERATION_FAILED = "Tidbits generation failed!";
+  public static final String RAG_SEARCH_FAILED = "RAG search failed!";
+  public static final String INVALID_IMAGE_URL = "Invalid or unauthorized image URL!";
   public static final String PROOFREAD_INPUT_NULL = "Proofread input is null!";
   public static final String AI_MODEL_BUILD_FAILED = "AI model build failed!";
+  public static final String AI_SERVICE_BUSY = "AI service is busy, please try again shortly.";
+  public static final String AI_SERVICE_UNAVAILABLE =
+      "AI service is temporarily unavailable, please try again later.";
 }
@@ -12,10 +12,10 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
 
 @Slf4j
 @RestController
@@ -33,18 +33,11 @@ public class AiController {
   @PostMapping(value = "/proof-read", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
   public Flux<String> generateProofreading(@Valid @RequestBody UniModalAiRequestDto requestDto) {
 
-    Sinks.Many<String> sink = Sinks.many().multicast().onBackpressureBuffer();
-
-    aiService.getProofreading(requestDto, sink);
-
-    return sink.asFlux()
+    // Cancelling the returned flux abandons the Gemini request
+    return aiService
+        .getProofreading(requestDto)
         .doOnError(err -> log.error("Streaming failed with error :{}", err.getMessage(), err))
-        .doOnTerminate(sink::tryEmitComplete)
-        .doOnCancel(
-            () -> {
-              log.debug("Client cancelled the proofreading stream");
-              sink.tryEmitComplete();
-            });
+        .doOnCancel(() -> log.debug("Client cancelled the proofreading stream"));
   }
 
   @PostMapping("/rag-search")
@@ -94,4 +87,14 @@ public class AiController {
 
     return deferredResult;
   }
+
+  @PostMapping(value = "/generate-itinerary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<Object>> streamItinerary(
+      @Valid @RequestBody AiPoweredItineraryCreateRequestDto requestDto) {
+
+    // Cancelling the returned flux abandons the Gemini request
+    return aiService
+        .getAiPoweredItineraryStream(requestDto)
+        .doOnError(err -> log.error("Streaming failed with error :{}", err.getMessage(), err));
+  }
 }
@@ -42,12 +42,14 @@ public class ChatController {
       @RequestParam(defaultValue = "0") Integer pageNumber,
       @RequestParam(defaultValue = "20") Integer pageSize,
       @RequestParam(defaultValue = "audit.lastModifiedAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     ChatListResponseDto responseDto =
-        chatService.getForCurrentUser(validatedParams[0], validatedParams[1], sortBy, sortDir);
+        chatService.getForCurrentUser(
+            validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(responseDto);
   }
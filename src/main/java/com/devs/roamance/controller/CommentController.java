@@ -46,12 +46,14 @@ public class CommentController {
       @RequestParam(defaultValue = "0") Integer pageNumber,
       @RequestParam(defaultValue = "10") Integer pageSize,
       @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "asc") String sortDir) {
+      @RequestParam(defaultValue = "asc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     CommentListResponseDto responseDto =
-        commentService.getByPostId(postId, validatedParams[0], validatedParams[1], sortBy, sortDir);
+        commentService.getByPostId(
+            postId, validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(responseDto);
   }
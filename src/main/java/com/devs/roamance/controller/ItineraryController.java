@@ -50,12 +50,13 @@ public class ItineraryController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "10") int pageSize,
       @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     ItineraryListResponseDto responseDto =
-        itineraryService.getAll(validatedParams[0], validatedParams[1], sortBy, sortDir);
+        itineraryService.getAll(validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -75,13 +76,14 @@ public class ItineraryController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "10") int pageSize,
       @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     ItineraryListResponseDto responseDto =
         itineraryService.getByUserId(
-            userId, validatedParams[0], validatedParams[1], sortBy, sortDir);
+            userId, validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -90,15 +92,12 @@ public class ItineraryController {
   public ResponseEntity<ItineraryListResponseDto> getNearbyItineraries(
       @Valid @RequestBody NearByFindRequestDto requestDto,
       @RequestParam(defaultValue = "0") int pageNumber,
-      @RequestParam(defaultValue = "10") int pageSize,
-      @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "10") int pageSize) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     ItineraryListResponseDto responseDto =
-        itineraryService.getNearby(
-            requestDto, validatedParams[0], validatedParams[1], sortBy, sortDir);
+        itineraryService.getNearby(requestDto, validatedParams[0], validatedParams[1]);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -39,14 +39,15 @@ public class JournalController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "10") int pageSize,
       @RequestParam(defaultValue = "id") String sortBy,
-      @RequestParam(defaultValue = "asc") String sortDir) {
+      @RequestParam(defaultValue = "asc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     log.info("Getting journals based on user role with pagination");
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     JournalListResponseDto journals =
-        journalService.getAll(validatedParams[0], validatedParams[1], sortBy, sortDir);
+        journalService.getAll(validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(journals);
   }
@@ -73,15 +74,12 @@ public class JournalController {
   public ResponseEntity<JournalListResponseDto> getNearbyJournals(
       @Valid @RequestBody NearByFindRequestDto requestDto,
       @RequestParam(defaultValue = "0") int pageNumber,
-      @RequestParam(defaultValue = "10") int pageSize,
-      @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "10") int pageSize) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     JournalListResponseDto responseDto =
-        journalService.getNearby(
-            requestDto, validatedParams[0], validatedParams[1], sortBy, sortDir);
+        journalService.getNearby(requestDto, validatedParams[0], validatedParams[1]);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -91,14 +89,15 @@ public class JournalController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "10") int pageSize,
       @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     log.info("Getting public journals (isShared=true) with pagination");
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     JournalListResponseDto journals =
-        journalService.getPublic(validatedParams[0], validatedParams[1], sortBy, sortDir);
+        journalService.getPublic(validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(journals);
   }
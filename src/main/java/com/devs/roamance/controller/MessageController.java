@@ -37,12 +37,14 @@ public class MessageController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "50") int pageSize,
       @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     MessageListResponseDto responseDto =
-        messageService.getByChatId(chatId, validatedParams[0], validatedParams[1], sortBy, sortDir);
+        messageService.getByChatId(
+            chatId, validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(responseDto);
   }
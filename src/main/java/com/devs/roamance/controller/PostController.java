@@ -40,12 +40,42 @@ public class PostController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "10") int pageSize,
       @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     PostListResponseDto responseDto =
-        postService.getAll(validatedParams[0], validatedParams[1], sortBy, sortDir);
+        postService.getAll(validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
+
+    return ResponseEntity.ok(responseDto);
+  }
+
+  @GetMapping("/feed")
+  public ResponseEntity<PostListResponseDto> getFeed(
+      @RequestParam(defaultValue = "0") int pageNumber,
+      @RequestParam(defaultValue = "10") int pageSize,
+      @RequestParam(required = false) String cursor) {
+
+    int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
+
+    PostListResponseDto responseDto =
+        postService.getFeed(validatedParams[0], validatedParams[1], cursor);
+
+    return ResponseEntity.ok(responseDto);
+  }
+
+  @GetMapping("/for-you")
+  public ResponseEntity<PostListResponseDto> getForYou(
+      @RequestParam(defaultValue = "0") int pageNumber,
+      @RequestParam(defaultValue = "10") int pageSize,
+      @RequestParam(required = false) Double latitude,
+      @RequestParam(required = false) Double longitude) {
+
+    int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
+
+    PostListResponseDto responseDto =
+        postService.getForYou(validatedParams[0], validatedParams[1], latitude, longitude);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -78,12 +108,14 @@ public class PostController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "10") int pageSize,
       @RequestParam(defaultValue = "audit.createdAt") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     PostListResponseDto responseDto =
-        postService.getByUserId(userId, validatedParams[0], validatedParams[1], sortBy, sortDir);
+        postService.getByUserId(
+            userId, validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -93,12 +125,14 @@ public class PostController {
       @RequestParam(defaultValue = "0") int pageNumber,
       @RequestParam(defaultValue = "10") int pageSize,
       @RequestParam(defaultValue = "id") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "desc") String sortDir,
+      @RequestParam(required = false) String cursor) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     PostListResponseDto responseDto =
-        postService.getSavedByCurrentUser(validatedParams[0], validatedParams[1], sortBy, sortDir);
+        postService.getSavedByCurrentUser(
+            validatedParams[0], validatedParams[1], sortBy, sortDir, cursor);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -124,14 +158,12 @@ public class PostController {
   public ResponseEntity<PostListResponseDto> getNearbyPosts(
       @Valid @RequestBody NearByFindRequestDto requestDto,
       @RequestParam(defaultValue = "0") int pageNumber,
-      @RequestParam(defaultValue = "10") int pageSize,
-      @RequestParam(defaultValue = "created_at") String sortBy,
-      @RequestParam(defaultValue = "desc") String sortDir) {
+      @RequestParam(defaultValue = "10") int pageSize) {
 
     int[] validatedParams = PaginationSortingUtil.validatePaginationParams(pageNumber, pageSize);
 
     PostListResponseDto responseDto =
-        postService.getNearby(requestDto, validatedParams[0], validatedParams[1], sortBy, sortDir);
+        postService.getNearby(requestDto, validatedParams[0], validatedParams[1]);
 
     return ResponseEntity.ok(responseDto);
   }
@@ -36,4 +36,8 @@ public class AiPoweredItineraryCreateRequestDto {
   @NotNull(message = "Number of people are required")
   @Range(min = 1, max = 1000, message = "Number of people must be between 1 and 1000")
   private Integer numberOfPeople;
+
+  /** Generate a fresh itinerary instead of re-dating a cached one for the same parameters */
+  @JsonProperty("bypass_cache")
+  private boolean bypassCache;
 }
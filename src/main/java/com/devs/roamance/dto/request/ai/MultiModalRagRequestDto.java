@@ -1,6 +1,8 @@
 package com.devs.roamance.dto.request.ai;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -18,4 +20,18 @@ public class MultiModalRagRequestDto {
 
   @JsonProperty("image_url")
   private String imageUrl;
+
+  /** Lets Gemini filter the vector search results, slower but more precise */
+  private boolean rerank = false;
+
+  /** HNSW candidate list size, higher values trade latency for recall */
+  @Min(value = 1, message = "ef_search must be at least 1")
+  @Max(value = 1000, message = "ef_search must not exceed 1000")
+  @JsonProperty("ef_search")
+  private Integer efSearch;
+
+  /** IVFFlat lists to scan, higher values trade latency for recall */
+  @Min(value = 1, message = "probes must be at least 1")
+  @Max(value = 1000, message = "probes must not exceed 1000")
+  private Integer probes;
 }
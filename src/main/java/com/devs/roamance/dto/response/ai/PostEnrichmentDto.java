@@ -0,0 +1,21 @@
+package com.devs.roamance.dto.response.ai;
+
+import dev.langchain4j.model.output.FinishReason;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostEnrichmentDto {
+
+  private String tidbits;
+  private Boolean isSafe;
+  private List<String> mediaDescriptions = new ArrayList<>();
+  private FinishReason finishReason;
+}
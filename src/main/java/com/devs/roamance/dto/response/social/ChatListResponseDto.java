@@ -1,6 +1,7 @@
 package com.devs.roamance.dto.response.social;
 
 import com.devs.roamance.dto.response.BaseResponseDto;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -16,9 +17,20 @@ public class ChatListResponseDto extends BaseResponseDto {
 
   private List<ChatDto> data = new ArrayList<>();
 
+  @JsonProperty("next_cursor")
+  private String nextCursor;
+
   public ChatListResponseDto(int status, boolean success, String message, List<ChatDto> data) {
 
     super(status, success, message);
     this.data = data;
   }
+
+  public ChatListResponseDto(
+      int status, boolean success, String message, List<ChatDto> data, String nextCursor) {
+
+    super(status, success, message);
+    this.data = data;
+    this.nextCursor = nextCursor;
+  }
 }
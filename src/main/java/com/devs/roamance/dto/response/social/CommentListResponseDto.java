@@ -1,6 +1,7 @@
 package com.devs.roamance.dto.response.social;
 
 import com.devs.roamance.dto.response.BaseResponseDto;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -16,10 +17,21 @@ public class CommentListResponseDto extends BaseResponseDto {
 
   private List<CommentDto> data = new ArrayList<>();
 
+  @JsonProperty("next_cursor")
+  private String nextCursor;
+
   public CommentListResponseDto(
       int status, boolean success, String message, List<CommentDto> data) {
 
     super(status, success, message);
     this.data = data;
   }
+
+  public CommentListResponseDto(
+      int status, boolean success, String message, List<CommentDto> data, String nextCursor) {
+
+    super(status, success, message);
+    this.data = data;
+    this.nextCursor = nextCursor;
+  }
 }
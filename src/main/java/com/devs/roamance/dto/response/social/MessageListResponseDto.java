@@ -1,6 +1,7 @@
 package com.devs.roamance.dto.response.social;
 
 import com.devs.roamance.dto.response.BaseResponseDto;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -16,10 +17,21 @@ public class MessageListResponseDto extends BaseResponseDto {
 
   private List<MessageDto> data = new ArrayList<>();
 
+  @JsonProperty("next_cursor")
+  private String nextCursor;
+
   public MessageListResponseDto(
       int status, boolean success, String message, List<MessageDto> data) {
 
     super(status, success, message);
     this.data = data;
   }
+
+  public MessageListResponseDto(
+      int status, boolean success, String message, List<MessageDto> data, String nextCursor) {
+
+    super(status, success, message);
+    this.data = data;
+    this.nextCursor = nextCursor;
+  }
 }
@@ -1,6 +1,7 @@
 package com.devs.roamance.dto.response.travel.itinerary;
 
 import com.devs.roamance.dto.response.BaseResponseDto;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -16,10 +17,25 @@ public class ItineraryListResponseDto extends BaseResponseDto {
 
   private List<ItineraryBriefDto> data = new ArrayList<>();
 
+  @JsonProperty("next_cursor")
+  private String nextCursor;
+
   public ItineraryListResponseDto(
       int status, boolean success, String message, List<ItineraryBriefDto> data) {
 
     super(status, success, message);
     this.data = data;
   }
+
+  public ItineraryListResponseDto(
+      int status,
+      boolean success,
+      String message,
+      List<ItineraryBriefDto> data,
+      String nextCursor) {
+
+    super(status, success, message);
+    this.data = data;
+    this.nextCursor = nextCursor;
+  }
 }
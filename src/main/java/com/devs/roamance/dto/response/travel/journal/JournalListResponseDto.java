@@ -1,6 +1,7 @@
 package com.devs.roamance.dto.response.travel.journal;
 
 import com.devs.roamance.dto.response.BaseResponseDto;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -15,9 +16,19 @@ import lombok.Setter;
 public class JournalListResponseDto extends BaseResponseDto {
   private List<JournalBriefDto> data = new ArrayList<>();
 
+  @JsonProperty("next_cursor")
+  private String nextCursor;
+
   public JournalListResponseDto(
       int status, boolean success, String message, List<JournalBriefDto> data) {
     super(status, success, message);
     this.data = data;
   }
+
+  public JournalListResponseDto(
+      int status, boolean success, String message, List<JournalBriefDto> data, String nextCursor) {
+    super(status, success, message);
+    this.data = data;
+    this.nextCursor = nextCursor;
+  }
 }
@@ -0,0 +1,13 @@
+package com.devs.roamance.exception;
+
+import java.io.Serial;
+
+public class AiServiceUnavailableException extends RuntimeException {
+
+  @Serial private static final long serialVersionUID = 1L;
+
+  public AiServiceUnavailableException(String message) {
+
+    super(message);
+  }
+}
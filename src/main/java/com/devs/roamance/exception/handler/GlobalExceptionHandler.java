@@ -277,6 +277,16 @@ public class GlobalExceptionHandler {
         new BaseResponseDto(500, false, ex.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
   }
 
+  @ExceptionHandler(AiServiceUnavailableException.class)
+  public ResponseEntity<BaseResponseDto> handleAiServiceUnavailableException(
+      AiServiceUnavailableException ex) {
+
+    log.warn("AiServiceUnavailableException: {}", ex.getMessage());
+
+    return new ResponseEntity<>(
+        new BaseResponseDto(503, false, ex.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
   // ==================== General Exceptions ====================
 
   @ExceptionHandler(IllegalArgumentException.class)
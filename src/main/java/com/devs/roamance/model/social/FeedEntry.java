@@ -0,0 +1,42 @@
+package com.devs.roamance.model.social;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import lombok.*;
+
+/**
+ * A post in the home feed of a user. Entries only hold ids and the creation time of the post, the
+ * feed is read by id and the posts are loaded in one batch.
+ */
+@Entity
+@Table(
+    name = "feed_entries",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "post_id"}),
+    indexes = {
+      @Index(name = "idx_feed_entries_user", columnList = "user_id, created_at"),
+      @Index(name = "idx_feed_entries_post", columnList = "post_id")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.UUID)
+  private UUID id;
+
+  @Column(name = "user_id", nullable = false)
+  private UUID userId;
+
+  @Column(name = "post_id", nullable = false)
+  private UUID postId;
+
+  @Column(name = "author_id", nullable = false)
+  private UUID authorId;
+
+  // Creation time of the post, not of the entry
+  @Column(name = "created_at", nullable = false)
+  private OffsetDateTime createdAt;
+}
@@ -0,0 +1,27 @@
+package com.devs.roamance.model.social;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import lombok.*;
+
+/**
+ * An author whose audience is too large to copy every post into, their posts are pulled into the
+ * feed of a reader when it is read instead.
+ */
+@Entity
+@Table(name = "feed_pull_authors")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedPullAuthor {
+
+  @Id
+  @Column(name = "author_id")
+  private UUID authorId;
+
+  private long audienceSize;
+
+  private OffsetDateTime markedAt;
+}
@@ -10,10 +10,17 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
 import java.util.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
-@Table(name = "posts")
+@Table(
+    name = "posts",
+    indexes = {
+      @Index(name = "idx_posts_location", columnList = "latitude, longitude"),
+      @Index(name = "idx_posts_user_created", columnList = "user_id, created_at"),
+      @Index(name = "idx_posts_created", columnList = "created_at")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -29,11 +36,14 @@ public class Post {
   @Column(length = 10_000)
   private String text;
 
+  // Media of a page of posts is loaded in one query per collection instead of one per post
   @Size(max = 50)
+  @BatchSize(size = 50)
   @ElementCollection(fetch = FetchType.EAGER)
   private List<String> imagePaths = new ArrayList<>();
 
   @Size(max = 5)
+  @BatchSize(size = 50)
   @ElementCollection(fetch = FetchType.EAGER)
   private List<String> videoPaths = new ArrayList<>();
 
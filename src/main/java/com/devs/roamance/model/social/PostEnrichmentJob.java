@@ -0,0 +1,65 @@
+package com.devs.roamance.model.social;
+
+import com.devs.roamance.model.audit.AuditTime;
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import lombok.*;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * Outbox entry for AI enrichment of a post. Rows are written in the same transaction as the post
+ * and removed once the work succeeded, so a restart never loses pending enrichment.
+ */
+@Entity
+@Table(
+    name = "post_enrichment_jobs",
+    indexes = {
+      @Index(name = "idx_post_enrichment_jobs_status", columnList = "status, next_attempt_at"),
+      @Index(name = "idx_post_enrichment_jobs_post", columnList = "post_id")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class PostEnrichmentJob {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.UUID)
+  private UUID id;
+
+  @Column(name = "post_id", nullable = false)
+  private UUID postId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private PostEnrichmentJobType type;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private PostEnrichmentJobStatus status = PostEnrichmentJobStatus.PENDING;
+
+  private int attempts = 0;
+
+  @Column(name = "next_attempt_at", nullable = false)
+  private OffsetDateTime nextAttemptAt;
+
+  private OffsetDateTime lockedUntil;
+
+  private String lockedBy;
+
+  @Column(length = 2000)
+  private String lastError;
+
+  /** Detects a worker saving a job whose lease ran out and was claimed again meanwhile */
+  @Version private long version;
+
+  @Embedded private AuditTime audit = new AuditTime();
+
+  public PostEnrichmentJob(UUID postId, PostEnrichmentJobType type, OffsetDateTime nextAttemptAt) {
+    this.postId = postId;
+    this.type = type;
+    this.nextAttemptAt = nextAttemptAt;
+  }
+}
@@ -0,0 +1,7 @@
+package com.devs.roamance.model.social;
+
+public enum PostEnrichmentJobStatus {
+  PENDING,
+  RUNNING,
+  FAILED
+}
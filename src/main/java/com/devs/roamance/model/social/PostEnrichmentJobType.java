@@ -0,0 +1,8 @@
+package com.devs.roamance.model.social;
+
+public enum PostEnrichmentJobType {
+  TIDBITS_AND_SAFETY,
+  VECTOR_EMBEDDINGS,
+  COMBINED,
+  VECTOR_REMOVAL
+}
@@ -38,6 +38,11 @@ public class Itinerary {
 
   @Size(min = 1, max = 30)
   @ElementCollection(fetch = FetchType.LAZY)
+  @CollectionTable(
+      name = "itinerary_locations",
+      joinColumns = @JoinColumn(name = "itinerary_id"),
+      indexes =
+          @Index(name = "idx_itinerary_locations_location", columnList = "latitude, longitude"))
   private Set<Location> locations = new HashSet<>();
 
   @NotBlank
@@ -16,6 +16,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -43,7 +44,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 @Table(
     name = "journals",
-    uniqueConstraints = @UniqueConstraint(columnNames = {"title", "created_by"}))
+    uniqueConstraints = @UniqueConstraint(columnNames = {"title", "created_by"}),
+    indexes = @Index(name = "idx_journals_location", columnList = "latitude, longitude"))
 public class Journal {
 
   @Id
@@ -0,0 +1,29 @@
+package com.devs.roamance.pojo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import dev.langchain4j.model.output.structured.Description;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+@Data
+@Description("Outline of a day in the itinerary.")
+public class DaySkeletonPojo {
+
+  @Description("Date of this day. Format: YYYY-MM-DD.")
+  @JsonProperty(required = true)
+  private LocalDate date;
+
+  @Description("Theme of the day, e.g. old town and food markets. Keep it short.")
+  @JsonProperty(required = true)
+  private String theme;
+
+  @Description("City or area within the location where the day is spent.")
+  @JsonProperty(required = true)
+  private String area;
+
+  @Description("Names of the main places visited on this day. Keep it within 3-5 places.")
+  @JsonProperty(required = true)
+  private List<String> places = new ArrayList<>();
+}
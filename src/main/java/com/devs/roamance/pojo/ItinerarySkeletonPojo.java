@@ -0,0 +1,34 @@
+package com.devs.roamance.pojo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import dev.langchain4j.model.output.structured.Description;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.Data;
+
+@Data
+@Description("Outline of the itinerary, without the activities of each day.")
+public class ItinerarySkeletonPojo {
+
+  @Description("Set of locations included in this itinerary. Must not exceed 30.")
+  @JsonProperty(required = true)
+  private Set<LocationPojo> locations = new HashSet<>();
+
+  @Description("Title of the itinerary. Must be less than 100 characters.")
+  @JsonProperty(required = true)
+  private String title;
+
+  @Description("Detailed description of the itinerary.")
+  @JsonProperty(required = true)
+  private String description;
+
+  @Description("Outline of each day of the itinerary, in order.")
+  @JsonProperty(required = true)
+  private List<DaySkeletonPojo> days = new ArrayList<>();
+
+  @Description("General notes about the entire itinerary. Keep it within 3-5 short notes.")
+  @JsonProperty(required = true)
+  private List<String> notes = new ArrayList<>();
+}
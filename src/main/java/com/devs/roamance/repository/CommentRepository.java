@@ -2,11 +2,17 @@ package com.devs.roamance.repository;
 
 import com.devs.roamance.model.social.Comment;
 import java.util.UUID;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface CommentRepository extends JpaRepository<Comment, UUID> {
 
-  Page<Comment> findAllByPostId(UUID postId, Pageable pageable);
+  Slice<Comment> findAllByPostId(UUID postId, Pageable pageable);
+
+  Window<Comment> findAllByPostId(UUID postId, ScrollPosition position, Sort sort, Limit limit);
 }
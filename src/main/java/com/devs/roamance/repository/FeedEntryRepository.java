@@ -0,0 +1,114 @@
+package com.devs.roamance.repository;
+
+import com.devs.roamance.model.social.FeedEntry;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface FeedEntryRepository extends JpaRepository<FeedEntry, UUID> {
+
+  // The author, their chat partners and everyone who liked or commented on one of their posts
+  String AUDIENCE =
+      """
+      SELECT CAST(:authorId AS uuid)
+      UNION SELECT cu2.user_id FROM chat_users cu1
+          JOIN chat_users cu2 ON cu2.chat_id = cu1.chat_id
+          WHERE cu1.user_id = :authorId
+      UNION SELECT l.user_id FROM post_likes l
+          JOIN posts p ON p.id = l.post_id
+          WHERE p.user_id = :authorId
+      UNION SELECT c.user_id FROM comments c
+          JOIN posts p ON p.id = c.post_id
+          WHERE p.user_id = :authorId
+      """;
+
+  // The reverse of the audience, the authors whose posts a user sees
+  String SOURCES =
+      """
+      SELECT CAST(:userId AS uuid)
+      UNION SELECT cu2.user_id FROM chat_users cu1
+          JOIN chat_users cu2 ON cu2.chat_id = cu1.chat_id
+          WHERE cu1.user_id = :userId
+      UNION SELECT p.user_id FROM post_likes l
+          JOIN posts p ON p.id = l.post_id
+          WHERE l.user_id = :userId
+      UNION SELECT p.user_id FROM comments c
+          JOIN posts p ON p.id = c.post_id
+          WHERE c.user_id = :userId
+      """;
+
+  Slice<FeedEntry> findAllByUserId(UUID userId, Pageable pageable);
+
+  Window<FeedEntry> findAllByUserId(UUID userId, ScrollPosition position, Sort sort, Limit limit);
+
+  boolean existsByUserId(UUID userId);
+
+  @Query(value = "SELECT count(*) FROM (" + AUDIENCE + ") AS audience", nativeQuery = true)
+  long countAudience(@Param("authorId") UUID authorId);
+
+  // Fan-out on write, one entry per member of the audience
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO feed_entries (id, user_id, post_id, author_id, created_at) "
+              + "SELECT gen_random_uuid(), a.user_id, :postId, :authorId, :createdAt "
+              + "FROM ("
+              + AUDIENCE
+              + ") AS a(user_id) "
+              + "ON CONFLICT (user_id, post_id) DO NOTHING",
+      nativeQuery = true)
+  int fanOut(
+      @Param("postId") UUID postId,
+      @Param("authorId") UUID authorId,
+      @Param("createdAt") OffsetDateTime createdAt);
+
+  // Fan-out on read, recent posts of the pull authors a user sees
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO feed_entries (id, user_id, post_id, author_id, created_at) "
+              + "SELECT gen_random_uuid(), :userId, p.id, p.user_id, p.created_at "
+              + "FROM posts p JOIN feed_pull_authors h ON h.author_id = p.user_id "
+              + "WHERE p.created_at > :since AND p.user_id IN ("
+              + SOURCES
+              + ") ON CONFLICT (user_id, post_id) DO NOTHING",
+      nativeQuery = true)
+  int pull(@Param("userId") UUID userId, @Param("since") OffsetDateTime since);
+
+  @Modifying
+  @Query("DELETE FROM FeedEntry e WHERE e.postId = :postId")
+  int deleteAllByPostId(@Param("postId") UUID postId);
+
+  @Modifying
+  @Query("DELETE FROM FeedEntry e WHERE e.createdAt < :before")
+  int deleteAllOlderThan(@Param("before") OffsetDateTime before);
+
+  // Keeps the newest :max entries of every feed
+  @Modifying
+  @Query(
+      value =
+          """
+        DELETE FROM feed_entries f
+        USING (
+            SELECT id FROM (
+                SELECT e.id,
+                       row_number() OVER (PARTITION BY e.user_id
+                                          ORDER BY e.created_at DESC, e.id DESC) AS position
+                FROM feed_entries e
+            ) AS ranked
+            WHERE ranked.position > :max
+        ) AS overflow
+        WHERE f.id = overflow.id
+        """,
+      nativeQuery = true)
+  int deleteOverflow(@Param("max") int max);
+}
@@ -0,0 +1,7 @@
+package com.devs.roamance.repository;
+
+import com.devs.roamance.model.social.FeedPullAuthor;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FeedPullAuthorRepository extends JpaRepository<FeedPullAuthor, UUID> {}
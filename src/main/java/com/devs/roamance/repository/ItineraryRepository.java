@@ -1,11 +1,16 @@
 package com.devs.roamance.repository;
 
 import com.devs.roamance.model.travel.itinerary.Itinerary;
+import com.devs.roamance.util.GeoUtil;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -18,26 +23,37 @@ public interface ItineraryRepository extends JpaRepository<Itinerary, UUID> {
   @EntityGraph(attributePaths = {"locations", "notes"}) // necessary fields from detail dto
   Optional<Itinerary> findById(@NonNull UUID id);
 
-  @Query("SELECT i FROM Itinerary i WHERE i.id IN :ids")
-  Page<Itinerary> findByIds(@Param("ids") List<UUID> ids, Pageable pageable);
-
   @Query("SELECT i FROM Itinerary i WHERE i.id = :id")
   Optional<Itinerary> findByIdLite(UUID id);
 
-  Page<Itinerary> findAllByUserId(UUID userId, Pageable pageable);
+  Slice<Itinerary> findAllBy(Pageable pageable);
+
+  Window<Itinerary> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+  Slice<Itinerary> findAllByUserId(UUID userId, Pageable pageable);
 
-  // Find nearby itineraries
+  Window<Itinerary> findAllByUserId(UUID userId, ScrollPosition position, Sort sort, Limit limit);
+
+  // Find nearby itineraries, by their closest location, nearest first
   @Query(
       value =
           """
-        SELECT DISTINCT i.id
-        FROM itineraries i
-        JOIN itinerary_locations l ON l.itinerary_id = i.id
-        WHERE (6371 * acos(
-            cos(radians(:lat)) * cos(radians(l.latitude)) *
-            cos(radians(l.longitude) - radians(:lng)) +
-            sin(radians(:lat)) * sin(radians(l.latitude))
-        )) < :radiusKm
+        SELECT itinerary_id FROM (
+            SELECT l.itinerary_id,
+                   (2 * 6371 * asin(least(1, sqrt(
+                       power(sin(radians(l.latitude - :lat) / 2), 2) +
+                       cos(radians(:lat)) * cos(radians(l.latitude)) *
+                       power(sin(radians(l.longitude - :lng) / 2), 2)
+                   )))) AS distance
+            FROM itinerary_locations l
+            WHERE l.latitude BETWEEN :#{#box.minLatitude()} AND :#{#box.maxLatitude()}
+              AND (l.longitude BETWEEN :#{#box.minLongitude()} AND :#{#box.maxLongitude()}
+                   OR l.longitude BETWEEN :#{#box.wrapMinLongitude()}
+                                        AND :#{#box.wrapMaxLongitude()})
+        ) AS candidates
+        WHERE distance < :radiusKm
+        GROUP BY itinerary_id
+        ORDER BY min(distance), itinerary_id
         LIMIT :limit OFFSET :offset
         """,
       nativeQuery = true)
@@ -45,6 +61,11 @@ public interface ItineraryRepository extends JpaRepository<Itinerary, UUID> {
       @Param("lat") double latitude,
       @Param("lng") double longitude,
       @Param("radiusKm") double radiusKm,
+      @Param("box") GeoUtil.BoundingBox box,
       @Param("limit") int limit,
       @Param("offset") int offset);
+
+  // Id, latitude and longitude of every itinerary location, for the geo index
+  @Query("SELECT i.id, l.latitude, l.longitude FROM Itinerary i JOIN i.locations l")
+  List<Object[]> findAllLocations();
 }
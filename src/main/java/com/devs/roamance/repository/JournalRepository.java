@@ -1,11 +1,16 @@
 package com.devs.roamance.repository;
 
 import com.devs.roamance.model.travel.journal.Journal;
+import com.devs.roamance.util.GeoUtil;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -24,43 +29,53 @@ public interface JournalRepository extends JpaRepository<Journal, UUID> {
   @NonNull
   List<Journal> findAll();
 
+  Slice<Journal> findAllBy(Pageable pageable);
+
+  // Keyset queries leave out the subsections, a collection fetch would apply the limit in memory
+  Window<Journal> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
   @EntityGraph(attributePaths = {"subsections"})
-  Page<Journal> findAllByAudit_CreatedBy(UUID createdBy, Pageable pageable);
+  Slice<Journal> findAllByAudit_CreatedBy(UUID createdBy, Pageable pageable);
+
+  Window<Journal> findAllByAudit_CreatedBy(
+      UUID createdBy, ScrollPosition position, Sort sort, Limit limit);
 
   @EntityGraph(attributePaths = {"subsections"})
-  Page<Journal> findAllByIsSharedTrue(Pageable pageable);
+  Slice<Journal> findAllByIsSharedTrue(Pageable pageable);
 
-  // Find nearby journals
+  Window<Journal> findAllByIsSharedTrue(ScrollPosition position, Sort sort, Limit limit);
+
+  // Find nearby journals, the bounding box is an index range scan and only its rows get a distance
   @Query(
       value =
           """
-                SELECT * FROM (
-                    SELECT j.*,
-                           (6371 * acos(
-                               cos(radians(:lat)) * cos(radians(j.latitude)) *
-                               cos(radians(j.longitude) - radians(:lng)) +
-                               sin(radians(:lat)) * sin(radians(j.latitude))
-                           )) AS distance
-                    FROM journals j
-                ) AS sub
-                WHERE distance < :radiusKm
-                """,
-      countQuery =
-          """
-                SELECT COUNT(*) FROM (
-                    SELECT (6371 * acos(
-                               cos(radians(:lat)) * cos(radians(j.latitude)) *
-                               cos(radians(j.longitude) - radians(:lng)) +
-                               sin(radians(:lat)) * sin(radians(j.latitude))
-                           )) AS distance
-                    FROM journals j
-                ) AS sub
-                WHERE distance < :radiusKm
-                """,
+        SELECT * FROM (
+            SELECT j.*,
+                   (2 * 6371 * asin(least(1, sqrt(
+                       power(sin(radians(j.latitude - :lat) / 2), 2) +
+                       cos(radians(:lat)) * cos(radians(j.latitude)) *
+                       power(sin(radians(j.longitude - :lng) / 2), 2)
+                   )))) AS distance
+            FROM journals j
+            WHERE j.latitude BETWEEN :#{#box.minLatitude()} AND :#{#box.maxLatitude()}
+              AND (j.longitude BETWEEN :#{#box.minLongitude()} AND :#{#box.maxLongitude()}
+                   OR j.longitude BETWEEN :#{#box.wrapMinLongitude()}
+                                        AND :#{#box.wrapMaxLongitude()})
+        ) AS candidates
+        WHERE distance < :radiusKm
+        ORDER BY distance, id
+        LIMIT :limit OFFSET :offset
+        """,
       nativeQuery = true)
-  Page<Journal> findNearby(
+  List<Journal> findNearby(
       @Param("lat") double latitude,
       @Param("lng") double longitude,
       @Param("radiusKm") double radiusKm,
-      Pageable pageable);
+      @Param("box") GeoUtil.BoundingBox box,
+      @Param("limit") int limit,
+      @Param("offset") int offset);
+
+  // Id, latitude and longitude of every journal, for the geo index
+  @Query("SELECT j.id, j.destination.latitude, j.destination.longitude FROM Journal j")
+  List<Object[]> findAllLocations();
 }
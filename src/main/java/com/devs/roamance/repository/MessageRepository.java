@@ -2,11 +2,17 @@ package com.devs.roamance.repository;
 
 import com.devs.roamance.model.social.Message;
 import java.util.UUID;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface MessageRepository extends JpaRepository<Message, UUID> {
 
-  Page<Message> findAllByChatId(UUID chatId, Pageable pageable);
+  Slice<Message> findAllByChatId(UUID chatId, Pageable pageable);
+
+  Window<Message> findAllByChatId(UUID chatId, ScrollPosition position, Sort sort, Limit limit);
 }
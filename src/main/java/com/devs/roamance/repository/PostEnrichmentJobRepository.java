@@ -0,0 +1,48 @@
+package com.devs.roamance.repository;
+
+import com.devs.roamance.model.social.PostEnrichmentJob;
+import com.devs.roamance.model.social.PostEnrichmentJobStatus;
+import com.devs.roamance.model.social.PostEnrichmentJobType;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface PostEnrichmentJobRepository extends JpaRepository<PostEnrichmentJob, UUID> {
+
+  // Locks due jobs, rows already locked by another instance are skipped instead of waited on
+  @Query(
+      value =
+          """
+        SELECT * FROM post_enrichment_jobs j
+        WHERE (j.status = 'PENDING' AND j.next_attempt_at <= now())
+           OR (j.status = 'RUNNING' AND j.locked_until < now() AND j.attempts < :maxAttempts)
+        ORDER BY j.next_attempt_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """,
+      nativeQuery = true)
+  List<PostEnrichmentJob> lockDueJobs(
+      @Param("limit") int limit, @Param("maxAttempts") int maxAttempts);
+
+  // Jobs whose lease ran out on their last attempt are kept as FAILED instead of being reclaimed
+  @Modifying
+  @Query(
+      value =
+          """
+        UPDATE post_enrichment_jobs
+        SET status = 'FAILED',
+            locked_by = NULL,
+            locked_until = NULL,
+            last_error = 'Lease expired on the last attempt',
+            version = version + 1
+        WHERE status = 'RUNNING' AND locked_until < now() AND attempts >= :maxAttempts
+        """,
+      nativeQuery = true)
+  int failExpiredJobs(@Param("maxAttempts") int maxAttempts);
+
+  boolean existsByPostIdAndTypeAndStatus(
+      UUID postId, PostEnrichmentJobType type, PostEnrichmentJobStatus status);
+}
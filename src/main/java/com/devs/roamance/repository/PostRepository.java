@@ -1,9 +1,18 @@
 package com.devs.roamance.repository;
 
+import com.devs.roamance.model.common.Location;
 import com.devs.roamance.model.social.Post;
+import com.devs.roamance.util.GeoUtil;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -11,9 +20,17 @@ import org.springframework.data.repository.query.Param;
 
 public interface PostRepository extends JpaRepository<Post, UUID> {
 
-  Page<Post> findAllByUserId(UUID userId, Pageable pageable);
+  Slice<Post> findAllBy(Pageable pageable);
 
-  Page<Post> findAllBySavedBy_Id(UUID userId, Pageable pageable);
+  Window<Post> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+  Slice<Post> findAllByUserId(UUID userId, Pageable pageable);
+
+  Window<Post> findAllByUserId(UUID userId, ScrollPosition position, Sort sort, Limit limit);
+
+  Slice<Post> findAllBySavedBy_Id(UUID userId, Pageable pageable);
+
+  Window<Post> findAllBySavedBy_Id(UUID userId, ScrollPosition position, Sort sort, Limit limit);
 
   @Query(
       value =
@@ -23,39 +40,58 @@ public interface PostRepository extends JpaRepository<Post, UUID> {
       nativeQuery = true)
   Page<Post> findAllByIds(@Param("ids") UUID[] ids, Pageable pageable);
 
-  // Find nearby posts
+  @Query(value = "SELECT p.id FROM posts p WHERE p.id = ANY(:ids)", nativeQuery = true)
+  List<UUID> findExistingIds(@Param("ids") UUID[] ids);
+
+  // Find nearby posts, the bounding box is an index range scan and only its rows get a distance
   @Query(
       value =
           """
         SELECT * FROM (
             SELECT p.*,
-                   (6371 * acos(
-                       cos(radians(:lat)) * cos(radians(p.latitude)) *
-                       cos(radians(p.longitude) - radians(:lng)) +
-                       sin(radians(:lat)) * sin(radians(p.latitude))
-                   )) AS distance
-            FROM posts p
-        ) AS sub
-        WHERE distance < :radiusKm
-        """,
-      countQuery =
-          """
-        SELECT COUNT(*) FROM (
-            SELECT (6371 * acos(
+                   (2 * 6371 * asin(least(1, sqrt(
+                       power(sin(radians(p.latitude - :lat) / 2), 2) +
                        cos(radians(:lat)) * cos(radians(p.latitude)) *
-                       cos(radians(p.longitude) - radians(:lng)) +
-                       sin(radians(:lat)) * sin(radians(p.latitude))
-                   )) AS distance
+                       power(sin(radians(p.longitude - :lng) / 2), 2)
+                   )))) AS distance
             FROM posts p
-        ) AS sub
+            WHERE p.latitude BETWEEN :#{#box.minLatitude()} AND :#{#box.maxLatitude()}
+              AND (p.longitude BETWEEN :#{#box.minLongitude()} AND :#{#box.maxLongitude()}
+                   OR p.longitude BETWEEN :#{#box.wrapMinLongitude()}
+                                        AND :#{#box.wrapMaxLongitude()})
+        ) AS candidates
         WHERE distance < :radiusKm
+        ORDER BY distance, id
+        LIMIT :limit OFFSET :offset
         """,
       nativeQuery = true)
-  Page<Post> findNearby(
+  List<Post> findNearby(
       @Param("lat") double latitude,
       @Param("lng") double longitude,
       @Param("radiusKm") double radiusKm,
-      Pageable pageable);
+      @Param("box") GeoUtil.BoundingBox box,
+      @Param("limit") int limit,
+      @Param("offset") int offset);
+
+  // Id, latitude and longitude of every located post, for the geo index
+  @Query(
+      "SELECT p.id, p.location.latitude, p.location.longitude FROM Post p "
+          + "WHERE p.location.latitude IS NOT NULL")
+  List<Object[]> findAllLocations();
+
+  // Features of the recent safe posts, for the ranked feed
+  @Query(
+      "SELECT p.id, p.user.id, p.audit.createdAt, p.likesCount, p.commentsCount, "
+          + "p.location.latitude, p.location.longitude, p.audit.lastModifiedAt FROM Post p "
+          + "WHERE p.audit.createdAt > :since AND p.isSafe = true "
+          + "ORDER BY p.audit.createdAt DESC")
+  List<Object[]> findRankingFeatures(@Param("since") OffsetDateTime since, Limit limit);
+
+  @Query(
+      "SELECT p.location FROM Post p "
+          + "WHERE p.user.id = :userId AND p.location.latitude IS NOT NULL "
+          + "ORDER BY p.audit.createdAt DESC")
+  List<Location> findLatestLocations(@Param("userId") UUID userId, Limit limit);
 
   // Saving or unsaving a post
   @Query(
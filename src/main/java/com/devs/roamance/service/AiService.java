@@ -5,28 +5,40 @@ import com.devs.roamance.dto.request.ai.MultiModalAiRequestDto;
 import com.devs.roamance.dto.request.ai.MultiModalRagRequestDto;
 import com.devs.roamance.dto.request.ai.UniModalAiRequestDto;
 import com.devs.roamance.dto.response.ai.AiPoweredItineraryResponseDto;
+import com.devs.roamance.dto.response.ai.PostEnrichmentDto;
 import com.devs.roamance.dto.response.ai.PostIdListRagSearchDto;
 import com.devs.roamance.dto.response.ai.TidbitsAndSafetyDto;
+import dev.langchain4j.data.embedding.Embedding;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.scheduling.annotation.Async;
-import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Flux;
 
 public interface AiService {
 
   @Async("asyncExecutor")
   CompletableFuture<TidbitsAndSafetyDto> getTidbitsAndSafety(MultiModalAiRequestDto requestDto);
 
-  @Async("asyncExecutor")
-  void getProofreading(UniModalAiRequestDto requestDto, Sinks.Many<String> sink);
+  Flux<String> getProofreading(UniModalAiRequestDto requestDto);
 
   @Async("asyncExecutor")
   CompletableFuture<Void> addContentToVectorDb(MultiModalAiRequestDto requestDto, UUID contentId);
 
+  @Async("asyncExecutor")
+  CompletableFuture<PostEnrichmentDto> getPostEnrichment(
+      MultiModalAiRequestDto requestDto, UUID contentId);
+
   @Async("asyncExecutor")
   CompletableFuture<PostIdListRagSearchDto> getPostIdsUsingRag(MultiModalRagRequestDto requestDto);
 
+  @Async("asyncExecutor")
+  CompletableFuture<Embedding> getQueryEmbedding(String query);
+
   @Async("asyncExecutor")
   CompletableFuture<AiPoweredItineraryResponseDto> getAiPoweredItinerary(
       AiPoweredItineraryCreateRequestDto requestDto);
+
+  Flux<ServerSentEvent<Object>> getAiPoweredItineraryStream(
+      AiPoweredItineraryCreateRequestDto requestDto);
 }
@@ -11,5 +11,5 @@ public interface ChatService {
   ChatResponseDto get(UUID chatId);
 
   ChatListResponseDto getForCurrentUser(
-      Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+      Integer pageNumber, Integer pageSize, String sortBy, String sortDir, String cursor);
 }
@@ -12,5 +12,10 @@ public interface CommentService {
   CommentResponseDto get(UUID commentId);
 
   CommentListResponseDto getByPostId(
-      UUID postId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir);
+      UUID postId,
+      Integer pageNumber,
+      Integer pageSize,
+      String sortBy,
+      String sortDir,
+      String cursor);
 }
@@ -17,11 +17,11 @@ public interface ItineraryService
         UUID> {
   ItineraryResponseDto createWithDetails(AiPoweredItineraryDto createRequestDto);
 
-  ItineraryListResponseDto getAll(int pageNumber, int pageSize, String sortBy, String sortDir);
+  ItineraryListResponseDto getAll(
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
 
   ItineraryListResponseDto getByUserId(
-      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir);
+      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
 
-  ItineraryListResponseDto getNearby(
-      NearByFindRequestDto requestDto, int pageNumber, int pageSize, String sortBy, String sortDir);
+  ItineraryListResponseDto getNearby(NearByFindRequestDto requestDto, int pageNumber, int pageSize);
 }
@@ -15,10 +15,11 @@ public interface JournalService
         JournalUpdateRequestDto,
         UUID> {
 
-  JournalListResponseDto getAll(int pageNumber, int pageSize, String sortBy, String sortDir);
+  JournalListResponseDto getAll(
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
 
-  JournalListResponseDto getNearby(
-      NearByFindRequestDto requestDto, int pageNumber, int pageSize, String sortBy, String sortDir);
+  JournalListResponseDto getNearby(NearByFindRequestDto requestDto, int pageNumber, int pageSize);
 
-  JournalListResponseDto getPublic(int pageNumber, int pageSize, String sortBy, String sortDir);
+  JournalListResponseDto getPublic(
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
 }
@@ -10,5 +10,5 @@ public interface MessageService {
   MessageResponseDto create(UUID chatId, MessageRequestDto requestDto);
 
   MessageListResponseDto getByChatId(
-      UUID chatId, int pageNumber, int pageSize, String sortBy, String sortDir);
+      UUID chatId, int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
 }
@@ -12,21 +12,25 @@ import java.util.UUID;
 public interface PostService
     extends BaseService<PostResponseDto, PostResponseDto, PostRequestDto, PostRequestDto, UUID> {
 
-  PostListResponseDto getAll(int pageNumber, int pageSize, String sortBy, String sortDir);
+  PostListResponseDto getAll(
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
+
+  PostListResponseDto getFeed(int pageNumber, int pageSize, String cursor);
+
+  PostListResponseDto getForYou(int pageNumber, int pageSize, Double latitude, Double longitude);
 
   PostListResponseDto getByIds(List<UUID> postIds, int pageNumber, int pageSize);
 
   PostListResponseDto getByUserId(
-      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir);
+      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
 
   PostListResponseDto getSavedByCurrentUser(
-      int pageNumber, int pageSize, String sortBy, String sortDir);
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor);
 
   UserListResponseDto getUsersWhoLiked(
       UUID postId, int pageNumber, int pageSize, String sortBy, String sortDir);
 
-  PostListResponseDto getNearby(
-      NearByFindRequestDto requestDto, int pageNumber, int pageSize, String sortBy, String sortDir);
+  PostListResponseDto getNearby(NearByFindRequestDto requestDto, int pageNumber, int pageSize);
 
   BaseResponseDto toggleSave(UUID postId);
 
@@ -4,45 +4,93 @@ import static dev.langchain4j.model.googleai.GeminiHarmBlockThreshold.BLOCK_LOW_
 import static dev.langchain4j.model.googleai.GeminiHarmBlockThreshold.BLOCK_MEDIUM_AND_ABOVE;
 import static dev.langchain4j.model.googleai.GeminiHarmCategory.*;
 
+import com.devs.roamance.config.GeminiModelConfig;
 import com.devs.roamance.constant.AiSystemInstruction;
 import com.devs.roamance.constant.ResponseMessage;
+import com.devs.roamance.dto.common.AiPoweredDayPlanDto;
 import com.devs.roamance.dto.common.AiPoweredItineraryDto;
 import com.devs.roamance.dto.request.ai.AiPoweredItineraryCreateRequestDto;
 import com.devs.roamance.dto.request.ai.MultiModalAiRequestDto;
 import com.devs.roamance.dto.request.ai.MultiModalRagRequestDto;
 import com.devs.roamance.dto.request.ai.UniModalAiRequestDto;
+import com.devs.roamance.dto.response.BaseResponseDto;
 import com.devs.roamance.dto.response.ai.AiPoweredItineraryResponseDto;
 import com.devs.roamance.dto.response.ai.EmbeddingResponse;
+import com.devs.roamance.dto.response.ai.PostEnrichmentDto;
 import com.devs.roamance.dto.response.ai.PostIdListRagSearchDto;
 import com.devs.roamance.dto.response.ai.TidbitsAndSafetyDto;
 import com.devs.roamance.exception.AiGenerationFailedException;
+import com.devs.roamance.exception.AiServiceUnavailableException;
+import com.devs.roamance.pojo.DayPlanPojo;
+import com.devs.roamance.pojo.DaySkeletonPojo;
 import com.devs.roamance.pojo.ItineraryPojo;
+import com.devs.roamance.pojo.ItinerarySkeletonPojo;
 import com.devs.roamance.service.AiService;
-import com.devs.roamance.util.GeminiModelUtil;
+import com.devs.roamance.util.AiCallMetrics;
+import com.devs.roamance.util.AiCallScheduler;
+import com.devs.roamance.util.AiCallScheduler.Endpoint;
+import com.devs.roamance.util.AiCallScheduler.Feature;
+import com.devs.roamance.util.AiStreamMetrics;
+import com.devs.roamance.util.AnnTuningDataSource;
+import com.devs.roamance.util.EmbeddingIngestionPipeline;
+import com.devs.roamance.util.GeminiContextCache;
+import com.devs.roamance.util.GeminiModelRegistry;
+import com.devs.roamance.util.ItineraryTemplateCache;
+import com.devs.roamance.util.ItineraryUtil;
+import com.devs.roamance.util.JsonArrayStreamParser;
 import com.devs.roamance.util.NomicImageEmbeddingUtil;
+import com.devs.roamance.util.PgVectorStoreRegistry;
+import com.devs.roamance.util.RagSemanticCache;
 import com.devs.roamance.util.RagUtil;
 import com.devs.roamance.util.RestUtil;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.message.*;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.googleai.GeminiHarmBlockThreshold;
+import dev.langchain4j.model.googleai.GeminiHarmCategory;
+import dev.langchain4j.model.input.PromptTemplate;
 import dev.langchain4j.model.output.FinishReason;
-import dev.langchain4j.rag.RetrievalAugmentor;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.Result;
 import dev.langchain4j.service.V;
+import dev.langchain4j.service.output.JsonSchemas;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Sinks;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 @Slf4j
@@ -58,42 +106,160 @@ public class AiServiceImpl implements AiService {
 
   private String geminiModelName = "gemini-2.0-flash";
 
+  @Value("${application.ai.rag.min-score:0.6}")
+  private double ragMinScore;
+
+  @Value("${application.ai.rag.image-min-score:0.5}")
+  private double ragImageMinScore;
+
+  @Value("${application.ai.rag.image-query-min-score:0.8}")
+  private double ragImageQueryMinScore;
+
+  @Value("${application.ai.rag.rerank-candidates:30}")
+  private int rerankCandidates;
+
+  @Value("${application.ai.stream.max-buffered-tokens:1024}")
+  private int streamMaxBufferedTokens;
+
+  @Value("${application.ai.stream.coalesce-max-tokens:16}")
+  private int streamCoalesceMaxTokens;
+
+  @Value("${application.ai.stream.coalesce-window:100ms}")
+  private Duration streamCoalesceWindow;
+
+  @Value("${application.ai.itinerary.fan-out.enabled:true}")
+  private boolean itineraryFanOut;
+
+  @Value("${application.ai.itinerary.fan-out.min-days:3}")
+  private int itineraryFanOutMinDays;
+
+  @Value("${application.ai.itinerary.fan-out.parallelism:4}")
+  private int itineraryFanOutParallelism;
+
+  @Value("${application.ai.itinerary.fan-out.max-retries:2}")
+  private int itineraryFanOutMaxRetries;
+
+  private static final Map<GeminiHarmCategory, GeminiHarmBlockThreshold> STRICT_SAFETY_SETTINGS =
+      Map.of(
+          HARM_CATEGORY_HARASSMENT, BLOCK_LOW_AND_ABOVE,
+          HARM_CATEGORY_DANGEROUS_CONTENT, BLOCK_MEDIUM_AND_ABOVE,
+          HARM_CATEGORY_SEXUALLY_EXPLICIT, BLOCK_LOW_AND_ABOVE,
+          HARM_CATEGORY_HATE_SPEECH, BLOCK_LOW_AND_ABOVE,
+          HARM_CATEGORY_CIVIC_INTEGRITY, BLOCK_MEDIUM_AND_ABOVE);
+
+  private static final String ITINERARY_USER_PROMPT =
+      "Create a travel itinerary for {{location}} starting on {{startDate}} for {{numberOfDays}}"
+          + " days with a {{budgetLevel}} budget for {{numberOfPeople}} people.";
+
+  private static final String DAY_PLAN_USER_PROMPT =
+      "Plan day {{dayNumber}} of a {{numberOfDays}} day trip to {{location}}, on {{date}}, in"
+          + " {{area}} with the theme {{theme}}. Main places: {{places}}."
+          + " Other days: {{otherDays}}. Use a {{budgetLevel}} budget for {{numberOfPeople}}"
+          + " people. Problems with a previous attempt: {{problems}}";
+
+  private static final String NO_PROBLEMS = "none, this is the first attempt.";
+
+  /** Events an itinerary stream holds for a slow client, one per day plus the itinerary */
+  private static final int ITINERARY_STREAM_MAX_EVENTS = 16;
+
+  /** The schema AiServices derives for ItineraryPojo, for the streaming model */
+  private static final ResponseFormat ITINERARY_RESPONSE_FORMAT =
+      ResponseFormat.builder()
+          .type(ResponseFormatType.JSON)
+          .jsonSchema(JsonSchemas.jsonSchemaFrom(ItineraryPojo.class).orElseThrow())
+          .build();
+
+  private final ObjectMapper objectMapper =
+      new ObjectMapper()
+          .registerModule(new JavaTimeModule())
+          .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
   private final RestUtil restUtil;
-  private final GeminiModelUtil geminiModelUtil;
+  private final GeminiModelRegistry geminiModelRegistry;
+  private final GeminiContextCache geminiContextCache;
   private final RagUtil ragUtil;
   private final NomicImageEmbeddingUtil nomicImageEmbeddingUtil;
+  private final EmbeddingIngestionPipeline ingestionPipeline;
+  private final RagSemanticCache ragSemanticCache;
+  private final Validator validator;
+  private final ItineraryUtil itineraryUtil;
+  private final ItineraryTemplateCache itineraryTemplateCache;
+  private final AiCallScheduler aiCallScheduler;
+  private final AiCallMetrics aiCallMetrics;
+  private final AiStreamMetrics aiStreamMetrics;
+
+  /** Day plan requests block on the model API only, virtual threads keep them off the pools */
+  private final ExecutorService dayPlanExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
   public AiServiceImpl(
       RestUtil restUtil,
-      GeminiModelUtil geminiModelUtil,
+      GeminiModelRegistry geminiModelRegistry,
+      GeminiContextCache geminiContextCache,
       RagUtil ragUtil,
       NomicImageEmbeddingUtil nomicImageEmbeddingUtil,
+      EmbeddingIngestionPipeline ingestionPipeline,
+      RagSemanticCache ragSemanticCache,
+      Validator validator,
+      ItineraryUtil itineraryUtil,
+      ItineraryTemplateCache itineraryTemplateCache,
+      AiCallScheduler aiCallScheduler,
+      AiCallMetrics aiCallMetrics,
+      AiStreamMetrics aiStreamMetrics,
       ModelMapper modelMapper) {
 
     this.restUtil = restUtil;
-    this.geminiModelUtil = geminiModelUtil;
+    this.geminiModelRegistry = geminiModelRegistry;
+    this.geminiContextCache = geminiContextCache;
     this.ragUtil = ragUtil;
     this.nomicImageEmbeddingUtil = nomicImageEmbeddingUtil;
+    this.ingestionPipeline = ingestionPipeline;
+    this.ragSemanticCache = ragSemanticCache;
+    this.validator = validator;
+    this.itineraryUtil = itineraryUtil;
+    this.itineraryTemplateCache = itineraryTemplateCache;
+    this.aiCallScheduler = aiCallScheduler;
+    this.aiCallMetrics = aiCallMetrics;
+    this.aiStreamMetrics = aiStreamMetrics;
     this.modelMapper = modelMapper;
   }
 
-  private interface RagAssistant {
+  private interface ItineraryAiService {
 
-    @dev.langchain4j.service.SystemMessage(AiSystemInstruction.FOR_POST_IDS_RETRIEVAL)
-    PostIdListRagSearchDto answer(String question);
+    @dev.langchain4j.service.SystemMessage(AiSystemInstruction.FOR_ITINERARY_GENERATION)
+    @dev.langchain4j.service.UserMessage(ITINERARY_USER_PROMPT)
+    Result<ItineraryPojo> generateItinerary(
+        @V("location") String location,
+        @V("startDate") LocalDate startDate,
+        @V("numberOfDays") Integer numberOfDays,
+        @V("budgetLevel") String budgetLevel,
+        @V("numberOfPeople") Integer numberOfPeople);
   }
 
-  private interface ItineraryAiService {
+  private interface DayPlanAiService {
 
-    @dev.langchain4j.service.SystemMessage(AiSystemInstruction.FOR_ITINERARY_GENERATION)
-    @dev.langchain4j.service.UserMessage(
-        "Create a travel itinerary for {{location}} starting on {{startDate}} for {{numberOfDays}} days with a {{budgetLevel}} budget for {{numberOfPeople}} people.")
-    ItineraryPojo generateItinerary(
+    @dev.langchain4j.service.SystemMessage(AiSystemInstruction.FOR_ITINERARY_SKELETON_GENERATION)
+    @dev.langchain4j.service.UserMessage(ITINERARY_USER_PROMPT)
+    Result<ItinerarySkeletonPojo> generateSkeleton(
         @V("location") String location,
         @V("startDate") LocalDate startDate,
         @V("numberOfDays") Integer numberOfDays,
         @V("budgetLevel") String budgetLevel,
         @V("numberOfPeople") Integer numberOfPeople);
+
+    @dev.langchain4j.service.SystemMessage(AiSystemInstruction.FOR_DAY_PLAN_GENERATION)
+    @dev.langchain4j.service.UserMessage(DAY_PLAN_USER_PROMPT)
+    Result<DayPlanPojo> generateDayPlan(
+        @V("location") String location,
+        @V("dayNumber") Integer dayNumber,
+        @V("numberOfDays") Integer numberOfDays,
+        @V("date") LocalDate date,
+        @V("area") String area,
+        @V("theme") String theme,
+        @V("places") String places,
+        @V("otherDays") String otherDays,
+        @V("budgetLevel") String budgetLevel,
+        @V("numberOfPeople") Integer numberOfPeople,
+        @V("problems") String problems);
   }
 
   @Override
@@ -101,33 +267,39 @@ public class AiServiceImpl implements AiService {
   public CompletableFuture<TidbitsAndSafetyDto> getTidbitsAndSafety(
       MultiModalAiRequestDto requestDto) {
 
+    // Nothing to analyze, done rather than failed so the job is not retried
+    if (!hasContent(requestDto)) {
+      return CompletableFuture.completedFuture(new TidbitsAndSafetyDto(null, FinishReason.STOP));
+    }
+
     Map<String, RestUtil.Media> mediaBytes = downloadMedia(requestDto.getMediaUrls());
 
+    GeminiModelConfig config =
+        GeminiModelConfig.builder().safetySettings(STRICT_SAFETY_SETTINGS).temperature(0.3).build();
+
     ChatLanguageModel model;
     try {
-      model =
-          geminiModelUtil.geminiModelBuilder(
-              geminiApiKey,
-              geminiModelName,
-              builder ->
-                  builder
-                      .safetySettings(
-                          Map.of(
-                              HARM_CATEGORY_HARASSMENT, BLOCK_LOW_AND_ABOVE,
-                              HARM_CATEGORY_DANGEROUS_CONTENT, BLOCK_MEDIUM_AND_ABOVE,
-                              HARM_CATEGORY_SEXUALLY_EXPLICIT, BLOCK_LOW_AND_ABOVE,
-                              HARM_CATEGORY_HATE_SPEECH, BLOCK_LOW_AND_ABOVE,
-                              HARM_CATEGORY_CIVIC_INTEGRITY, BLOCK_MEDIUM_AND_ABOVE))
-                      .temperature(0.3));
+      model = geminiModelRegistry.chatModel(geminiApiKey, geminiModelName, config);
 
     } catch (Exception e) {
       log.error("Gemini model build failed : {}", e.getMessage(), e);
       return CompletableFuture.completedFuture(new TidbitsAndSafetyDto(null, FinishReason.OTHER));
     }
 
-    ChatResponse chatResponse =
-        generateResponse(
-            model, AiSystemInstruction.FOR_TIDBITS_GENERATION, mediaBytes, requestDto.getText());
+    ChatResponse chatResponse;
+    try {
+      chatResponse =
+          generateResponse(
+              model,
+              config,
+              AiSystemInstruction.FOR_TIDBITS_GENERATION,
+              mediaBytes,
+              requestDto.getText(),
+              Feature.TIDBITS);
+
+    } catch (AiServiceUnavailableException e) {
+      chatResponse = null;
+    }
 
     if (chatResponse == null) {
 
@@ -139,27 +311,35 @@ public class AiServiceImpl implements AiService {
   }
 
   @Override
-  @Async("asyncExecutor")
-  public void getProofreading(UniModalAiRequestDto requestDto, Sinks.Many<String> sink) {
+  public Flux<String> getProofreading(UniModalAiRequestDto requestDto) {
 
     StreamingChatLanguageModel model;
     try {
       model =
-          geminiModelUtil.geminiStreamingModelBuilder(
+          geminiModelRegistry.streamingChatModel(
               geminiApiKey, geminiModelName, builder -> builder.temperature(0.5));
 
     } catch (Exception e) {
       log.error("Gemini model build failed:{}", e.getMessage(), e);
 
-      sink.emitError(
-          new AiGenerationFailedException(ResponseMessage.AI_MODEL_BUILD_FAILED),
-          Sinks.EmitFailureHandler.FAIL_FAST);
-
-      return;
+      return Flux.error(new AiGenerationFailedException(ResponseMessage.AI_MODEL_BUILD_FAILED));
     }
 
-    generateStreamingResponse(
-        model, AiSystemInstruction.FOR_PROOFREADING, null, requestDto.getText(), sink);
+    return generateStreamingResponse(
+            model,
+            AiSystemInstruction.FOR_PROOFREADING,
+            null,
+            requestDto.getText(),
+            Feature.PROOFREAD,
+            "proofreading")
+        // Fair: a window closing without demand waits for it instead of signalling an overflow
+        .bufferTimeout(streamCoalesceMaxTokens, streamCoalesceWindow, true)
+        .map(tokens -> String.join("", tokens))
+        // A slow client fails the stream instead of growing the buffer without limit, frames hold
+        // up to coalesce-max-tokens tokens each
+        .onBackpressureBuffer(
+            Math.max(1, streamMaxBufferedTokens / streamCoalesceMaxTokens),
+            BufferOverflowStrategy.ERROR);
   }
 
   @Override
@@ -167,25 +347,58 @@ public class AiServiceImpl implements AiService {
   public CompletableFuture<Void> addContentToVectorDb(
       MultiModalAiRequestDto requestDto, UUID contentId) {
 
-    try {
-      ragUtil.embedAndStore(
-          nomicApiKey,
-          Document.from(requestDto.getText()),
-          contentId.toString(),
-          "search_document",
-          "texts");
+    List<String> imageUrls =
+        requestDto.getMediaUrls() == null ? List.of() : requestDto.getMediaUrls();
 
-    } catch (Exception e) {
-      log.error("Text embeddings generation failed: {}", e.getMessage(), e);
+    CompletableFuture<Void> textIngestion =
+        syncText(
+            contentId,
+            PgVectorStoreRegistry.TEXTS_TABLE,
+            RagUtil.contentHash(requestDto.getText()),
+            requestDto::getText);
+
+    syncImageEmbeddings(imageUrls, contentId, true);
+
+    // Gemini only describes the images again when they changed since the last run
+    CompletableFuture<Void> descriptionIngestion =
+        syncText(
+            contentId,
+            PgVectorStoreRegistry.IMAGE_DESCRIPTIONS_TABLE,
+            mediaHash(imageUrls),
+            () -> describeMedia(imageUrls));
+
+    return CompletableFuture.allOf(textIngestion, descriptionIngestion);
+  }
+
+  @Override
+  @Async("asyncExecutor")
+  public CompletableFuture<PostEnrichmentDto> getPostEnrichment(
+      MultiModalAiRequestDto requestDto, UUID contentId) {
+
+    // Nothing to enrich or search, done rather than failed so the job is not retried
+    if (!hasContent(requestDto)) {
+      try {
+        ragUtil.removeContent(contentId.toString());
+      } catch (Exception e) {
+        return CompletableFuture.failedFuture(e);
+      }
+      return CompletableFuture.completedFuture(
+          new PostEnrichmentDto(null, null, new ArrayList<>(), FinishReason.STOP));
     }
 
+    // Downloaded once, shared by the combined prompt and the image embeddings
     Map<String, RestUtil.Media> mediaBytes = downloadMedia(requestDto.getMediaUrls());
 
+    GeminiModelConfig config =
+        GeminiModelConfig.builder()
+            .safetySettings(STRICT_SAFETY_SETTINGS)
+            .temperature(0.3)
+            .responseFormat(ResponseFormat.JSON)
+            .build();
+
     ChatLanguageModel model;
     try {
-      model =
-          geminiModelUtil.geminiModelBuilder(
-              geminiApiKey, geminiModelName, builder -> builder.temperature(0.1));
+      model = geminiModelRegistry.chatModel(geminiApiKey, geminiModelName, config);
 
     } catch (Exception e) {
       log.error("Gemini model build failed: {}", e.getMessage(), e);
@@ -194,40 +407,99 @@ public class AiServiceImpl implements AiService {
           new AiGenerationFailedException(ResponseMessage.AI_MODEL_BUILD_FAILED));
     }
 
+    ChatResponse chatResponse;
     try {
-      List<EmbeddingResponse> imageEmbeddings =
-          nomicImageEmbeddingUtil.embedImageUrls(nomicApiKey, requestDto.getMediaUrls());
+      chatResponse =
+          generateResponse(
+              model,
+              config,
+              AiSystemInstruction.FOR_POST_ENRICHMENT,
+              mediaBytes,
+              requestDto.getText(),
+              Feature.POST_ENRICHMENT);
+
+    } catch (AiServiceUnavailableException e) {
+      // The job is retried with backoff instead of storing an empty enrichment
+      return CompletableFuture.failedFuture(e);
+    }
 
-      ragUtil.store(imageEmbeddings, 768, contentId.toString(), "image_embeddings");
+    PostEnrichmentDto enrichment;
+    if (chatResponse == null) {
+      enrichment = new PostEnrichmentDto(null, null, new ArrayList<>(), FinishReason.OTHER);
 
-    } catch (InterruptedException e) {
-      log.error("Image embeddings generation interrupted: {}", e.getMessage(), e);
-      Thread.currentThread().interrupt();
+    } else if (chatResponse.finishReason() == FinishReason.CONTENT_FILTER) {
+      enrichment =
+          new PostEnrichmentDto(null, false, new ArrayList<>(), FinishReason.CONTENT_FILTER);
 
-    } catch (Exception e) {
-      log.error("Image embeddings generation failed: {}", e.getMessage(), e);
+    } else {
+      try {
+        enrichment =
+            objectMapper.readValue(chatResponse.aiMessage().text(), PostEnrichmentDto.class);
+        enrichment.setFinishReason(chatResponse.finishReason());
+
+      } catch (Exception e) {
+        log.error("Post enrichment response parsing failed: {}", e.getMessage(), e);
+        return CompletableFuture.failedFuture(
+            new AiGenerationFailedException(ResponseMessage.TIDBITS_GENERATION_FAILED));
+      }
     }
 
-    ChatResponse chatResponse =
-        generateResponse(model, AiSystemInstruction.FOR_IMAGE_DESCRIPTION, mediaBytes, null);
-
-    if (chatResponse == null) {
-      return CompletableFuture.completedFuture(null);
+    if (enrichment.getFinishReason() == FinishReason.OTHER) {
+      return CompletableFuture.completedFuture(enrichment);
     }
 
-    try {
-      ragUtil.embedAndStore(
-          nomicApiKey,
-          Document.from(chatResponse.aiMessage().text()),
-          contentId.toString(),
-          "search_document",
-          "image_descriptions");
-
-    } catch (Exception e) {
-      log.error("Text embeddings generation failed: {}", e.getMessage(), e);
+    // Unsafe posts are hidden, searches must not find them through vectors stored earlier
+    if (enrichment.getFinishReason() == FinishReason.CONTENT_FILTER
+        || Boolean.FALSE.equals(enrichment.getIsSafe())) {
+      try {
+        ragUtil.removeContent(contentId.toString());
+      } catch (Exception e) {
+        return CompletableFuture.failedFuture(e);
+      }
+      return CompletableFuture.completedFuture(enrichment);
     }
 
-    return CompletableFuture.completedFuture(null);
+    // Media that failed to download is kept as it is stored, it may only have failed transiently
+    boolean allDownloaded =
+        requestDto.getMediaUrls() == null
+            || requestDto.getMediaUrls().stream()
+                .filter(url -> url != null && !url.isBlank())
+                .allMatch(mediaBytes::containsKey);
+
+    List<String> imageUrls =
+        mediaBytes.entrySet().stream()
+            .filter(entry -> entry.getValue().mimeType().startsWith("image/"))
+            .map(Map.Entry::getKey)
+            .toList();
+    syncImageEmbeddings(imageUrls, contentId, allDownloaded);
+
+    String descriptions =
+        enrichment.getMediaDescriptions() == null
+            ? null
+            : enrichment.getMediaDescriptions().stream()
+                .filter(description -> description != null && !"null".equals(description))
+                .collect(Collectors.joining("\n\n"));
+
+    CompletableFuture<Void> textIngestion =
+        syncText(
+            contentId,
+            PgVectorStoreRegistry.TEXTS_TABLE,
+            RagUtil.contentHash(requestDto.getText()),
+            requestDto::getText);
+
+    // Descriptions are regenerated on every run, they are only re-embedded when the media changed.
+    // Descriptions of a partial download would replace those of the whole media.
+    CompletableFuture<Void> descriptionIngestion =
+        allDownloaded
+            ? syncText(
+                contentId,
+                PgVectorStoreRegistry.IMAGE_DESCRIPTIONS_TABLE,
+                mediaHash(requestDto.getMediaUrls()),
+                () -> descriptions)
+            : CompletableFuture.completedFuture(null);
+
+    PostEnrichmentDto result = enrichment;
+    return CompletableFuture.allOf(textIngestion, descriptionIngestion).thenApply(v -> result);
   }
 
   @Override
@@ -235,80 +507,155 @@ public class AiServiceImpl implements AiService {
   public CompletableFuture<PostIdListRagSearchDto> getPostIdsUsingRag(
       MultiModalRagRequestDto requestDto) {
 
-    ChatLanguageModel model;
-    try {
-      model =
-          geminiModelUtil.geminiModelBuilder(
-              geminiApiKey, geminiModelName, builder -> builder.temperature(0.1));
+    boolean hasQuery = requestDto.getQuery() != null && !requestDto.getQuery().isBlank();
+    boolean hasImage = requestDto.getImageUrl() != null && !requestDto.getImageUrl().isBlank();
 
-    } catch (Exception e) {
-      log.error("Gemini model build failed: {}", e.getMessage(), e);
+    if (!hasQuery && !hasImage) {
+      log.info("Query and image are null or empty");
+      return CompletableFuture.completedFuture(new PostIdListRagSearchDto());
+    }
 
+    if (hasImage && !restUtil.isValidUrl(requestDto.getImageUrl())) {
       return CompletableFuture.failedFuture(
-          new AiGenerationFailedException(ResponseMessage.AI_MODEL_BUILD_FAILED));
+          new IllegalArgumentException(ResponseMessage.INVALID_IMAGE_URL));
     }
 
-    Map<String, RestUtil.Media> mediaBytes = null;
-    if (requestDto.getImageUrl() != null && !requestDto.getImageUrl().isEmpty()) {
-      mediaBytes = downloadMedia(List.of(requestDto.getImageUrl()));
+    Embedding queryEmbedding = null;
+    if (hasQuery) {
+      try {
+        queryEmbedding = embedQuery(requestDto.getQuery());
+
+      } catch (AiServiceUnavailableException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+
+      if (queryEmbedding == null) {
+        return CompletableFuture.failedFuture(
+            new AiGenerationFailedException(ResponseMessage.RAG_SEARCH_FAILED));
+      }
     }
 
-    ChatResponse chatResponse =
-        generateResponse(model, AiSystemInstruction.FOR_IMAGE_DESCRIPTION, mediaBytes, null);
+    AnnTuningDataSource.AnnOptions annOptions =
+        new AnnTuningDataSource.AnnOptions(requestDto.getEfSearch(), requestDto.getProbes());
 
-    String query;
-    if (chatResponse != null && requestDto.getQuery() != null && !requestDto.getQuery().isEmpty()) {
+    // Fast, re-ranked and differently tuned results differ, they are cached separately
+    String cacheScope =
+        (requestDto.isRerank() ? "rerank|" : "fast|") + annOptions + "|" + requestDto.getImageUrl();
 
-      query =
-          "Query: "
-              + requestDto.getQuery()
-              + "Query Image Description: "
-              + chatResponse.aiMessage().text();
+    // Read first, a write invalidating the cache during the search keeps its result out of it
+    long cacheGeneration = ragSemanticCache.generation();
 
-    } else if (requestDto.getQuery() != null && !requestDto.getQuery().isEmpty()) {
-      query = "Query: " + requestDto.getQuery();
-    } else {
-      log.info("Query is null or empty");
-      return CompletableFuture.completedFuture(new PostIdListRagSearchDto());
+    // The cache is keyed by the query embedding, image only searches are not cached
+    if (hasQuery) {
+      Optional<PostIdListRagSearchDto> cached = ragSemanticCache.get(queryEmbedding, cacheScope);
+      if (cached.isPresent()) {
+        return CompletableFuture.completedFuture(cached.get());
+      }
     }
 
-    RetrievalAugmentor augmentor =
-        ragUtil.buildAugmentor(nomicApiKey, "search_query", "texts", "image_descriptions");
+    List<RagUtil.SearchTarget> targets = new ArrayList<>();
+    if (hasQuery) {
+      targets.add(
+          new RagUtil.SearchTarget(queryEmbedding, PgVectorStoreRegistry.TEXTS_TABLE, ragMinScore));
+      targets.add(
+          new RagUtil.SearchTarget(
+              queryEmbedding, PgVectorStoreRegistry.IMAGE_DESCRIPTIONS_TABLE, ragMinScore));
+      targets.add(
+          new RagUtil.SearchTarget(
+              queryEmbedding, PgVectorStoreRegistry.IMAGE_EMBEDDINGS_TABLE, ragImageMinScore));
+    }
+
+    // Image to image similarity, the image ranking is fused with the text rankings
+    if (hasImage) {
+      Embedding imageEmbedding = embedQueryImage(requestDto.getImageUrl());
+      if (imageEmbedding != null) {
+        targets.add(
+            new RagUtil.SearchTarget(
+                imageEmbedding,
+                PgVectorStoreRegistry.IMAGE_EMBEDDINGS_TABLE,
+                ragImageQueryMinScore));
+
+      } else if (!hasQuery) {
+        return CompletableFuture.failedFuture(
+            new AiGenerationFailedException(ResponseMessage.RAG_SEARCH_FAILED));
+      }
+    }
 
+    List<RagUtil.RankedContent> ranked;
     try {
-      model =
-          geminiModelUtil.geminiModelBuilder(
-              geminiApiKey,
-              geminiModelName,
-              builder -> builder.temperature(0.4).responseFormat(ResponseFormat.JSON));
+      ranked = ragUtil.searchContentIds(targets, annOptions);
 
     } catch (Exception e) {
-      log.error("Gemini model build failed : {}", e.getMessage(), e);
-
+      log.error("Vector search failed: {}", e.getMessage(), e);
       return CompletableFuture.failedFuture(
-          new AiGenerationFailedException(ResponseMessage.AI_MODEL_BUILD_FAILED));
+          new AiGenerationFailedException(ResponseMessage.RAG_SEARCH_FAILED));
     }
 
-    RagAssistant ragAssistant =
-        AiServices.builder(RagAssistant.class)
-            .chatLanguageModel(model)
-            .retrievalAugmentor(augmentor)
-            .build();
+    // Re-ranking judges the candidates against the query text
+    if (hasQuery && requestDto.isRerank() && !ranked.isEmpty()) {
+      ranked = rerank(requestDto.getQuery(), ranked);
+    }
+
+    List<UUID> postIds = new ArrayList<>();
+    for (RagUtil.RankedContent content : ranked) {
+      try {
+        postIds.add(UUID.fromString(content.contentId()));
+      } catch (IllegalArgumentException e) {
+        log.warn("Skipping malformed content id {}", content.contentId());
+      }
+    }
 
-    PostIdListRagSearchDto postIdListRagSearchDto = ragAssistant.answer(query);
+    PostIdListRagSearchDto postIdListRagSearchDto = new PostIdListRagSearchDto(postIds);
+    if (hasQuery) {
+      ragSemanticCache.put(
+          requestDto.getQuery(),
+          queryEmbedding,
+          cacheScope,
+          postIdListRagSearchDto,
+          cacheGeneration);
+    }
 
     return CompletableFuture.completedFuture(postIdListRagSearchDto);
   }
 
+  @Override
+  @Async("asyncExecutor")
+  public CompletableFuture<Embedding> getQueryEmbedding(String query) {
+
+    Embedding embedding;
+    try {
+      embedding = embedQuery(query);
+
+    } catch (AiServiceUnavailableException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    if (embedding == null) {
+      return CompletableFuture.failedFuture(
+          new AiGenerationFailedException(ResponseMessage.RAG_SEARCH_FAILED));
+    }
+
+    return CompletableFuture.completedFuture(embedding);
+  }
+
   @Override
   @Async("asyncExecutor")
   public CompletableFuture<AiPoweredItineraryResponseDto> getAiPoweredItinerary(
       AiPoweredItineraryCreateRequestDto requestDto) {
 
+    if (!requestDto.isBypassCache()) {
+      Optional<AiPoweredItineraryDto> cached = itineraryTemplateCache.get(requestDto);
+      if (cached.isPresent()) {
+        return CompletableFuture.completedFuture(
+            new AiPoweredItineraryResponseDto(
+                200, true, ResponseMessage.ITINERARY_GENERATION_SUCCESS, cached.get()));
+      }
+    }
+
     ChatLanguageModel model;
     try {
       model =
-          geminiModelUtil.geminiModelBuilder(
+          geminiModelRegistry.chatModel(
               geminiApiKey,
               geminiModelName,
               builder -> builder.responseFormat(ResponseFormat.JSON));
@@ -321,24 +668,47 @@ public class AiServiceImpl implements AiService {
     }
 
     try {
-      ItineraryAiService itineraryAiService =
-          AiServices.builder(ItineraryAiService.class).chatLanguageModel(model).build();
-
-      ItineraryPojo itineraryPojo =
-          itineraryAiService.generateItinerary(
-              requestDto.getLocation(),
-              requestDto.getStartDate(),
-              requestDto.getNumberOfDays(),
-              requestDto.getBudgetLevel(),
-              requestDto.getNumberOfPeople());
-
-      AiPoweredItineraryDto aiPoweredItineraryDto =
-          modelMapper.map(itineraryPojo, AiPoweredItineraryDto.class);
+      AiPoweredItineraryDto aiPoweredItineraryDto;
+
+      if (itineraryFanOut && requestDto.getNumberOfDays() >= itineraryFanOutMinDays) {
+        aiPoweredItineraryDto = generateItineraryByDay(model, requestDto);
+
+      } else {
+        ItineraryAiService itineraryAiService =
+            AiServices.builder(ItineraryAiService.class).chatLanguageModel(model).build();
+
+        ItineraryPojo itineraryPojo =
+            aiCallScheduler
+                .call(
+                    Endpoint.GEMINI,
+                    Feature.ITINERARY,
+                    () ->
+                        itineraryAiService.generateItinerary(
+                            requestDto.getLocation(),
+                            requestDto.getStartDate(),
+                            requestDto.getNumberOfDays(),
+                            requestDto.getBudgetLevel(),
+                            requestDto.getNumberOfPeople()))
+                .content();
+
+        aiPoweredItineraryDto = modelMapper.map(itineraryPojo, AiPoweredItineraryDto.class);
+      }
+
+      itineraryTemplateCache.put(requestDto, aiPoweredItineraryDto);
 
       return CompletableFuture.completedFuture(
           new AiPoweredItineraryResponseDto(
               200, true, ResponseMessage.ITINERARY_GENERATION_SUCCESS, aiPoweredItineraryDto));
 
+    } catch (AiServiceUnavailableException e) {
+      return CompletableFuture.failedFuture(e);
+
+    } catch (InterruptedException e) {
+      log.error("AI powered itinerary generation interrupted: {}", e.getMessage(), e);
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(
+          new AiGenerationFailedException(ResponseMessage.ITINERARY_GENERATION_FAILED));
+
     } catch (Exception e) {
       log.error("AI powered itinerary generation failed: {}", e.getMessage(), e);
       return CompletableFuture.failedFuture(
@@ -346,24 +716,691 @@ public class AiServiceImpl implements AiService {
     }
   }
 
+  /**
+   * Generates an itinerary as a skeleton of per-day themes and places followed by one request per
+   * day, run concurrently. Days that fail to parse or break the itinerary checks are generated
+   * again with the problem in the prompt, the others are kept.
+   */
+  private AiPoweredItineraryDto generateItineraryByDay(
+      ChatLanguageModel model, AiPoweredItineraryCreateRequestDto requestDto)
+      throws InterruptedException {
+
+    DayPlanAiService dayPlanAiService =
+        AiServices.builder(DayPlanAiService.class).chatLanguageModel(model).build();
+
+    ItinerarySkeletonPojo skeleton =
+        aiCallScheduler
+            .call(
+                Endpoint.GEMINI,
+                Feature.ITINERARY,
+                () ->
+                    dayPlanAiService.generateSkeleton(
+                        requestDto.getLocation(),
+                        requestDto.getStartDate(),
+                        requestDto.getNumberOfDays(),
+                        requestDto.getBudgetLevel(),
+                        requestDto.getNumberOfPeople()))
+            .content();
+
+    // Dates follow the request, whatever the skeleton says
+    List<DaySkeletonPojo> skeletonDays = Objects.requireNonNullElse(skeleton.getDays(), List.of());
+    Map<LocalDate, DaySkeletonPojo> days = new TreeMap<>();
+    for (int i = 0; i < requestDto.getNumberOfDays(); i++) {
+      DaySkeletonPojo day = i < skeletonDays.size() ? skeletonDays.get(i) : new DaySkeletonPojo();
+      day.setDate(requestDto.getStartDate().plusDays(i));
+      day.setArea(Objects.requireNonNullElse(day.getArea(), requestDto.getLocation()));
+      day.setTheme(Objects.requireNonNullElse(day.getTheme(), "free exploration"));
+      day.setPlaces(Objects.requireNonNullElse(day.getPlaces(), List.of()));
+      days.put(day.getDate(), day);
+    }
+
+    Map<LocalDate, DayPlanPojo> dayPlans = new TreeMap<>();
+    Map<LocalDate, String> pending = new TreeMap<>();
+    days.keySet().forEach(date -> pending.put(date, NO_PROBLEMS));
+
+    for (int attempt = 0; ; attempt++) {
+
+      Map<LocalDate, String> problems =
+          generateDayPlans(dayPlanAiService, requestDto, days, pending, dayPlans);
+
+      AiPoweredItineraryDto itineraryDto = mergeItinerary(skeleton, requestDto, dayPlans);
+
+      problems.putAll(itineraryUtil.findInvalidDayPlans(itineraryDto));
+      if (problems.isEmpty()) {
+        return itineraryDto;
+      }
+
+      if (attempt >= itineraryFanOutMaxRetries) {
+        throw new AiGenerationFailedException(ResponseMessage.ITINERARY_GENERATION_FAILED);
+      }
+
+      log.warn("Generating {} day plans again: {}", problems.size(), problems);
+      problems.keySet().forEach(dayPlans::remove);
+      pending.clear();
+      pending.putAll(problems);
+    }
+  }
+
+  /**
+   * Generates the pending day plans with at most the configured number of requests in flight
+   *
+   * @return The problem of each day that could not be generated, keyed by its date
+   */
+  private Map<LocalDate, String> generateDayPlans(
+      DayPlanAiService dayPlanAiService,
+      AiPoweredItineraryCreateRequestDto requestDto,
+      Map<LocalDate, DaySkeletonPojo> days,
+      Map<LocalDate, String> pending,
+      Map<LocalDate, DayPlanPojo> dayPlans)
+      throws InterruptedException {
+
+    Semaphore permits = new Semaphore(itineraryFanOutParallelism);
+    Map<LocalDate, Future<DayPlanPojo>> futures = new TreeMap<>();
+
+    boolean finished = false;
+    try {
+      for (Map.Entry<LocalDate, String> entry : pending.entrySet()) {
+
+        LocalDate date = entry.getKey();
+        DaySkeletonPojo day = days.get(date);
+        String otherDays =
+            orNone(
+                days.values().stream()
+                    .filter(other -> !other.getDate().equals(date))
+                    .map(
+                        other ->
+                            other.getDate() + " " + other.getTheme() + " in " + other.getArea())
+                    .collect(Collectors.joining("; ")));
+
+        permits.acquire();
+        // Submitted rather than supplyAsync, cancelling its future interrupts a running request
+        Future<DayPlanPojo> future =
+            dayPlanExecutor.submit(
+                () -> {
+                  try {
+                    return aiCallScheduler
+                        .call(
+                            Endpoint.GEMINI,
+                            Feature.ITINERARY,
+                            () ->
+                                dayPlanAiService.generateDayPlan(
+                                    requestDto.getLocation(),
+                                    (int) ChronoUnit.DAYS.between(requestDto.getStartDate(), date)
+                                        + 1,
+                                    requestDto.getNumberOfDays(),
+                                    date,
+                                    day.getArea(),
+                                    day.getTheme(),
+                                    orNone(String.join(", ", day.getPlaces())),
+                                    otherDays,
+                                    requestDto.getBudgetLevel(),
+                                    requestDto.getNumberOfPeople(),
+                                    entry.getValue()))
+                        .content();
+                  } finally {
+                    permits.release();
+                  }
+                });
+
+        futures.put(date, future);
+      }
+
+      Map<LocalDate, String> problems = new TreeMap<>();
+      for (Map.Entry<LocalDate, Future<DayPlanPojo>> entry : futures.entrySet()) {
+        try {
+          DayPlanPojo dayPlan = entry.getValue().get();
+          if (dayPlan.getActivities() == null || dayPlan.getActivities().isEmpty()) {
+            problems.put(entry.getKey(), "the day plan had no activities.");
+            continue;
+          }
+          dayPlan.setDate(entry.getKey());
+          dayPlans.put(entry.getKey(), dayPlan);
+
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof AiServiceUnavailableException unavailable) {
+            throw unavailable;
+          }
+          log.warn(
+              "Day plan generation for {} failed: {}", entry.getKey(), e.getCause().getMessage());
+          problems.put(entry.getKey(), "the answer was not a valid day plan JSON object.");
+        }
+      }
+
+      finished = true;
+      return problems;
+
+    } finally {
+      if (!finished) {
+        // Interrupted or failed midway, requests not sent yet are dropped and running ones aborted
+        futures.values().forEach(future -> future.cancel(true));
+      }
+    }
+  }
+
+  private static String orNone(String text) {
+    return text.isBlank() ? "none" : text;
+  }
+
+  private AiPoweredItineraryDto mergeItinerary(
+      ItinerarySkeletonPojo skeleton,
+      AiPoweredItineraryCreateRequestDto requestDto,
+      Map<LocalDate, DayPlanPojo> dayPlans) {
+
+    ItineraryPojo itineraryPojo = new ItineraryPojo();
+    itineraryPojo.setLocations(skeleton.getLocations());
+    itineraryPojo.setTitle(skeleton.getTitle());
+    itineraryPojo.setDescription(skeleton.getDescription());
+    itineraryPojo.setStartDate(requestDto.getStartDate());
+    itineraryPojo.setEndDate(requestDto.getStartDate().plusDays(requestDto.getNumberOfDays() - 1L));
+    itineraryPojo.setDayPlans(new ArrayList<>(dayPlans.values()));
+    itineraryPojo.setNotes(skeleton.getNotes());
+
+    return modelMapper.map(itineraryPojo, AiPoweredItineraryDto.class);
+  }
+
+  @Override
+  public Flux<ServerSentEvent<Object>> getAiPoweredItineraryStream(
+      AiPoweredItineraryCreateRequestDto requestDto) {
+
+    return Flux.<ServerSentEvent<Object>>create(
+            sink -> {
+              StreamingChatLanguageModel model;
+              try {
+                model =
+                    geminiModelRegistry.streamingChatModel(
+                        geminiApiKey,
+                        geminiModelName,
+                        builder -> builder.responseFormat(ITINERARY_RESPONSE_FORMAT));
+
+              } catch (Exception e) {
+                log.error("Gemini model build failed :{}", e.getMessage(), e);
+                emitItineraryError(sink, ResponseMessage.AI_MODEL_BUILD_FAILED);
+                return;
+              }
+
+              String prompt =
+                  PromptTemplate.from(ITINERARY_USER_PROMPT)
+                      .apply(
+                          Map.of(
+                              "location", requestDto.getLocation(),
+                              "startDate", requestDto.getStartDate(),
+                              "numberOfDays", requestDto.getNumberOfDays(),
+                              "budgetLevel", requestDto.getBudgetLevel(),
+                              "numberOfPeople", requestDto.getNumberOfPeople()))
+                      .text();
+
+              AiCallScheduler.Permit permit;
+              try {
+                permit = aiCallScheduler.acquire(Endpoint.GEMINI, Feature.ITINERARY);
+
+              } catch (AiServiceUnavailableException e) {
+                emitItineraryError(sink, 503, e.getMessage());
+                return;
+              }
+
+              AtomicBoolean cancelled = new AtomicBoolean();
+              sink.onCancel(
+                  () -> {
+                    log.debug("Client cancelled the itinerary stream");
+                    cancelled.set(true);
+                    permit.release(null);
+                  });
+
+              try {
+                streamItinerary(model, prompt, permit, cancelled, sink);
+
+              } catch (Exception e) {
+                permit.release(e);
+                log.error("AI powered itinerary streaming failed: {}", e.getMessage(), e);
+                emitItineraryError(sink, ResponseMessage.ITINERARY_GENERATION_FAILED);
+              }
+            })
+        // A client that stops reading fails the stream instead of growing the buffer
+        .onBackpressureBuffer(ITINERARY_STREAM_MAX_EVENTS, BufferOverflowStrategy.ERROR)
+        // Waiting for a permit blocks, and so may sending the request
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private void streamItinerary(
+      StreamingChatLanguageModel model,
+      String prompt,
+      AiCallScheduler.Permit permit,
+      AtomicBoolean cancelled,
+      FluxSink<ServerSentEvent<Object>> sink) {
+
+    // Each day is sent as soon as its closing brace arrives
+    JsonArrayStreamParser<DayPlanPojo> dayPlanParser =
+        new JsonArrayStreamParser<>(
+            objectMapper,
+            "dayPlans",
+            DayPlanPojo.class,
+            dayPlan ->
+                sink.next(
+                    ServerSentEvent.<Object>builder(
+                            modelMapper.map(dayPlan, AiPoweredDayPlanDto.class))
+                        .event("day-plan")
+                        .build()));
+
+    AiStreamMetrics.Recorder metrics = aiStreamMetrics.start("itinerary");
+
+    model.chat(
+        List.of(
+            new SystemMessage(AiSystemInstruction.FOR_ITINERARY_GENERATION),
+            new UserMessage(prompt)),
+        new StreamingChatResponseHandler() {
+
+          private boolean parsing = true;
+
+          @Override
+          public void onPartialResponse(String partialResponse) {
+
+            // Throwing stops the client from reading the rest of the response
+            if (cancelled.get()) {
+              throw new CancellationException("Stream cancelled by the client");
+            }
+            metrics.token();
+            if (!parsing) {
+              return;
+            }
+            try {
+              dayPlanParser.feed(partialResponse);
+            } catch (Exception e) {
+              // The complete response is still parsed and validated at the end
+              log.warn("Incremental itinerary parsing stopped: {}", e.getMessage());
+              parsing = false;
+            }
+          }
+
+          @Override
+          public void onCompleteResponse(ChatResponse completeResponse) {
+            permit.release(completeResponse, null);
+            metrics.complete(
+                completeResponse.tokenUsage() == null
+                    ? null
+                    : completeResponse.tokenUsage().outputTokenCount());
+            completeItineraryStream(completeResponse.aiMessage().text(), sink);
+          }
+
+          @Override
+          public void onError(Throwable error) {
+
+            if (cancelled.get()) {
+              return;
+            }
+            permit.release(error);
+            log.error("AI powered itinerary streaming failed: {}", error.getMessage(), error);
+            emitItineraryError(sink, ResponseMessage.ITINERARY_GENERATION_FAILED);
+          }
+        });
+  }
+
+  private void completeItineraryStream(String json, FluxSink<ServerSentEvent<Object>> sink) {
+
+    AiPoweredItineraryDto aiPoweredItineraryDto;
+    try {
+      ItineraryPojo itineraryPojo = objectMapper.readValue(json, ItineraryPojo.class);
+      aiPoweredItineraryDto = modelMapper.map(itineraryPojo, AiPoweredItineraryDto.class);
+
+    } catch (Exception e) {
+      log.error("AI powered itinerary parsing failed: {}", e.getMessage(), e);
+      emitItineraryError(sink, ResponseMessage.ITINERARY_GENERATION_FAILED);
+      return;
+    }
+
+    Set<ConstraintViolation<AiPoweredItineraryDto>> violations =
+        validator.validate(aiPoweredItineraryDto);
+    if (!violations.isEmpty()) {
+      log.error(
+          "AI powered itinerary is invalid: {}",
+          violations.stream()
+              .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+              .collect(Collectors.joining(", ")));
+      emitItineraryError(sink, ResponseMessage.ITINERARY_GENERATION_FAILED);
+      return;
+    }
+
+    sink.next(
+        ServerSentEvent.<Object>builder(
+                new AiPoweredItineraryResponseDto(
+                    200,
+                    true,
+                    ResponseMessage.ITINERARY_GENERATION_SUCCESS,
+                    aiPoweredItineraryDto))
+            .event("itinerary")
+            .build());
+    sink.complete();
+  }
+
+  private static void emitItineraryError(FluxSink<ServerSentEvent<Object>> sink, String message) {
+    emitItineraryError(sink, 500, message);
+  }
+
+  private static void emitItineraryError(
+      FluxSink<ServerSentEvent<Object>> sink, int status, String message) {
+
+    // Sent as an event, an error signal would only abort the response mid-stream
+    sink.next(
+        ServerSentEvent.<Object>builder(new BaseResponseDto(status, false, message))
+            .event("error")
+            .build());
+    sink.complete();
+  }
+
+  private Embedding embedQuery(String query) {
+
+    try {
+      return ragUtil.getEmbeddingModel(nomicApiKey, "search_query").embed(query).content();
+
+    } catch (AiServiceUnavailableException e) {
+      throw e;
+
+    } catch (Exception e) {
+      log.error("Query embedding failed: {}", e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private Embedding embedQueryImage(String imageUrl) {
+
+    if (imageUrl == null || imageUrl.isEmpty()) {
+      return null;
+    }
+
+    // The embedding API fetches the URL itself, only trusted hosts are passed on
+    if (!restUtil.isValidUrl(imageUrl)) {
+      throw new IllegalArgumentException(ResponseMessage.INVALID_IMAGE_URL);
+    }
+
+    try {
+      List<EmbeddingResponse> embeddings =
+          aiCallScheduler.call(
+              Endpoint.NOMIC_VISION,
+              Feature.RAG,
+              () -> nomicImageEmbeddingUtil.embedImageUrls(nomicApiKey, List.of(imageUrl)));
+
+      return embeddings.isEmpty() ? null : new Embedding(embeddings.getFirst().getEmbedding());
+
+    } catch (InterruptedException e) {
+      log.error("Query image embedding interrupted: {}", e.getMessage(), e);
+      Thread.currentThread().interrupt();
+      return null;
+
+    } catch (Exception e) {
+      log.error("Query image embedding failed: {}", e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Lets Gemini drop irrelevant candidates of the vector search while keeping the fused order.
+   * Falls back to the unfiltered ranking when the model fails.
+   */
+  private List<RagUtil.RankedContent> rerank(String query, List<RagUtil.RankedContent> ranked) {
+
+    List<RagUtil.RankedContent> candidates = ranked.stream().limit(rerankCandidates).toList();
+
+    StringBuilder contents = new StringBuilder();
+    for (RagUtil.RankedContent candidate : candidates) {
+      contents.append("contentId: ").append(candidate.contentId()).append('\n');
+      candidate.snippets().forEach(snippet -> contents.append(snippet).append('\n'));
+      contents.append('\n');
+    }
+
+    String prompt =
+        query + "\n\nreturn the relevant contentIds using the following information:\n" + contents;
+
+    try {
+      ChatLanguageModel model =
+          geminiModelRegistry.chatModel(
+              geminiApiKey,
+              geminiModelName,
+              builder -> builder.temperature(0.4).responseFormat(ResponseFormat.JSON));
+
+      ChatResponse chatResponse =
+          aiCallScheduler.call(
+              Endpoint.GEMINI,
+              Feature.RAG,
+              () ->
+                  model.chat(
+                      SystemMessage.from(AiSystemInstruction.FOR_POST_IDS_RETRIEVAL),
+                      UserMessage.from(prompt)));
+
+      PostIdListRagSearchDto relevant =
+          objectMapper.readValue(chatResponse.aiMessage().text(), PostIdListRagSearchDto.class);
+
+      Set<String> relevantIds =
+          relevant.getPostIds() == null
+              ? Set.of()
+              : relevant.getPostIds().stream().map(UUID::toString).collect(Collectors.toSet());
+
+      return candidates.stream()
+          .filter(candidate -> relevantIds.contains(candidate.contentId()))
+          .toList();
+
+    } catch (Exception e) {
+      log.error("RAG re-ranking failed, returning vector ranking: {}", e.getMessage(), e);
+      return ranked;
+    }
+  }
+
+  private String describeMedia(List<String> mediaUrls) {
+
+    GeminiModelConfig config = GeminiModelConfig.builder().temperature(0.1).build();
+
+    ChatLanguageModel model;
+    try {
+      model = geminiModelRegistry.chatModel(geminiApiKey, geminiModelName, config);
+
+    } catch (Exception e) {
+      log.error("Gemini model build failed: {}", e.getMessage(), e);
+      throw new AiGenerationFailedException(ResponseMessage.AI_MODEL_BUILD_FAILED);
+    }
+
+    ChatResponse chatResponse =
+        generateResponse(
+            model,
+            config,
+            AiSystemInstruction.FOR_IMAGE_DESCRIPTION,
+            downloadMedia(mediaUrls),
+            null,
+            Feature.IMAGE_DESCRIPTION);
+
+    return chatResponse == null ? null : chatResponse.aiMessage().text();
+  }
+
+  /**
+   * Embeds the images of a content that are not stored yet and removes the vectors of images the
+   * content no longer has. Images are matched by the hash of their URL.
+   *
+   * @param removeStale Whether {@code imageUrls} are all the images of the content, stored images
+   *     missing from it are only removed then
+   */
+  private void syncImageEmbeddings(List<String> imageUrls, UUID contentId, boolean removeStale) {
+
+    String id = contentId.toString();
+
+    try {
+      Map<String, String> urlsByHash = new LinkedHashMap<>();
+      for (String url : imageUrls) {
+        if (url != null && !url.isBlank()) {
+          urlsByHash.putIfAbsent(RagUtil.contentHash(url), url);
+        }
+      }
+
+      Set<String> stored =
+          ragUtil.contentHashes(id, PgVectorStoreRegistry.IMAGE_EMBEDDINGS_TABLE);
+
+      Set<String> stale = new HashSet<>(stored);
+      stale.removeAll(urlsByHash.keySet());
+      if (removeStale && !stale.isEmpty()) {
+        ragUtil.removeContent(id, PgVectorStoreRegistry.IMAGE_EMBEDDINGS_TABLE, stale);
+      }
+
+      urlsByHash.keySet().removeAll(stored);
+      if (urlsByHash.isEmpty()) {
+        return;
+      }
+
+      List<EmbeddingResponse> imageEmbeddings =
+          aiCallScheduler.call(
+              Endpoint.NOMIC_VISION,
+              Feature.CONTENT_INGESTION,
+              () ->
+                  nomicImageEmbeddingUtil.embedImageUrls(
+                      nomicApiKey, new ArrayList<>(urlsByHash.values())));
+
+      ragUtil.store(
+          imageEmbeddings,
+          new ArrayList<>(urlsByHash.keySet()),
+          PgVectorStoreRegistry.NOMIC_DIMENSION,
+          id,
+          PgVectorStoreRegistry.IMAGE_EMBEDDINGS_TABLE);
+
+    } catch (InterruptedException e) {
+      log.error("Image embeddings generation interrupted: {}", e.getMessage(), e);
+      Thread.currentThread().interrupt();
+
+    } catch (Exception e) {
+      log.error("Image embeddings generation failed: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Brings the vectors of one text of a content up to date. Nothing is embedded when a text with
+   * the same hash is already stored, otherwise the new text is ingested and the older versions are
+   * removed once it is stored.
+   *
+   * @param contentHash Hash identifying the text, null when the content no longer has one
+   * @param text Supplies the text, only called when it has to be embedded
+   */
+  private CompletableFuture<Void> syncText(
+      UUID contentId, String tableName, String contentHash, Supplier<String> text) {
+
+    String id = contentId.toString();
+
+    try {
+      Set<String> stored = ragUtil.contentHashes(id, tableName);
+
+      if (contentHash == null) {
+        if (!stored.isEmpty()) {
+          ragUtil.removeContent(id, tableName, null);
+        }
+        return CompletableFuture.completedFuture(null);
+      }
+
+      if (stored.equals(Set.of(contentHash))) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      String value = text.get();
+      if (value == null || value.isBlank()) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      if (stored.contains(contentHash)) {
+        // Leftovers of an interrupted run, stored again below
+        ragUtil.removeContent(id, tableName, Set.of(contentHash));
+      }
+
+      Set<String> stale = new HashSet<>(stored);
+      stale.remove(contentHash);
+
+      return ingestionPipeline
+          .submit(
+              Document.from(value, Metadata.from(RagUtil.CONTENT_HASH_KEY, contentHash)),
+              id,
+              tableName)
+          .thenRun(
+              () -> {
+                if (!stale.isEmpty()) {
+                  ragUtil.removeContent(id, tableName, stale);
+                }
+              })
+          .whenComplete(
+              (result, e) -> {
+                if (e != null) {
+                  log.error(
+                      "Text embeddings generation failed for {}: {}", contentId, e.getMessage());
+                }
+              });
+
+    } catch (Exception e) {
+      log.error("Syncing {} vectors of {} failed: {}", tableName, contentId, e.getMessage());
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static boolean hasContent(MultiModalAiRequestDto requestDto) {
+
+    return (requestDto.getText() != null && !requestDto.getText().isBlank())
+        || (requestDto.getMediaUrls() != null
+            && requestDto.getMediaUrls().stream().anyMatch(url -> url != null && !url.isBlank()));
+  }
+
+  /** Hash identifying a set of media, null when there is none */
+  private static String mediaHash(List<String> mediaUrls) {
+
+    if (mediaUrls == null || mediaUrls.isEmpty()) {
+      return null;
+    }
+    return RagUtil.contentHash(String.join("\n", mediaUrls));
+  }
+
+  /**
+   * Sends a prompt with a static system instruction, referenced from the Gemini context cache when
+   * it is cached and sent inline otherwise
+   */
   private ChatResponse generateResponse(
       ChatLanguageModel model,
+      GeminiModelConfig config,
       String systemInstruction,
       Map<String, RestUtil.Media> mediaBytes,
-      String text) {
+      String text,
+      Feature feature) {
 
     if ((text == null || text.isEmpty()) && (mediaBytes == null || mediaBytes.isEmpty())) {
       return null;
     }
 
     try {
+      if (geminiContextCache.register(geminiApiKey, geminiModelName, feature, systemInstruction)) {
+        ChatResponse cached =
+            aiCallScheduler.call(
+                Endpoint.GEMINI,
+                feature,
+                () ->
+                    geminiContextCache
+                        .generate(
+                            geminiApiKey,
+                            geminiModelName,
+                            config,
+                            feature,
+                            systemInstruction,
+                            text,
+                            mediaBytes)
+                        .orElse(null));
+        if (cached != null) {
+          return cached;
+        }
+      }
+
       SystemMessage systemMessage = new SystemMessage(systemInstruction);
 
       UserMessage.Builder userMessageBuilder = UserMessage.builder();
       addContentToUserMessage(userMessageBuilder, mediaBytes, text);
       UserMessage userMessage = userMessageBuilder.build();
 
-      return model.chat(systemMessage, userMessage);
+      return aiCallScheduler.call(
+          Endpoint.GEMINI, feature, () -> model.chat(systemMessage, userMessage));
+
+    } catch (AiServiceUnavailableException e) {
+      log.warn("AI response generation skipped: {}", e.getMessage());
+      throw e;
+
+    } catch (InterruptedException e) {
+      log.error("AI response generation interrupted: {}", e.getMessage(), e);
+      Thread.currentThread().interrupt();
+      return null;
 
     } catch (NullPointerException e) {
       /* This is quite hacky. But due to a bug in langchain4j, currently this is the only solution that I came up with
@@ -371,6 +1408,7 @@ public class AiServiceImpl implements AiService {
        * See here: https://github.com/langchain4j/langchain4j/issues/2893
        */
       log.error("AI response generation failed: {}", e.getMessage(), e);
+      aiCallMetrics.finishReason(feature, Endpoint.GEMINI, FinishReason.CONTENT_FILTER);
       return ChatResponse.builder()
           .aiMessage(new AiMessage(""))
           .finishReason(FinishReason.CONTENT_FILTER)
@@ -381,62 +1419,95 @@ public class AiServiceImpl implements AiService {
     }
   }
 
-  private void generateStreamingResponse(
+  /**
+   * Streams the partial responses of a model. The request is sent on subscription and abandoned
+   * when the subscriber cancels, the next partial response then aborts the provider stream.
+   */
+  private Flux<String> generateStreamingResponse(
       StreamingChatLanguageModel model,
       String systemInstruction,
       Map<String, RestUtil.Media> mediaBytes,
       String text,
-      Sinks.Many<String> sink) {
+      Feature feature,
+      String streamName) {
 
     if ((text == null || text.isEmpty()) && (mediaBytes == null || mediaBytes.isEmpty())) {
-
-      sink.emitError(
-          new AiGenerationFailedException(ResponseMessage.PROOFREAD_INPUT_NULL),
-          Sinks.EmitFailureHandler.FAIL_FAST);
-
-      return;
+      return Flux.error(new AiGenerationFailedException(ResponseMessage.PROOFREAD_INPUT_NULL));
     }
 
-    try {
-      SystemMessage systemMessage = new SystemMessage(systemInstruction);
-
-      UserMessage.Builder userMessageBuilder = UserMessage.builder();
-      addContentToUserMessage(userMessageBuilder, mediaBytes, text);
-      UserMessage userMessage = userMessageBuilder.build();
-
-      List<ChatMessage> chatMessages = List.of(systemMessage, userMessage);
-
-      model.chat(
-          chatMessages,
-          new StreamingChatResponseHandler() {
-
-            @Override
-            public void onPartialResponse(String partialResponse) {
-
-              sink.emitNext(partialResponse, Sinks.EmitFailureHandler.FAIL_FAST);
-            }
-
-            @Override
-            public void onCompleteResponse(ChatResponse completeResponse) {
-              sink.emitComplete(Sinks.EmitFailureHandler.FAIL_FAST);
-            }
-
-            @Override
-            public void onError(Throwable error) {
-
-              sink.emitError(
-                  new AiGenerationFailedException(ResponseMessage.PROOFREAD_GENERATION_FAILED),
-                  Sinks.EmitFailureHandler.FAIL_FAST);
-            }
-          });
-
-    } catch (Exception e) {
-      log.error("AI streaming response generation failed: {}", e.getMessage(), e);
-
-      sink.emitError(
-          new AiGenerationFailedException(ResponseMessage.PROOFREAD_GENERATION_FAILED),
-          Sinks.EmitFailureHandler.FAIL_FAST);
-    }
+    return Flux.<String>create(
+            sink -> {
+              AiCallScheduler.Permit permit =
+                  aiCallScheduler.acquire(Endpoint.GEMINI, feature);
+
+              AtomicBoolean cancelled = new AtomicBoolean();
+              sink.onCancel(
+                  () -> {
+                    log.debug("Client cancelled the {} stream", streamName);
+                    cancelled.set(true);
+                    permit.release(null);
+                  });
+
+              try {
+                SystemMessage systemMessage = new SystemMessage(systemInstruction);
+
+                UserMessage.Builder userMessageBuilder = UserMessage.builder();
+                addContentToUserMessage(userMessageBuilder, mediaBytes, text);
+                UserMessage userMessage = userMessageBuilder.build();
+
+                List<ChatMessage> chatMessages = List.of(systemMessage, userMessage);
+
+                AiStreamMetrics.Recorder metrics = aiStreamMetrics.start(streamName);
+
+                model.chat(
+                    chatMessages,
+                    new StreamingChatResponseHandler() {
+
+                      @Override
+                      public void onPartialResponse(String partialResponse) {
+
+                        // Throwing stops the client from reading the rest of the response
+                        if (cancelled.get()) {
+                          throw new CancellationException("Stream cancelled by the client");
+                        }
+                        metrics.token();
+                        sink.next(partialResponse);
+                      }
+
+                      @Override
+                      public void onCompleteResponse(ChatResponse completeResponse) {
+
+                        permit.release(completeResponse, null);
+                        metrics.complete(
+                            completeResponse.tokenUsage() == null
+                                ? null
+                                : completeResponse.tokenUsage().outputTokenCount());
+                        sink.complete();
+                      }
+
+                      @Override
+                      public void onError(Throwable error) {
+
+                        if (cancelled.get()) {
+                          return;
+                        }
+                        permit.release(error);
+                        sink.error(
+                            new AiGenerationFailedException(
+                                ResponseMessage.PROOFREAD_GENERATION_FAILED));
+                      }
+                    });
+
+              } catch (Exception e) {
+                log.error("AI streaming response generation failed: {}", e.getMessage(), e);
+                permit.release(e);
+
+                sink.error(
+                    new AiGenerationFailedException(ResponseMessage.PROOFREAD_GENERATION_FAILED));
+              }
+            })
+        // Waiting for a permit blocks, and so may sending the request
+        .subscribeOn(Schedulers.boundedElastic());
   }
 
   private void addContentToUserMessage(
@@ -467,7 +1538,15 @@ public class AiServiceImpl implements AiService {
 
     try {
       mediaBytes = restUtil.downloadMultipleMediaWithMime(mediaUrls).get(10, TimeUnit.SECONDS);
-      return mediaBytes;
+
+      // Keep the request order, prompts refer to media items by position
+      Map<String, RestUtil.Media> ordered = new LinkedHashMap<>();
+      for (String url : mediaUrls) {
+        if (mediaBytes.containsKey(url)) {
+          ordered.put(url, mediaBytes.get(url));
+        }
+      }
+      return ordered;
 
     } catch (InterruptedException e) {
       log.error("Media download interrupted: {}", e.getMessage(), e);
@@ -13,14 +13,11 @@ import com.devs.roamance.repository.ChatRepository;
 import com.devs.roamance.repository.UserRepository;
 import com.devs.roamance.service.ChatService;
 import com.devs.roamance.util.PaginationSortingUtil;
+import com.devs.roamance.util.PaginationSortingUtil.CursorPage;
 import com.devs.roamance.util.UserUtil;
 import java.util.List;
 import java.util.UUID;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -104,18 +101,26 @@ public class ChatServiceImpl implements ChatService {
 
   @Override
   public ChatListResponseDto getForCurrentUser(
-      Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+      Integer pageNumber, Integer pageSize, String sortBy, String sortDir, String cursor) {
 
     UUID userId = userUtil.getAuthenticatedUser().getId();
 
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Chat> chats = chatRepository.findAllByUsers_Id(userId, pageable);
-
-    List<ChatDto> dtos = chats.stream().map(chat -> modelMapper.map(chat, ChatDto.class)).toList();
-
-    return new ChatListResponseDto(200, true, ResponseMessage.CHATS_FETCH_SUCCESS, dtos);
+    CursorPage<Chat> chats =
+        PaginationSortingUtil.paginate(
+            Chat.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            pageable -> chatRepository.findAllByUsers_Id(userId, pageable),
+            (position, sort, limit) ->
+                chatRepository.findAllByUsers_Id(userId, position, sort, limit));
+
+    List<ChatDto> dtos =
+        chats.content().stream().map(chat -> modelMapper.map(chat, ChatDto.class)).toList();
+
+    return new ChatListResponseDto(
+        200, true, ResponseMessage.CHATS_FETCH_SUCCESS, dtos, chats.nextCursor());
   }
 }
@@ -13,14 +13,11 @@ import com.devs.roamance.repository.CommentRepository;
 import com.devs.roamance.repository.PostRepository;
 import com.devs.roamance.service.CommentService;
 import com.devs.roamance.util.PaginationSortingUtil;
+import com.devs.roamance.util.PaginationSortingUtil.CursorPage;
 import com.devs.roamance.util.UserUtil;
 import java.util.List;
 import java.util.UUID;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -91,21 +88,35 @@ public class CommentServiceImpl implements CommentService {
 
   @Override
   public CommentListResponseDto getByPostId(
-      UUID postId, Integer pageNumber, Integer pageSize, String sortBy, String sortDir) {
+      UUID postId,
+      Integer pageNumber,
+      Integer pageSize,
+      String sortBy,
+      String sortDir,
+      String cursor) {
 
     if (!postRepository.existsById(postId)) {
       throw new ResourceNotFoundException(String.format(ResponseMessage.POST_NOT_FOUND, postId));
     }
 
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Comment> comments = commentRepository.findAllByPostId(postId, pageable);
+    CursorPage<Comment> comments =
+        PaginationSortingUtil.paginate(
+            Comment.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            pageable -> commentRepository.findAllByPostId(postId, pageable),
+            (position, sort, limit) ->
+                commentRepository.findAllByPostId(postId, position, sort, limit));
 
     List<CommentDto> dtos =
-        comments.stream().map(comment -> modelMapper.map(comment, CommentDto.class)).toList();
+        comments.content().stream()
+            .map(comment -> modelMapper.map(comment, CommentDto.class))
+            .toList();
 
-    return new CommentListResponseDto(200, true, ResponseMessage.COMMENTS_FETCH_SUCCESS, dtos);
+    return new CommentListResponseDto(
+        200, true, ResponseMessage.COMMENTS_FETCH_SUCCESS, dtos, comments.nextCursor());
   }
 }
@@ -17,17 +17,17 @@ import com.devs.roamance.model.travel.itinerary.Itinerary;
 import com.devs.roamance.model.user.User;
 import com.devs.roamance.repository.ItineraryRepository;
 import com.devs.roamance.service.ItineraryService;
+import com.devs.roamance.util.EntityOrderUtil;
+import com.devs.roamance.util.GeoGridIndex;
+import com.devs.roamance.util.GeoUtil;
 import com.devs.roamance.util.ItineraryUtil;
 import com.devs.roamance.util.PaginationSortingUtil;
+import com.devs.roamance.util.PaginationSortingUtil.CursorPage;
 import com.devs.roamance.util.UserUtil;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -38,17 +38,20 @@ public class ItineraryServiceImpl implements ItineraryService {
   private final ItineraryUtil itineraryUtil;
   private final ModelMapper modelMapper;
   private final UserUtil userUtil;
+  private final GeoGridIndex geoGridIndex;
 
   public ItineraryServiceImpl(
       ItineraryRepository itineraryRepository,
       ItineraryUtil itineraryUtil,
       ModelMapper modelMapper,
-      UserUtil userUtil) {
+      UserUtil userUtil,
+      GeoGridIndex geoGridIndex) {
 
     this.itineraryRepository = itineraryRepository;
     this.itineraryUtil = itineraryUtil;
     this.modelMapper = modelMapper;
     this.userUtil = userUtil;
+    this.geoGridIndex = geoGridIndex;
   }
 
   @Override
@@ -64,6 +67,9 @@ public class ItineraryServiceImpl implements ItineraryService {
     Itinerary savedItinerary = itineraryRepository.save(itinerary);
     itineraryRepository.flush();
 
+    geoGridIndex.put(
+        GeoGridIndex.Kind.ITINERARY, savedItinerary.getId(), savedItinerary.getLocations());
+
     ItineraryDetailDto dto = modelMapper.map(savedItinerary, ItineraryDetailDto.class);
 
     return new ItineraryResponseDto(201, true, ResponseMessage.ITINERARY_CREATE_SUCCESS, dto);
@@ -83,6 +89,9 @@ public class ItineraryServiceImpl implements ItineraryService {
     Itinerary savedItinerary = itineraryRepository.save(itinerary);
     itineraryRepository.flush();
 
+    geoGridIndex.put(
+        GeoGridIndex.Kind.ITINERARY, savedItinerary.getId(), savedItinerary.getLocations());
+
     ItineraryDetailDto dto = modelMapper.map(savedItinerary, ItineraryDetailDto.class);
 
     return new ItineraryResponseDto(201, true, ResponseMessage.ITINERARY_CREATE_SUCCESS, dto);
@@ -90,20 +99,20 @@ public class ItineraryServiceImpl implements ItineraryService {
 
   @Override
   public ItineraryListResponseDto getAll(
-      int pageNumber, int pageSize, String sortBy, String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Itinerary> itineraries = itineraryRepository.findAll(pageable);
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
 
-    List<ItineraryBriefDto> dtos =
-        itineraries.stream()
-            .map(itinerary -> modelMapper.map(itinerary, ItineraryBriefDto.class))
-            .toList();
+    CursorPage<Itinerary> itineraries =
+        PaginationSortingUtil.paginate(
+            Itinerary.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            itineraryRepository::findAllBy,
+            itineraryRepository::findAllBy);
 
-    return new ItineraryListResponseDto(200, true, ResponseMessage.ITINERARIES_FETCH_SUCCESS, dtos);
+    return toListResponse(itineraries);
   }
 
   @Override
@@ -124,43 +133,53 @@ public class ItineraryServiceImpl implements ItineraryService {
 
   @Override
   public ItineraryListResponseDto getByUserId(
-      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Itinerary> itineraries = itineraryRepository.findAllByUserId(userId, pageable);
+      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
 
-    List<ItineraryBriefDto> dtos =
-        itineraries.stream()
-            .map(itinerary -> modelMapper.map(itinerary, ItineraryBriefDto.class))
-            .toList();
+    CursorPage<Itinerary> itineraries =
+        PaginationSortingUtil.paginate(
+            Itinerary.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            pageable -> itineraryRepository.findAllByUserId(userId, pageable),
+            (position, sort, limit) ->
+                itineraryRepository.findAllByUserId(userId, position, sort, limit));
 
-    return new ItineraryListResponseDto(200, true, ResponseMessage.ITINERARIES_FETCH_SUCCESS, dtos);
+    return toListResponse(itineraries);
   }
 
   @Override
   public ItineraryListResponseDto getNearby(
-      NearByFindRequestDto requestDto,
-      int pageNumber,
-      int pageSize,
-      String sortBy,
-      String sortDir) {
-
-    List<UUID> itineraryIds =
-        itineraryRepository.findNearby(
-            requestDto.getLocation().getLatitude(),
-            requestDto.getLocation().getLongitude(),
-            requestDto.getRadiusKm(),
-            pageSize,
-            pageNumber);
+      NearByFindRequestDto requestDto, int pageNumber, int pageSize) {
 
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
+    double latitude = requestDto.getLocation().getLatitude();
+    double longitude = requestDto.getLocation().getLongitude();
 
-    Page<Itinerary> itineraries = itineraryRepository.findByIds(itineraryIds, pageable);
+    // Ids come nearest first, the page is already applied
+    List<UUID> itineraryIds =
+        geoGridIndex
+            .nearby(
+                GeoGridIndex.Kind.ITINERARY,
+                latitude,
+                longitude,
+                requestDto.getRadiusKm(),
+                pageSize,
+                pageNumber * pageSize)
+            .orElseGet(
+                () ->
+                    itineraryRepository.findNearby(
+                        latitude,
+                        longitude,
+                        requestDto.getRadiusKm(),
+                        GeoUtil.boundingBox(latitude, longitude, requestDto.getRadiusKm()),
+                        pageSize,
+                        pageNumber * pageSize));
+
+    List<Itinerary> itineraries =
+        EntityOrderUtil.inIdOrder(
+            itineraryIds, itineraryRepository.findAllById(itineraryIds), Itinerary::getId);
 
     List<ItineraryBriefDto> dtos =
         itineraries.stream()
@@ -215,6 +234,9 @@ public class ItineraryServiceImpl implements ItineraryService {
     Itinerary savedItinerary = itineraryRepository.save(existingItinerary);
     itineraryRepository.flush();
 
+    geoGridIndex.put(
+        GeoGridIndex.Kind.ITINERARY, savedItinerary.getId(), savedItinerary.getLocations());
+
     ItineraryDetailDto dto = modelMapper.map(savedItinerary, ItineraryDetailDto.class);
 
     return new ItineraryResponseDto(200, true, ResponseMessage.ITINERARY_UPDATE_SUCCESS, dto);
@@ -240,7 +262,19 @@ public class ItineraryServiceImpl implements ItineraryService {
     }
 
     itineraryRepository.delete(itinerary);
+    geoGridIndex.remove(GeoGridIndex.Kind.ITINERARY, itineraryId);
 
     return new BaseResponseDto(200, true, ResponseMessage.ITINERARY_DELETE_SUCCESS);
   }
+
+  private ItineraryListResponseDto toListResponse(CursorPage<Itinerary> itineraries) {
+
+    List<ItineraryBriefDto> dtos =
+        itineraries.content().stream()
+            .map(itinerary -> modelMapper.map(itinerary, ItineraryBriefDto.class))
+            .toList();
+
+    return new ItineraryListResponseDto(
+        200, true, ResponseMessage.ITINERARIES_FETCH_SUCCESS, dtos, itineraries.nextCursor());
+  }
 }
@@ -30,7 +30,11 @@ import com.devs.roamance.model.user.User;
 import com.devs.roamance.repository.JournalRepository;
 import com.devs.roamance.repository.UserRepository;
 import com.devs.roamance.service.JournalService;
+import com.devs.roamance.util.EntityOrderUtil;
+import com.devs.roamance.util.GeoGridIndex;
+import com.devs.roamance.util.GeoUtil;
 import com.devs.roamance.util.PaginationSortingUtil;
+import com.devs.roamance.util.PaginationSortingUtil.CursorPage;
 import com.devs.roamance.util.UserUtil;
 import java.util.List;
 import java.util.Optional;
@@ -38,10 +42,6 @@ import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -55,16 +55,19 @@ public class JournalServiceImpl implements JournalService {
   private final UserRepository userRepository;
   private final ModelMapper modelMapper;
   private final UserUtil userUtil;
+  private final GeoGridIndex geoGridIndex;
 
   public JournalServiceImpl(
       JournalRepository journalRepository,
       UserRepository userService,
       ModelMapper modelMapper,
-      UserUtil userUtil) {
+      UserUtil userUtil,
+      GeoGridIndex geoGridIndex) {
     this.journalRepository = journalRepository;
     this.userRepository = userService;
     this.modelMapper = modelMapper;
     this.userUtil = userUtil;
+    this.geoGridIndex = geoGridIndex;
   }
 
   @Override
@@ -108,6 +111,9 @@ public class JournalServiceImpl implements JournalService {
       Journal savedJournal = journalRepository.save(journal);
       journalRepository.flush();
 
+      geoGridIndex.put(
+          GeoGridIndex.Kind.JOURNAL, savedJournal.getId(), savedJournal.getDestination());
+
       Journal dto =
           journalRepository
               .findById(savedJournal.getId())
@@ -130,19 +136,24 @@ public class JournalServiceImpl implements JournalService {
   @Override
   @Transactional(readOnly = true)
   public JournalListResponseDto getAll(
-      int pageNumber, int pageSize, String sortBy, String sortDir) {
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     boolean isAdmin = userUtil.isAuthenticatedUserAdmin();
 
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Journal> journalPage;
+    CursorPage<Journal> journalPage;
 
     if (isAdmin) {
       log.info("User has ADMIN role, returning all journals with pagination");
-      journalPage = journalRepository.findAll(pageable);
+      journalPage =
+          PaginationSortingUtil.paginate(
+              Journal.class,
+              cursor,
+              pageNumber,
+              pageSize,
+              sortBy,
+              sortDir,
+              journalRepository::findAllBy,
+              journalRepository::findAllBy);
     } else {
       String email = authentication.getName();
       Optional<UUID> userId = userRepository.findByEmail(email).map(User::getId);
@@ -150,49 +161,56 @@ public class JournalServiceImpl implements JournalService {
       log.info("User has USER role, returning only their journals, userId: {}", userId);
 
       if (userId.isPresent()) {
-        journalPage = journalRepository.findAllByAudit_CreatedBy(userId.get(), pageable);
+        journalPage =
+            PaginationSortingUtil.paginate(
+                Journal.class,
+                cursor,
+                pageNumber,
+                pageSize,
+                sortBy,
+                sortDir,
+                pageable -> journalRepository.findAllByAudit_CreatedBy(userId.get(), pageable),
+                (position, sort, limit) ->
+                    journalRepository.findAllByAudit_CreatedBy(
+                        userId.get(), position, sort, limit));
       } else {
         return new JournalListResponseDto(
             200, true, ResponseMessage.JOURNALS_FETCH_SUCCESS, List.of());
       }
     }
 
-    List<JournalBriefDto> journalDtos =
-        journalPage.getContent().stream()
-            .map(
-                journal -> {
-                  Journal journalWithSubsections =
-                      journalRepository.findById(journal.getId()).orElse(journal);
-
-                  JournalBriefDto dto =
-                      modelMapper.map(journalWithSubsections, JournalBriefDto.class);
-                  dto.setTotalSubsections(journalWithSubsections.getSubsections().size());
-                  return dto;
-                })
-            .toList();
-
-    return new JournalListResponseDto(
-        200, true, ResponseMessage.JOURNALS_FETCH_SUCCESS, journalDtos);
+    return toListResponse(journalPage);
   }
 
   @Override
   public JournalListResponseDto getNearby(
-      NearByFindRequestDto requestDto,
-      int pageNumber,
-      int pageSize,
-      String sortBy,
-      String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Journal> journals =
-        journalRepository.findNearby(
-            requestDto.getLocation().getLatitude(),
-            requestDto.getLocation().getLongitude(),
-            requestDto.getRadiusKm(),
-            pageable);
+      NearByFindRequestDto requestDto, int pageNumber, int pageSize) {
+
+    double latitude = requestDto.getLocation().getLatitude();
+    double longitude = requestDto.getLocation().getLongitude();
+
+    List<Journal> journals =
+        geoGridIndex
+            .nearby(
+                GeoGridIndex.Kind.JOURNAL,
+                latitude,
+                longitude,
+                requestDto.getRadiusKm(),
+                pageSize,
+                pageNumber * pageSize)
+            .map(
+                ids ->
+                    EntityOrderUtil.inIdOrder(
+                        ids, journalRepository.findAllById(ids), Journal::getId))
+            .orElseGet(
+                () ->
+                    journalRepository.findNearby(
+                        latitude,
+                        longitude,
+                        requestDto.getRadiusKm(),
+                        GeoUtil.boundingBox(latitude, longitude, requestDto.getRadiusKm()),
+                        pageSize,
+                        pageNumber * pageSize));
 
     List<JournalBriefDto> dtos =
         journals.stream().map(journal -> modelMapper.map(journal, JournalBriefDto.class)).toList();
@@ -203,30 +221,20 @@ public class JournalServiceImpl implements JournalService {
   @Override
   @Transactional(readOnly = true)
   public JournalListResponseDto getPublic(
-      int pageNumber, int pageSize, String sortBy, String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Journal> journalPage = journalRepository.findAllByIsSharedTrue(pageable);
-
-    List<JournalBriefDto> journalDtos =
-        journalPage.getContent().stream()
-            .map(
-                journal -> {
-                  Journal journalWithSubsections =
-                      journalRepository.findById(journal.getId()).orElse(journal);
-
-                  JournalBriefDto dto =
-                      modelMapper.map(journalWithSubsections, JournalBriefDto.class);
-                  dto.setTotalSubsections(journalWithSubsections.getSubsections().size());
-                  return dto;
-                })
-            .toList();
-
-    return new JournalListResponseDto(
-        200, true, ResponseMessage.JOURNALS_FETCH_SUCCESS, journalDtos);
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
+
+    CursorPage<Journal> journalPage =
+        PaginationSortingUtil.paginate(
+            Journal.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            journalRepository::findAllByIsSharedTrue,
+            journalRepository::findAllByIsSharedTrue);
+
+    return toListResponse(journalPage);
   }
 
   @Override
@@ -288,6 +296,9 @@ public class JournalServiceImpl implements JournalService {
     Journal savedJournal = journalRepository.save(journal);
     journalRepository.flush();
 
+    geoGridIndex.put(
+        GeoGridIndex.Kind.JOURNAL, savedJournal.getId(), savedJournal.getDestination());
+
     JournalDetailDto journalDetailDto = modelMapper.map(savedJournal, JournalDetailDto.class);
 
     return new JournalResponseDto(
@@ -300,10 +311,31 @@ public class JournalServiceImpl implements JournalService {
     Journal journal = findJournalByAccess(id);
 
     journalRepository.delete(journal);
+    geoGridIndex.remove(GeoGridIndex.Kind.JOURNAL, id);
 
     return new BaseResponseDto(200, true, ResponseMessage.JOURNAL_DELETE_SUCCESS);
   }
 
+  private JournalListResponseDto toListResponse(CursorPage<Journal> journalPage) {
+
+    List<JournalBriefDto> journalDtos =
+        journalPage.content().stream()
+            .map(
+                journal -> {
+                  Journal journalWithSubsections =
+                      journalRepository.findById(journal.getId()).orElse(journal);
+
+                  JournalBriefDto dto =
+                      modelMapper.map(journalWithSubsections, JournalBriefDto.class);
+                  dto.setTotalSubsections(journalWithSubsections.getSubsections().size());
+                  return dto;
+                })
+            .toList();
+
+    return new JournalListResponseDto(
+        200, true, ResponseMessage.JOURNALS_FETCH_SUCCESS, journalDtos, journalPage.nextCursor());
+  }
+
   private Journal findJournalByAccess(UUID id) {
     Journal journal =
         journalRepository
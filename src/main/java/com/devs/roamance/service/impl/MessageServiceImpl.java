@@ -13,14 +13,11 @@ import com.devs.roamance.repository.ChatRepository;
 import com.devs.roamance.repository.MessageRepository;
 import com.devs.roamance.service.MessageService;
 import com.devs.roamance.util.PaginationSortingUtil;
+import com.devs.roamance.util.PaginationSortingUtil.CursorPage;
 import com.devs.roamance.util.UserUtil;
 import java.util.List;
 import java.util.UUID;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -90,17 +87,26 @@ public class MessageServiceImpl implements MessageService {
 
   @Override
   public MessageListResponseDto getByChatId(
-      UUID chatId, int pageNumber, int pageSize, String sortBy, String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Message> messages = messageRepository.findAllByChatId(chatId, pageable);
+      UUID chatId, int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
+
+    CursorPage<Message> messages =
+        PaginationSortingUtil.paginate(
+            Message.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            pageable -> messageRepository.findAllByChatId(chatId, pageable),
+            (position, sort, limit) ->
+                messageRepository.findAllByChatId(chatId, position, sort, limit));
 
     List<MessageDto> dtos =
-        messages.stream().map(message -> modelMapper.map(message, MessageDto.class)).toList();
+        messages.content().stream()
+            .map(message -> modelMapper.map(message, MessageDto.class))
+            .toList();
 
-    return new MessageListResponseDto(200, true, ResponseMessage.MESSAGES_FETCH_SUCCESS, dtos);
+    return new MessageListResponseDto(
+        200, true, ResponseMessage.MESSAGES_FETCH_SUCCESS, dtos, messages.nextCursor());
   }
 }
@@ -16,7 +16,13 @@ import com.devs.roamance.model.user.User;
 import com.devs.roamance.repository.PostRepository;
 import com.devs.roamance.repository.UserRepository;
 import com.devs.roamance.service.PostService;
+import com.devs.roamance.util.EntityOrderUtil;
+import com.devs.roamance.util.FeedUtil;
+import com.devs.roamance.util.ForYouRanker;
+import com.devs.roamance.util.GeoGridIndex;
+import com.devs.roamance.util.GeoUtil;
 import com.devs.roamance.util.PaginationSortingUtil;
+import com.devs.roamance.util.PaginationSortingUtil.CursorPage;
 import com.devs.roamance.util.PostUtil;
 import com.devs.roamance.util.UserUtil;
 import java.util.List;
@@ -34,24 +40,36 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 public class PostServiceImpl implements PostService {
 
+  /** Sort of the latest posts, served as the feed of users without one */
+  private static final String FEED_FALLBACK_SORT = "audit.createdAt";
+
   private final PostRepository postRepository;
   private final UserRepository userRepository;
   private final PostUtil postUtil;
   private final UserUtil userUtil;
   private final ModelMapper modelMapper;
+  private final GeoGridIndex geoGridIndex;
+  private final FeedUtil feedUtil;
+  private final ForYouRanker forYouRanker;
 
   public PostServiceImpl(
       PostRepository postRepository,
       UserRepository userRepository,
       PostUtil postUtil,
       UserUtil userUtil,
-      ModelMapper modelMapper) {
+      ModelMapper modelMapper,
+      GeoGridIndex geoGridIndex,
+      FeedUtil feedUtil,
+      ForYouRanker forYouRanker) {
 
     this.postRepository = postRepository;
     this.userRepository = userRepository;
     this.postUtil = postUtil;
     this.userUtil = userUtil;
     this.modelMapper = modelMapper;
+    this.geoGridIndex = geoGridIndex;
+    this.feedUtil = feedUtil;
+    this.forYouRanker = forYouRanker;
   }
 
   @Override
@@ -68,8 +86,9 @@ public class PostServiceImpl implements PostService {
     Post savedPost = postRepository.save(post);
     postRepository.flush();
 
-    postUtil.backgroundAiAnalysis(savedPost.getId(), createRequestDto);
-    postUtil.addToVectorDb(savedPost.getId(), createRequestDto);
+    postUtil.enqueueEnrichment(savedPost.getId());
+    geoGridIndex.put(GeoGridIndex.Kind.POST, savedPost.getId(), savedPost.getLocation());
+    feedUtil.fanOut(savedPost);
 
     PostDto dto = modelMapper.map(savedPost, PostDto.class);
 
@@ -93,13 +112,68 @@ public class PostServiceImpl implements PostService {
   }
 
   @Override
-  public PostListResponseDto getAll(int pageNumber, int pageSize, String sortBy, String sortDir) {
+  public PostListResponseDto getAll(
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
+
+    CursorPage<Post> posts =
+        PaginationSortingUtil.paginate(
+            Post.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            postRepository::findAllBy,
+            postRepository::findAllBy);
+
+    return toListResponse(posts);
+  }
 
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
+  @Override
+  public PostListResponseDto getFeed(int pageNumber, int pageSize, String cursor) {
+
+    UUID userId = userUtil.getAuthenticatedUser().getId();
+
+    boolean hasCursor = cursor != null && !cursor.isBlank();
+    if (!hasCursor && pageNumber == 0) {
+      feedUtil.pull(userId);
+    }
+
+    // A cursor stays with the list that issued it, even if the user got a feed since
+    boolean latestPosts =
+        hasCursor
+            ? PaginationSortingUtil.isCursorSortedBy(cursor, FEED_FALLBACK_SORT)
+            : !feedUtil.hasFeed(userId);
+
+    if (latestPosts) {
+      return getAll(pageNumber, pageSize, FEED_FALLBACK_SORT, "desc", cursor);
+    }
+
+    CursorPage<UUID> postIds = feedUtil.page(userId, cursor, pageNumber, pageSize);
 
-    Page<Post> posts = postRepository.findAll(pageable);
+    List<Post> posts =
+        EntityOrderUtil.inIdOrder(
+            postIds.content(), postRepository.findAllById(postIds.content()), Post::getId);
+
+    return toListResponse(new CursorPage<>(posts, postIds.nextCursor()));
+  }
+
+  @Override
+  public PostListResponseDto getForYou(
+      int pageNumber, int pageSize, Double latitude, Double longitude) {
+
+    UUID userId = userUtil.getAuthenticatedUser().getId();
+
+    // The latest posts until the candidates are loaded
+    Pageable latest =
+        PageRequest.of(pageNumber, pageSize, Sort.by(Sort.Direction.DESC, "audit.createdAt"));
+
+    List<Post> posts =
+        forYouRanker
+            .rank(userId, latitude, longitude, pageNumber * pageSize, pageSize)
+            .map(
+                ids -> EntityOrderUtil.inIdOrder(ids, postRepository.findAllById(ids), Post::getId))
+            .orElseGet(() -> postRepository.findAllBy(latest).getContent());
 
     List<PostDto> dtos = posts.stream().map(post -> modelMapper.map(post, PostDto.class)).toList();
 
@@ -122,34 +196,42 @@ public class PostServiceImpl implements PostService {
 
   @Override
   public PostListResponseDto getByUserId(
-      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Post> posts = postRepository.findAllByUserId(userId, pageable);
-
-    List<PostDto> dtos = posts.stream().map(post -> modelMapper.map(post, PostDto.class)).toList();
-
-    return new PostListResponseDto(200, true, ResponseMessage.POSTS_FETCH_SUCCESS, dtos);
+      UUID userId, int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
+
+    CursorPage<Post> posts =
+        PaginationSortingUtil.paginate(
+            Post.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            pageable -> postRepository.findAllByUserId(userId, pageable),
+            (position, sort, limit) ->
+                postRepository.findAllByUserId(userId, position, sort, limit));
+
+    return toListResponse(posts);
   }
 
   @Override
   public PostListResponseDto getSavedByCurrentUser(
-      int pageNumber, int pageSize, String sortBy, String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
+      int pageNumber, int pageSize, String sortBy, String sortDir, String cursor) {
 
     UUID userId = userUtil.getAuthenticatedUser().getId();
 
-    Page<Post> posts = postRepository.findAllBySavedBy_Id(userId, pageable);
-
-    List<PostDto> dtos = posts.stream().map(post -> modelMapper.map(post, PostDto.class)).toList();
-
-    return new PostListResponseDto(200, true, ResponseMessage.POSTS_FETCH_SUCCESS, dtos);
+    CursorPage<Post> posts =
+        PaginationSortingUtil.paginate(
+            Post.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            sortBy,
+            sortDir,
+            pageable -> postRepository.findAllBySavedBy_Id(userId, pageable),
+            (position, sort, limit) ->
+                postRepository.findAllBySavedBy_Id(userId, position, sort, limit));
+
+    return toListResponse(posts);
   }
 
   @Override
@@ -169,22 +251,31 @@ public class PostServiceImpl implements PostService {
 
   @Override
   public PostListResponseDto getNearby(
-      NearByFindRequestDto requestDto,
-      int pageNumber,
-      int pageSize,
-      String sortBy,
-      String sortDir) {
-
-    Pageable pageable =
-        PageRequest.of(
-            pageNumber, pageSize, Sort.by(PaginationSortingUtil.getSortDirection(sortDir), sortBy));
-
-    Page<Post> posts =
-        postRepository.findNearby(
-            requestDto.getLocation().getLatitude(),
-            requestDto.getLocation().getLongitude(),
-            requestDto.getRadiusKm(),
-            pageable);
+      NearByFindRequestDto requestDto, int pageNumber, int pageSize) {
+
+    double latitude = requestDto.getLocation().getLatitude();
+    double longitude = requestDto.getLocation().getLongitude();
+
+    List<Post> posts =
+        geoGridIndex
+            .nearby(
+                GeoGridIndex.Kind.POST,
+                latitude,
+                longitude,
+                requestDto.getRadiusKm(),
+                pageSize,
+                pageNumber * pageSize)
+            .map(
+                ids -> EntityOrderUtil.inIdOrder(ids, postRepository.findAllById(ids), Post::getId))
+            .orElseGet(
+                () ->
+                    postRepository.findNearby(
+                        latitude,
+                        longitude,
+                        requestDto.getRadiusKm(),
+                        GeoUtil.boundingBox(latitude, longitude, requestDto.getRadiusKm()),
+                        pageSize,
+                        pageNumber * pageSize));
 
     List<PostDto> dtos = posts.stream().map(post -> modelMapper.map(post, PostDto.class)).toList();
 
@@ -209,19 +300,28 @@ public class PostServiceImpl implements PostService {
       throw new UnauthorizedActionException(ResponseMessage.POST_UPDATE_ACTION_DENIED);
     }
 
+    boolean contentChanged = false;
+
     if (updateRequestDto.getText() != null && !updateRequestDto.getText().isEmpty()) {
+      contentChanged |= !updateRequestDto.getText().equals(existingPost.getText());
       existingPost.setText(updateRequestDto.getText());
     }
     if (updateRequestDto.getImagePaths() != null && !updateRequestDto.getImagePaths().isEmpty()) {
+      contentChanged |= !updateRequestDto.getImagePaths().equals(existingPost.getImagePaths());
       existingPost.setImagePaths(updateRequestDto.getImagePaths());
     }
     if (updateRequestDto.getVideoPaths() != null && !updateRequestDto.getVideoPaths().isEmpty()) {
+      contentChanged |= !updateRequestDto.getVideoPaths().equals(existingPost.getVideoPaths());
       existingPost.setVideoPaths(updateRequestDto.getVideoPaths());
     }
 
     Post savedPost = postRepository.save(existingPost);
     postRepository.flush();
 
+    if (contentChanged) {
+      postUtil.enqueueEnrichment(savedPost.getId());
+    }
+
     PostDto dto = modelMapper.map(savedPost, PostDto.class);
 
     return new PostResponseDto(200, true, ResponseMessage.POST_UPDATE_SUCCESS, dto);
@@ -298,8 +398,21 @@ public class PostServiceImpl implements PostService {
       throw new UnauthorizedActionException(ResponseMessage.POST_DELETE_ACTION_DENIED);
     }
 
+    postUtil.enqueueVectorRemoval(postId);
+
     postRepository.delete(post);
+    geoGridIndex.remove(GeoGridIndex.Kind.POST, postId);
+    feedUtil.remove(postId);
 
     return new BaseResponseDto(200, true, ResponseMessage.POST_DELETE_SUCCESS);
   }
+
+  private PostListResponseDto toListResponse(CursorPage<Post> posts) {
+
+    List<PostDto> dtos =
+        posts.content().stream().map(post -> modelMapper.map(post, PostDto.class)).toList();
+
+    return new PostListResponseDto(
+        200, true, ResponseMessage.POSTS_FETCH_SUCCESS, dtos, posts.nextCursor());
+  }
 }
@@ -0,0 +1,195 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.util.AiCallScheduler.Endpoint;
+import com.devs.roamance.util.AiCallScheduler.Feature;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.Result;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Usage, latency and outcome of the calls to the AI providers, per feature and endpoint.
+ *
+ * <p>Every call admitted by the {@link AiCallScheduler} is recorded when its permit is released:
+ *
+ * <ul>
+ *   <li>{@code ai.call.latency}: timer with a percentile histogram, tagged with the outcome
+ *   <li>{@code ai.call.tokens}: input and output tokens reported by the provider
+ *   <li>{@code ai.call.embeddings}: vectors returned by the embedding endpoints
+ *   <li>{@code ai.call.finish.reasons}: finish reason of chat responses, e.g. content_filter
+ *   <li>{@code ai.call.errors}: failed, shed and rejected calls by exception type
+ *   <li>{@code ai.call.cost}: estimated cost in USD
+ * </ul>
+ *
+ * <p>The cost uses the prices per million tokens under {@code
+ * application.ai.pricing.<endpoint>.input-per-million-tokens} and {@code
+ * output-per-million-tokens}, zero when not set. All meters are tagged with {@code feature} and
+ * {@code endpoint} and are served by the actuator metrics endpoint.
+ */
+@Component
+public class AiCallMetrics {
+
+  private static final String PREFIX = "application.ai.pricing.";
+
+  private final MeterRegistry meterRegistry;
+  private final Environment environment;
+
+  public AiCallMetrics(MeterRegistry meterRegistry, Environment environment) {
+    this.meterRegistry = meterRegistry;
+    this.environment = environment;
+  }
+
+  /**
+   * Records a completed call
+   *
+   * @param feature Feature the call was made for
+   * @param endpoint Provider endpoint of the call
+   * @param latency Time from admission to release
+   * @param result Result of the call, inspected for token usage and finish reason, may be null
+   * @param error Failure of the call, null when it succeeded
+   */
+  public void record(
+      Feature feature, Endpoint endpoint, Duration latency, Object result, Throwable error) {
+
+    Timer.builder("ai.call.latency")
+        .tag("feature", feature.tag())
+        .tag("endpoint", endpoint.property())
+        .tag("outcome", error == null ? "success" : "error")
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(latency);
+
+    if (error != null) {
+      error(feature, endpoint, error);
+      return;
+    }
+
+    TokenUsage tokenUsage = null;
+    FinishReason finishReason = null;
+    int embeddings = 0;
+
+    if (result instanceof ChatResponse chatResponse) {
+      tokenUsage = chatResponse.tokenUsage();
+      finishReason = chatResponse.finishReason();
+
+    } else if (result instanceof Result<?> serviceResult) {
+      tokenUsage = serviceResult.tokenUsage();
+      finishReason = serviceResult.finishReason();
+
+    } else if (result instanceof Response<?> response) {
+      tokenUsage = response.tokenUsage();
+      finishReason = response.finishReason();
+      if (response.content() instanceof Collection<?> vectors) {
+        embeddings = vectors.size();
+      }
+
+    } else if (result instanceof Collection<?> vectors) {
+      // Image embeddings come back as a list, without usage
+      embeddings = vectors.size();
+    }
+
+    if (tokenUsage != null) {
+      tokens(feature, endpoint, tokenUsage.inputTokenCount(), tokenUsage.outputTokenCount());
+    }
+    if (finishReason != null) {
+      finishReason(feature, endpoint, finishReason);
+    }
+    if (embeddings > 0) {
+      meterRegistry
+          .counter(
+              "ai.call.embeddings", "feature", feature.tag(), "endpoint", endpoint.property())
+          .increment(embeddings);
+    }
+  }
+
+  /**
+   * Records the finish reason of a response that did not come back as a result, e.g. a content
+   * filter surfacing as an exception of the client
+   */
+  public void finishReason(Feature feature, Endpoint endpoint, FinishReason finishReason) {
+    meterRegistry
+        .counter(
+            "ai.call.finish.reasons",
+            "feature",
+            feature.tag(),
+            "endpoint",
+            endpoint.property(),
+            "reason",
+            finishReason.name().toLowerCase(Locale.ROOT))
+        .increment();
+  }
+
+  /** Records a call that failed or never reached the provider */
+  public void error(Feature feature, Endpoint endpoint, Throwable error) {
+
+    Throwable cause = error;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+        && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+
+    meterRegistry
+        .counter(
+            "ai.call.errors",
+            "feature",
+            feature.tag(),
+            "endpoint",
+            endpoint.property(),
+            "type",
+            cause.getClass().getSimpleName())
+        .increment();
+  }
+
+  private void tokens(Feature feature, Endpoint endpoint, Integer input, Integer output) {
+
+    double cost = 0;
+
+    if (input != null && input > 0) {
+      meterRegistry
+          .counter(
+              "ai.call.tokens",
+              "feature",
+              feature.tag(),
+              "endpoint",
+              endpoint.property(),
+              "type",
+              "input")
+          .increment(input);
+      cost += input * price(endpoint, "input-per-million-tokens") / 1e6;
+    }
+
+    if (output != null && output > 0) {
+      meterRegistry
+          .counter(
+              "ai.call.tokens",
+              "feature",
+              feature.tag(),
+              "endpoint",
+              endpoint.property(),
+              "type",
+              "output")
+          .increment(output);
+      cost += output * price(endpoint, "output-per-million-tokens") / 1e6;
+    }
+
+    if (cost > 0) {
+      meterRegistry
+          .counter("ai.call.cost", "feature", feature.tag(), "endpoint", endpoint.property())
+          .increment(cost);
+    }
+  }
+
+  private double price(Endpoint endpoint, String key) {
+    return environment.getProperty(PREFIX + endpoint.property() + "." + key, Double.class, 0.0);
+  }
+}
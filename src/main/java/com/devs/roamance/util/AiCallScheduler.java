@@ -0,0 +1,497 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.constant.ResponseMessage;
+import com.devs.roamance.exception.AiServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control for the calls to the AI providers.
+ *
+ * <p>Each endpoint (Gemini, Nomic text, Nomic vision) has its own lane with a number of concurrent
+ * call permits and a token bucket refilled at {@code rate} calls per second up to {@code burst}.
+ * Interactive calls, the ones a user is waiting for, are served before background work: background
+ * calls leave {@code interactive-reserve} permits free, wait while an interactive call is waiting,
+ * and never borrow from future tokens. A call that cannot start within the acquire timeout of its
+ * priority is shed with an {@link AiServiceUnavailableException} instead of holding a thread until
+ * the request times out.
+ *
+ * <p>Every lane has a circuit breaker. After {@code breaker.failure-threshold} consecutive provider
+ * failures (IO errors, timeouts, throttling and 5xx responses) the lane rejects calls immediately
+ * for {@code breaker.open-duration}, then lets a single probe through and closes again when it
+ * succeeds.
+ *
+ * <p>Defaults live under {@code application.ai.scheduler}, and {@code max-concurrency}, {@code
+ * rate}, {@code burst} and {@code interactive-reserve} can be set per endpoint under {@code
+ * application.ai.scheduler.<endpoint>}.
+ *
+ * <p>Calls are made for a {@link Feature}, which sets their priority and tags the usage recorded by
+ * {@link AiCallMetrics} when the permit is released.
+ */
+@Component
+@Slf4j
+public class AiCallScheduler {
+
+  public enum Endpoint {
+    GEMINI,
+    NOMIC_TEXT,
+    NOMIC_VISION;
+
+    String property() {
+      return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+  }
+
+  public enum Priority {
+    INTERACTIVE,
+    BACKGROUND
+  }
+
+  /** What a call is made for */
+  public enum Feature {
+    TIDBITS(Priority.BACKGROUND),
+    PROOFREAD(Priority.INTERACTIVE),
+    RAG(Priority.INTERACTIVE),
+    ITINERARY(Priority.INTERACTIVE),
+    IMAGE_DESCRIPTION(Priority.BACKGROUND),
+    POST_ENRICHMENT(Priority.BACKGROUND),
+    CONTENT_INGESTION(Priority.BACKGROUND);
+
+    private final Priority priority;
+
+    Feature(Priority priority) {
+      this.priority = priority;
+    }
+
+    public Priority priority() {
+      return priority;
+    }
+
+    String tag() {
+      return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+  }
+
+  /** A provider call that may throw checked exceptions, rethrown as they are */
+  @FunctionalInterface
+  public interface ProviderCall<T, E extends Exception> {
+    T call() throws E;
+  }
+
+  /** Admission of a call, released once the call is over, e.g. when a stream completes */
+  public interface Permit {
+
+    /**
+     * Frees the permit and records the outcome of the call, only the first release counts
+     *
+     * @param result Result of the call for the usage metrics, e.g. the complete chat response
+     * @param error Failure of the call, null when it succeeded
+     */
+    void release(Object result, Throwable error);
+
+    /**
+     * Frees the permit of a call without a result
+     *
+     * @param error Failure of the call, null when it was cancelled
+     */
+    default void release(Throwable error) {
+      release(null, error);
+    }
+  }
+
+  private enum BreakerState {
+    CLOSED,
+    HALF_OPEN,
+    OPEN
+  }
+
+  private static final String PREFIX = "application.ai.scheduler.";
+
+  /** Status codes of throttling and server errors in the messages of the provider clients */
+  private static final Pattern PROVIDER_ERROR_STATUS = Pattern.compile("\\b(408|429|5\\d\\d)\\b");
+
+  private final Map<Endpoint, Lane> lanes = new EnumMap<>(Endpoint.class);
+  private final Environment environment;
+  private final MeterRegistry meterRegistry;
+  private final AiCallMetrics aiCallMetrics;
+
+  private final Duration interactiveAcquireTimeout;
+  private final Duration backgroundAcquireTimeout;
+  private final int failureThreshold;
+  private final Duration openDuration;
+
+  public AiCallScheduler(
+      Environment environment, MeterRegistry meterRegistry, AiCallMetrics aiCallMetrics) {
+
+    this.environment = environment;
+    this.meterRegistry = meterRegistry;
+    this.aiCallMetrics = aiCallMetrics;
+
+    this.interactiveAcquireTimeout =
+        environment.getProperty(
+            PREFIX + "interactive-acquire-timeout", Duration.class, Duration.ofSeconds(10));
+    this.backgroundAcquireTimeout =
+        environment.getProperty(
+            PREFIX + "background-acquire-timeout", Duration.class, Duration.ofSeconds(60));
+    this.failureThreshold =
+        environment.getProperty(PREFIX + "breaker.failure-threshold", Integer.class, 5);
+    this.openDuration =
+        environment.getProperty(
+            PREFIX + "breaker.open-duration", Duration.class, Duration.ofSeconds(30));
+
+    for (Endpoint endpoint : Endpoint.values()) {
+      lanes.put(endpoint, new Lane(endpoint));
+    }
+  }
+
+  /**
+   * Runs a provider call once the endpoint admits it
+   *
+   * @param endpoint Provider endpoint the call goes to
+   * @param feature Feature the call is made for, sets its priority
+   * @param call The call
+   * @return Result of the call
+   * @throws AiServiceUnavailableException When the call is shed or the circuit is open
+   */
+  public <T, E extends Exception> T call(
+      Endpoint endpoint, Feature feature, ProviderCall<T, E> call) throws E {
+
+    Permit permit = acquire(endpoint, feature);
+    T result = null;
+    Throwable error = null;
+    try {
+      result = call.call();
+      return result;
+
+    } catch (Throwable e) {
+      error = e;
+      throw e;
+
+    } finally {
+      permit.release(result, error);
+    }
+  }
+
+  /**
+   * Waits until the endpoint admits a call, for calls that outlive the calling method such as
+   * streams. The permit must be released when the call is over.
+   *
+   * @param endpoint Provider endpoint the call goes to
+   * @param feature Feature the call is made for, sets its priority
+   * @return Permit of the call
+   * @throws AiServiceUnavailableException When the call is shed or the circuit is open
+   */
+  public Permit acquire(Endpoint endpoint, Feature feature) {
+
+    Duration timeout =
+        feature.priority() == Priority.INTERACTIVE
+            ? interactiveAcquireTimeout
+            : backgroundAcquireTimeout;
+
+    try {
+      return lanes.get(endpoint).acquire(feature, System.nanoTime() + timeout.toNanos());
+
+    } catch (AiServiceUnavailableException e) {
+      aiCallMetrics.error(feature, endpoint, e);
+      throw e;
+    }
+  }
+
+  /** Whether a failure says something about the health of the provider */
+  static boolean isProviderFailure(Throwable error) {
+
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+
+      if (cause instanceof IOException || cause instanceof TimeoutException) {
+        return true;
+      }
+      if (cause.getMessage() != null && PROVIDER_ERROR_STATUS.matcher(cause.getMessage()).find()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private final class Lane {
+
+    private final Endpoint endpoint;
+    private final int maxConcurrency;
+    private final int interactiveReserve;
+    private final double rate;
+    private final double burst;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private int inUse;
+    private int interactiveWaiting;
+
+    private double tokens;
+    private long refilledAtNanos = System.nanoTime();
+
+    private BreakerState state = BreakerState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probing;
+
+    Lane(Endpoint endpoint) {
+
+      this.endpoint = endpoint;
+      this.maxConcurrency = Math.max(1, Integer.parseInt(property("max-concurrency", "8")));
+      this.interactiveReserve =
+          Math.min(maxConcurrency - 1, Integer.parseInt(property("interactive-reserve", "2")));
+      this.rate = Math.max(0.001, Double.parseDouble(property("rate", "10")));
+      this.burst = Math.max(1, Double.parseDouble(property("burst", "20")));
+      this.tokens = burst;
+
+      String name = endpoint.property();
+      Gauge.builder("ai.scheduler.in.flight", this, lane -> lane.inUse)
+          .tag("endpoint", name)
+          .register(meterRegistry);
+      Gauge.builder("ai.scheduler.waiting.interactive", this, lane -> lane.interactiveWaiting)
+          .tag("endpoint", name)
+          .register(meterRegistry);
+      Gauge.builder("ai.scheduler.breaker.state", this, lane -> lane.state.ordinal())
+          .description("0 closed, 1 half open, 2 open")
+          .tag("endpoint", name)
+          .register(meterRegistry);
+    }
+
+    Permit acquire(Feature feature, long deadlineNanos) {
+
+      Priority priority = feature.priority();
+      boolean interactive = priority == Priority.INTERACTIVE;
+      boolean probe = false;
+
+      lock.lock();
+      try {
+        probe = admitThroughBreaker(priority);
+
+        if (interactive) {
+          interactiveWaiting++;
+        }
+        try {
+          int limit = interactive ? maxConcurrency : maxConcurrency - interactiveReserve;
+          while (inUse >= limit || (!interactive && interactiveWaiting > 0)) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+              shed(priority, probe);
+            }
+            changed.awaitNanos(remaining);
+          }
+        } finally {
+          if (interactive) {
+            interactiveWaiting--;
+            changed.signalAll();
+          }
+        }
+        inUse++;
+
+        boolean tokenTaken = false;
+        try {
+          tokenTaken =
+              interactive ? awaitReservedToken(deadlineNanos) : awaitFullToken(deadlineNanos);
+        } finally {
+          if (!tokenTaken) {
+            inUse--;
+            changed.signalAll();
+          }
+        }
+        if (!tokenTaken) {
+          shed(priority, probe);
+        }
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (probe) {
+          probing = false;
+        }
+        throw new AiServiceUnavailableException(ResponseMessage.AI_SERVICE_BUSY);
+
+      } finally {
+        lock.unlock();
+      }
+
+      count(priority, "admitted");
+      return new LanePermit(this, feature, probe, System.nanoTime());
+    }
+
+    /** Rejects the call while the circuit is open, returns whether the call is the probe */
+    private boolean admitThroughBreaker(Priority priority) {
+
+      if (state == BreakerState.OPEN) {
+        if (System.nanoTime() - openedAtNanos < openDuration.toNanos()) {
+          count(priority, "rejected");
+          throw new AiServiceUnavailableException(ResponseMessage.AI_SERVICE_UNAVAILABLE);
+        }
+        state = BreakerState.HALF_OPEN;
+      }
+
+      if (state == BreakerState.HALF_OPEN) {
+        if (probing) {
+          count(priority, "rejected");
+          throw new AiServiceUnavailableException(ResponseMessage.AI_SERVICE_UNAVAILABLE);
+        }
+        probing = true;
+        return true;
+      }
+
+      return false;
+    }
+
+    private void shed(Priority priority, boolean probe) {
+
+      if (probe) {
+        probing = false;
+      }
+      count(priority, "shed");
+      throw new AiServiceUnavailableException(ResponseMessage.AI_SERVICE_BUSY);
+    }
+
+    /**
+     * Interactive calls take a token even when it is only refilled later, and wait for it
+     *
+     * @return Whether the token is available before the deadline
+     */
+    private boolean awaitReservedToken(long deadlineNanos) throws InterruptedException {
+
+      refill();
+      long readyAtNanos = System.nanoTime() + (long) (Math.max(0, 1 - tokens) / rate * 1e9);
+      if (readyAtNanos > deadlineNanos) {
+        return false;
+      }
+      tokens -= 1;
+
+      long remaining;
+      while ((remaining = readyAtNanos - System.nanoTime()) > 0) {
+        changed.awaitNanos(remaining);
+      }
+      return true;
+    }
+
+    /**
+     * Background calls never borrow, they wait until a whole token is available
+     *
+     * @return Whether a token was taken before the deadline
+     */
+    private boolean awaitFullToken(long deadlineNanos) throws InterruptedException {
+
+      refill();
+      while (tokens < 1) {
+        long waitNanos = (long) ((1 - tokens) / rate * 1e9) + 1;
+        if (System.nanoTime() + waitNanos > deadlineNanos) {
+          return false;
+        }
+        changed.awaitNanos(waitNanos);
+        refill();
+      }
+      tokens -= 1;
+      return true;
+    }
+
+    private void refill() {
+
+      long now = System.nanoTime();
+      tokens = Math.min(burst, tokens + (now - refilledAtNanos) / 1e9 * rate);
+      refilledAtNanos = now;
+    }
+
+    void release(Feature feature, boolean probe, Throwable error) {
+
+      Priority priority = feature.priority();
+      boolean failure = error != null && isProviderFailure(error);
+
+      lock.lock();
+      try {
+        inUse--;
+        changed.signalAll();
+
+        if (probe) {
+          probing = false;
+        }
+
+        if (!failure) {
+          consecutiveFailures = 0;
+          if (state == BreakerState.HALF_OPEN && probe) {
+            state = BreakerState.CLOSED;
+            log.info("AI endpoint {} recovered, circuit closed", endpoint);
+          }
+          return;
+        }
+
+        consecutiveFailures++;
+        if (state == BreakerState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+          if (state != BreakerState.OPEN) {
+            log.warn(
+                "AI endpoint {} failing ({} consecutive failures, last: {}), circuit open for {}",
+                endpoint,
+                consecutiveFailures,
+                error.getMessage(),
+                openDuration);
+          }
+          state = BreakerState.OPEN;
+          openedAtNanos = System.nanoTime();
+        }
+
+      } finally {
+        lock.unlock();
+      }
+
+      count(priority, "failed");
+    }
+
+    void recordCall(Feature feature, long latencyNanos, Object result, Throwable error) {
+      aiCallMetrics.record(feature, endpoint, Duration.ofNanos(latencyNanos), result, error);
+    }
+
+    private void count(Priority priority, String result) {
+      meterRegistry
+          .counter(
+              "ai.scheduler.calls",
+              "endpoint",
+              endpoint.property(),
+              "priority",
+              priority.name().toLowerCase(Locale.ROOT),
+              "result",
+              result)
+          .increment();
+    }
+
+    private String property(String key, String defaultValue) {
+      return environment.getProperty(
+          PREFIX + endpoint.property() + "." + key,
+          environment.getProperty(PREFIX + key, defaultValue));
+    }
+  }
+
+  private record LanePermit(
+      Lane lane, Feature feature, boolean probe, long admittedAtNanos, AtomicBoolean released)
+      implements Permit {
+
+    LanePermit(Lane lane, Feature feature, boolean probe, long admittedAtNanos) {
+      this(lane, feature, probe, admittedAtNanos, new AtomicBoolean());
+    }
+
+    @Override
+    public void release(Object result, Throwable error) {
+      if (released.compareAndSet(false, true)) {
+        lane.release(feature, probe, error);
+        lane.recordCall(feature, System.nanoTime() - admittedAtNanos, result, error);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.devs.roamance.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency and throughput of streamed model responses.
+ *
+ * <p>Each stream records its time to first token and, when it completes, its output rate in
+ * tokens per second measured from the first token. The output token count reported by the model is
+ * used when available, otherwise the number of partial responses. Meters are tagged with the name
+ * of the stream, e.g. {@code proofreading}.
+ */
+@Component
+public class AiStreamMetrics {
+
+  private final MeterRegistry meterRegistry;
+
+  public AiStreamMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Starts measuring a stream, call right before the request is sent
+   *
+   * @param stream Name of the stream
+   * @return Recorder of the stream
+   */
+  public Recorder start(String stream) {
+    return new Recorder(stream, System.nanoTime());
+  }
+
+  /** Measures one stream, thread safe */
+  public final class Recorder {
+
+    private final String stream;
+    private final long startedAtNanos;
+    private final AtomicLong firstTokenAtNanos = new AtomicLong();
+    private final AtomicInteger partialResponses = new AtomicInteger();
+
+    private Recorder(String stream, long startedAtNanos) {
+      this.stream = stream;
+      this.startedAtNanos = startedAtNanos;
+    }
+
+    /** Records a partial response */
+    public void token() {
+
+      partialResponses.incrementAndGet();
+
+      long now = System.nanoTime();
+      if (firstTokenAtNanos.compareAndSet(0, now)) {
+        Timer.builder("ai.stream.time.to.first.token")
+            .tag("stream", stream)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(Duration.ofNanos(now - startedAtNanos));
+      }
+    }
+
+    /**
+     * Records the output rate of a completed stream
+     *
+     * @param outputTokens Output tokens reported by the model, null when unknown
+     */
+    public void complete(Integer outputTokens) {
+
+      long firstToken = firstTokenAtNanos.get();
+      if (firstToken == 0) {
+        return;
+      }
+
+      double seconds = (System.nanoTime() - firstToken) / 1e9;
+      int tokens = outputTokens != null ? outputTokens : partialResponses.get();
+      if (seconds <= 0 || tokens <= 1) {
+        return;
+      }
+
+      DistributionSummary.builder("ai.stream.tokens.per.second")
+          .tag("stream", stream)
+          .baseUnit("tokens/s")
+          .register(meterRegistry)
+          .record(tokens / seconds);
+    }
+  }
+}
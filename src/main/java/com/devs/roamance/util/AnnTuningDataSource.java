@@ -0,0 +1,124 @@
+package com.devs.roamance.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+
+/**
+ * Applies per-query ANN search parameters to the pgvector connections.
+ *
+ * <p>{@code hnsw.ef_search} and {@code ivfflat.probes} are session settings, so they are set on the
+ * pooled connection while a search runs inside {@link #withOptions} and reset before the
+ * connection goes back to the pool. Connections borrowed without options are handed out
+ * untouched.
+ */
+public class AnnTuningDataSource extends DelegatingDataSource {
+
+  /** ANN search parameters, null fields keep the server defaults */
+  public record AnnOptions(Integer efSearch, Integer probes) {
+
+    public static final AnnOptions DEFAULT = new AnnOptions(null, null);
+
+    boolean isDefault() {
+      return efSearch == null && probes == null;
+    }
+  }
+
+  private static final ThreadLocal<AnnOptions> CURRENT = new ThreadLocal<>();
+
+  public AnnTuningDataSource(DataSource targetDataSource) {
+    super(targetDataSource);
+  }
+
+  /**
+   * Runs an action with ANN search parameters applied to the connections it borrows
+   *
+   * @param options Parameters to apply
+   * @param action Action running the vector searches
+   * @return Result of the action
+   */
+  public static <T> T withOptions(AnnOptions options, Supplier<T> action) {
+
+    if (options == null || options.isDefault()) {
+      return action.get();
+    }
+
+    AnnOptions previous = CURRENT.get();
+    CURRENT.set(options);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  @Override
+  @NonNull
+  public Connection getConnection() throws SQLException {
+    return tune(super.getConnection());
+  }
+
+  @Override
+  @NonNull
+  public Connection getConnection(@NonNull String username, @NonNull String password)
+      throws SQLException {
+    return tune(super.getConnection(username, password));
+  }
+
+  private Connection tune(Connection connection) throws SQLException {
+
+    AnnOptions options = CURRENT.get();
+    if (options == null || options.isDefault()) {
+      return connection;
+    }
+
+    try (Statement statement = connection.createStatement()) {
+      if (options.efSearch() != null) {
+        statement.execute("SET hnsw.ef_search = " + options.efSearch());
+      }
+      if (options.probes() != null) {
+        statement.execute("SET ivfflat.probes = " + options.probes());
+      }
+
+    } catch (SQLException e) {
+      connection.close();
+      throw e;
+    }
+
+    return (Connection)
+        Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              if ("close".equals(method.getName())) {
+                reset(connection);
+              }
+              try {
+                return method.invoke(connection, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
+
+  private void reset(Connection connection) {
+
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("RESET hnsw.ef_search");
+      statement.execute("RESET ivfflat.probes");
+
+    } catch (SQLException e) {
+      // A connection with leftover settings only affects search quality, never correctness
+    }
+  }
+}
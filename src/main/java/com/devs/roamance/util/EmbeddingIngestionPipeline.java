@@ -0,0 +1,398 @@
+package com.devs.roamance.util;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects text segments from many documents and embeds and stores them in large batches.
+ *
+ * <p>Segments wait in a bounded queue until either {@code batch-size} segments are available or
+ * {@code window} has passed since the first one arrived. Each batch costs one embedding request
+ * and one multi-row insert per target table. When the queue is full, {@link #submit} blocks for up
+ * to {@code enqueue-timeout} before rejecting the whole document, which pushes back on the
+ * producers.
+ */
+@Component
+@Slf4j
+public class EmbeddingIngestionPipeline {
+
+  private static final String DOCUMENT_TASK_TYPE = "search_document";
+
+  private final RagUtil ragUtil;
+  private final RagSemanticCache semanticCache;
+
+  @Value("${application.nomic.api-key}")
+  private String nomicApiKey;
+
+  @Value("${application.ai.ingestion.batch-size:64}")
+  private int batchSize;
+
+  @Value("${application.ai.ingestion.window:500ms}")
+  private Duration window;
+
+  @Value("${application.ai.ingestion.enqueue-timeout:5s}")
+  private Duration enqueueTimeout;
+
+  @Value("${application.ai.ingestion.flush-concurrency:2}")
+  private int flushConcurrency;
+
+  @Value("${application.ai.ingestion.max-attempts:3}")
+  private int maxAttempts;
+
+  private final BlockingQueue<PendingSegment> queue;
+  private final MeterRegistry meterRegistry;
+
+  private final Counter ingestedSegments;
+  private final Counter failedSegments;
+  private final Counter rejectedSegments;
+  private final DistributionSummary batchFillRatio;
+  private final Timer batchTimer;
+
+  private ExecutorService collector;
+  private ExecutorService flushExecutor;
+  private Semaphore flushPermits;
+  private volatile boolean running;
+
+  public EmbeddingIngestionPipeline(
+      RagUtil ragUtil,
+      RagSemanticCache semanticCache,
+      MeterRegistry meterRegistry,
+      @Value("${application.ai.ingestion.queue-capacity:10000}") int queueCapacity) {
+
+    this.ragUtil = ragUtil;
+    this.semanticCache = semanticCache;
+    this.meterRegistry = meterRegistry;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    this.ingestedSegments =
+        Counter.builder("embedding.ingestion.segments")
+            .description("Segments embedded and stored")
+            .tag("result", "stored")
+            .register(meterRegistry);
+    this.failedSegments =
+        Counter.builder("embedding.ingestion.segments")
+            .description("Segments dropped after exhausting retries")
+            .tag("result", "failed")
+            .register(meterRegistry);
+    this.rejectedSegments =
+        Counter.builder("embedding.ingestion.segments")
+            .description("Segments rejected because the queue stayed full")
+            .tag("result", "rejected")
+            .register(meterRegistry);
+    this.batchFillRatio =
+        DistributionSummary.builder("embedding.ingestion.batch.fill.ratio")
+            .description("Batch size relative to the configured maximum")
+            .register(meterRegistry);
+    this.batchTimer =
+        Timer.builder("embedding.ingestion.batch.duration")
+            .description("Time to embed and store one batch")
+            .register(meterRegistry);
+
+    Gauge.builder("embedding.ingestion.queue.size", queue, BlockingQueue::size)
+        .description("Segments waiting to be embedded")
+        .register(meterRegistry);
+  }
+
+  /** Segment waiting for the next batch together with the submission it belongs to. */
+  private record PendingSegment(String tableName, TextSegment segment, Submission submission) {}
+
+  /** Completes once every segment of one submitted document has been stored. */
+  private static final class Submission {
+
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final AtomicInteger remaining;
+
+    private Submission(int segments) {
+      this.remaining = new AtomicInteger(segments);
+    }
+
+    private void segmentStored() {
+      if (remaining.decrementAndGet() == 0) {
+        future.complete(null);
+      }
+    }
+
+    private void fail(Throwable cause) {
+      future.completeExceptionally(cause);
+    }
+
+    private boolean failed() {
+      return future.isCompletedExceptionally();
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+
+    running = true;
+    flushPermits = new Semaphore(flushConcurrency);
+    flushExecutor =
+        Executors.newFixedThreadPool(
+            flushConcurrency, Thread.ofPlatform().name("Embedding-Flush-", 0).factory());
+    collector =
+        Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("Embedding-Collector").daemon().factory());
+    collector.execute(this::collect);
+  }
+
+  /**
+   * Splits a document and queues its segments for batched embedding
+   *
+   * @param document Document to ingest
+   * @param contentId Id of the content the document belongs to
+   * @param tableName Vector table the segments are written to
+   * @return Future completed when all segments are stored
+   */
+  public CompletableFuture<Void> submit(Document document, String contentId, String tableName) {
+
+    if (document == null || document.text() == null || document.text().isBlank()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    List<TextSegment> segments = ragUtil.toSegments(document, contentId);
+    if (segments.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    Submission submission = new Submission(segments.size());
+
+    try {
+      for (TextSegment segment : segments) {
+
+        boolean queued =
+            queue.offer(
+                new PendingSegment(tableName, segment, submission),
+                enqueueTimeout.toMillis(),
+                TimeUnit.MILLISECONDS);
+
+        if (!queued) {
+          rejectedSegments.increment(segments.size());
+          reject(
+              submission,
+              new RejectedExecutionException(
+                  "Embedding ingestion queue is full for " + contentId));
+          break;
+        }
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      reject(submission, e);
+    }
+
+    return submission.future;
+  }
+
+  /**
+   * Fails a submission and takes its queued segments back, so that a document is stored whole or
+   * not at all. Segments already collected into a batch are skipped when the batch is flushed.
+   */
+  private void reject(Submission submission, Throwable cause) {
+
+    submission.fail(cause);
+    queue.removeIf(pending -> pending.submission() == submission);
+  }
+
+  private void collect() {
+
+    List<PendingSegment> batch = new ArrayList<>(batchSize);
+
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingSegment first = queue.poll(window.toMillis(), TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + window.toNanos();
+        while (batch.size() < batchSize) {
+          queue.drainTo(batch, batchSize - batch.size());
+
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+
+          PendingSegment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+
+        dispatch(List.copyOf(batch));
+        batch.clear();
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+  }
+
+  private void dispatch(List<PendingSegment> batch) throws InterruptedException {
+
+    // Bounds the number of batches in flight, the queue fills up behind a slow provider
+    flushPermits.acquire();
+
+    try {
+      flushExecutor.execute(
+          () -> {
+            try {
+              flush(batch);
+            } finally {
+              flushPermits.release();
+            }
+          });
+
+    } catch (RejectedExecutionException e) {
+      flushPermits.release();
+      batch.forEach(pending -> pending.submission().fail(e));
+    }
+  }
+
+  private void flush(List<PendingSegment> collected) {
+
+    // Segments of rejected or failed documents would only store part of them
+    List<PendingSegment> batch =
+        collected.stream().filter(pending -> !pending.submission().failed()).toList();
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    batchFillRatio.record((double) batch.size() / batchSize);
+
+    Timer.Sample sample = Timer.start(meterRegistry);
+
+    try {
+      EmbeddingModel embeddingModel = ragUtil.getEmbeddingModel(nomicApiKey, DOCUMENT_TASK_TYPE);
+      List<TextSegment> segments = batch.stream().map(PendingSegment::segment).toList();
+
+      List<Embedding> embeddings =
+          withRetry("embed", () -> embeddingModel.embedAll(segments).content());
+
+      Map<String, List<Integer>> indexesByTable = new LinkedHashMap<>();
+      for (int i = 0; i < batch.size(); i++) {
+        indexesByTable
+            .computeIfAbsent(batch.get(i).tableName(), table -> new ArrayList<>())
+            .add(i);
+      }
+
+      for (Map.Entry<String, List<Integer>> entry : indexesByTable.entrySet()) {
+        storeTable(entry.getKey(), entry.getValue(), batch, embeddings);
+      }
+
+    } catch (Exception e) {
+      restoreInterrupt(e);
+      log.error("Embedding batch of {} segments failed: {}", batch.size(), e.getMessage(), e);
+      failedSegments.increment(batch.size());
+      batch.forEach(pending -> pending.submission().fail(e));
+
+    } finally {
+      sample.stop(batchTimer);
+    }
+  }
+
+  private void storeTable(
+      String tableName,
+      List<Integer> indexes,
+      List<PendingSegment> batch,
+      List<Embedding> embeddings) {
+
+    List<Embedding> tableEmbeddings = indexes.stream().map(embeddings::get).toList();
+    List<TextSegment> tableSegments = indexes.stream().map(i -> batch.get(i).segment()).toList();
+
+    try {
+      withRetry(
+          "store",
+          () -> ragUtil.getEmbeddingStore(tableName).addAll(tableEmbeddings, tableSegments));
+
+      ingestedSegments.increment(indexes.size());
+      semanticCache.invalidateSimilar(tableEmbeddings);
+      indexes.forEach(i -> batch.get(i).submission().segmentStored());
+
+    } catch (Exception e) {
+      restoreInterrupt(e);
+      log.error("Storing {} segments in {} failed: {}", indexes.size(), tableName, e.getMessage());
+      failedSegments.increment(indexes.size());
+      indexes.forEach(i -> batch.get(i).submission().fail(e));
+    }
+  }
+
+  private <T> T withRetry(String operation, Supplier<T> action) throws InterruptedException {
+
+    long backoffMillis = 500;
+
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return action.get();
+
+      } catch (RuntimeException e) {
+        if (attempt >= maxAttempts) {
+          throw e;
+        }
+
+        log.warn(
+            "Embedding batch {} attempt {} failed, retrying in {} ms: {}",
+            operation,
+            attempt,
+            backoffMillis,
+            e.getMessage());
+
+        Thread.sleep(backoffMillis);
+        backoffMillis *= 2;
+      }
+    }
+  }
+
+  private void restoreInterrupt(Exception e) {
+    if (e instanceof InterruptedException) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+
+    running = false;
+
+    collector.shutdown();
+    if (!collector.awaitTermination(window.toMillis() * 4, TimeUnit.MILLISECONDS)) {
+      collector.shutdownNow();
+    }
+
+    flushExecutor.shutdown();
+    if (!flushExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+      log.warn("Embedding flush workers did not finish in time, {} segments dropped", queue.size());
+      flushExecutor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package com.devs.roamance.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.OnnxEmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import dev.langchain4j.model.nomic.NomicEmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Supplies the text embedding models, backed either by the Nomic API or by an ONNX model running
+ * in-process on CPU.
+ *
+ * <p>The provider is selected with {@code application.ai.embedding.provider}. The ONNX model has to
+ * produce vectors in the space of the stored ones, i.e. an export of nomic-embed-text-v1.5 with 768
+ * dimensions, which is checked at startup. Nomic task types are applied as the {@code
+ * "search_document: "} / {@code "search_query: "} prefixes the model was trained with. A single
+ * ONNX session serves every task type, and a batch passed to {@code embedAll} is spread over a
+ * fixed pool of {@code onnx.threads} workers so CPU use stays bounded under load.
+ */
+@Component
+@Slf4j
+public class EmbeddingModelProvider {
+
+  public enum Provider {
+    NOMIC,
+    ONNX
+  }
+
+  private final Provider provider;
+  private final int maxSegmentsPerBatch;
+  private final AiCallScheduler aiCallScheduler;
+  private final Map<String, EmbeddingModel> models = new ConcurrentHashMap<>();
+
+  @Value("${application.ai.embedding.onnx.model-path:}")
+  private String onnxModelPath;
+
+  @Value("${application.ai.embedding.onnx.tokenizer-path:}")
+  private String onnxTokenizerPath;
+
+  @Value("${application.ai.embedding.onnx.pooling:mean}")
+  private String onnxPooling;
+
+  @Value("${application.ai.embedding.onnx.threads:4}")
+  private int onnxThreads;
+
+  private ExecutorService onnxExecutor;
+  private EmbeddingModel onnxModel;
+
+  public EmbeddingModelProvider(
+      @Value("${application.ai.embedding.provider:nomic}") String provider,
+      @Value("${application.ai.ingestion.batch-size:64}") int maxSegmentsPerBatch,
+      AiCallScheduler aiCallScheduler) {
+
+    this.provider = Provider.valueOf(provider.toUpperCase(Locale.ROOT));
+    this.maxSegmentsPerBatch = maxSegmentsPerBatch;
+    this.aiCallScheduler = aiCallScheduler;
+  }
+
+  @PostConstruct
+  public void start() {
+
+    if (provider != Provider.ONNX) {
+      return;
+    }
+
+    onnxExecutor =
+        Executors.newFixedThreadPool(
+            onnxThreads, Thread.ofPlatform().name("Onnx-Embedding-", 0).daemon().factory());
+    onnxModel =
+        onnx(
+            Path.of(onnxModelPath),
+            Path.of(onnxTokenizerPath),
+            PoolingMode.valueOf(onnxPooling.toUpperCase(Locale.ROOT)),
+            onnxExecutor);
+
+    // Vectors of another dimension could not be stored next to or searched against the others
+    int dimension = onnxModel.dimension();
+    if (dimension != PgVectorStoreRegistry.NOMIC_DIMENSION) {
+      throw new IllegalStateException(
+          String.format(
+              "ONNX embedding model %s has dimension %d, the vector tables use %d",
+              onnxModelPath, dimension, PgVectorStoreRegistry.NOMIC_DIMENSION));
+    }
+
+    log.info(
+        "Using in-process ONNX embedding model {} with {} threads", onnxModelPath, onnxThreads);
+  }
+
+  /**
+   * Returns the shared text embedding model of a task type
+   *
+   * @param apiKey Nomic API key, unused by the ONNX provider
+   * @param taskType Nomic task type, e.g. "search_document" or "search_query"
+   * @return Shared EmbeddingModel instance
+   */
+  public EmbeddingModel get(String apiKey, String taskType) {
+
+    // Both models are stateless and thread safe, one instance per task type is enough
+    return models.computeIfAbsent(
+        taskType,
+        type ->
+            provider == Provider.ONNX
+                ? withTaskPrefix(onnxModel, type)
+                : scheduled(nomic(apiKey, type, maxSegmentsPerBatch), type));
+  }
+
+  /** Nomic API calls go through the scheduler, queries serve RAG and documents the ingestion */
+  private EmbeddingModel scheduled(EmbeddingModel model, String taskType) {
+
+    AiCallScheduler.Feature feature =
+        "search_query".equals(taskType)
+            ? AiCallScheduler.Feature.RAG
+            : AiCallScheduler.Feature.CONTENT_INGESTION;
+
+    return new EmbeddingModel() {
+
+      @Override
+      public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        return aiCallScheduler.call(
+            AiCallScheduler.Endpoint.NOMIC_TEXT, feature, () -> model.embedAll(segments));
+      }
+
+      @Override
+      public int dimension() {
+        return model.dimension();
+      }
+    };
+  }
+
+  /**
+   * Builds a Nomic API text embedding model
+   *
+   * @param apiKey Nomic API key
+   * @param taskType Nomic task type
+   * @param maxSegmentsPerBatch Segments sent per request
+   * @return Nomic embedding model
+   */
+  public static EmbeddingModel nomic(String apiKey, String taskType, int maxSegmentsPerBatch) {
+
+    return NomicEmbeddingModel.builder()
+        .baseUrl("https://api-atlas.nomic.ai/v1/")
+        .apiKey(apiKey)
+        .modelName("nomic-embed-text-v1.5")
+        .taskType(taskType)
+        .maxSegmentsPerBatch(maxSegmentsPerBatch)
+        .timeout(Duration.ofSeconds(10))
+        // Retries belong to the callers, each attempt takes a scheduler permit of its own
+        .maxRetries(0)
+        .build();
+  }
+
+  /**
+   * Loads an ONNX text embedding model
+   *
+   * @param model Path of the ONNX model file
+   * @param tokenizer Path of the tokenizer.json of the model
+   * @param pooling Pooling of the token embeddings, mean for Nomic models
+   * @param executor Workers the segments of a batch are embedded on
+   * @return In-process embedding model
+   */
+  public static EmbeddingModel onnx(
+      Path model, Path tokenizer, PoolingMode pooling, Executor executor) {
+
+    return new OnnxEmbeddingModel(model, tokenizer, pooling, executor);
+  }
+
+  /**
+   * Prefixes every input with a Nomic task type, as the Nomic API does server side
+   *
+   * @param model Model to delegate to
+   * @param taskType Nomic task type
+   * @return Model embedding the prefixed inputs
+   */
+  public static EmbeddingModel withTaskPrefix(EmbeddingModel model, String taskType) {
+
+    String prefix = taskType + ": ";
+
+    return new EmbeddingModel() {
+
+      @Override
+      public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        return model.embedAll(
+            segments.stream()
+                .map(segment -> TextSegment.from(prefix + segment.text(), segment.metadata()))
+                .toList());
+      }
+
+      @Override
+      public int dimension() {
+        return model.dimension();
+      }
+    };
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (onnxExecutor != null) {
+      onnxExecutor.shutdownNow();
+    }
+  }
+}
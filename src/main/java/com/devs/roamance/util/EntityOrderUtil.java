@@ -0,0 +1,35 @@
+package com.devs.roamance.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Hydration of the id lists computed outside the database, like the nearby results of the geo
+ * index or the feed and for-you pages, which {@code findAllById} returns in no particular order.
+ */
+public class EntityOrderUtil {
+
+  private EntityOrderUtil() {}
+
+  /**
+   * Puts entities fetched by id back in the order of the ids, dropping the ones not found
+   *
+   * @param ids Ids in the wanted order
+   * @param entities The entities, in any order
+   * @param idOf Id of an entity
+   * @return Entities in the order of the ids
+   */
+  public static <T> List<T> inIdOrder(
+      List<UUID> ids, Collection<T> entities, Function<T, UUID> idOf) {
+
+    Map<UUID, T> byId =
+        entities.stream().collect(Collectors.toMap(idOf, Function.identity(), (a, b) -> a));
+
+    return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+  }
+}
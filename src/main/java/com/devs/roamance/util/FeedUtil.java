@@ -0,0 +1,150 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.model.social.FeedEntry;
+import com.devs.roamance.model.social.FeedPullAuthor;
+import com.devs.roamance.model.social.Post;
+import com.devs.roamance.repository.FeedEntryRepository;
+import com.devs.roamance.repository.FeedPullAuthorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Maintains the materialized home feeds.
+ *
+ * <p>A new post is copied into the feed of every member of its author's audience, in the
+ * transaction that saves it, so reading a feed is an index scan over ids. Authors whose audience is
+ * larger than {@code max-audience} are not copied, they are marked as pull authors and their recent
+ * posts are merged into a feed when its first page is read. Feeds keep at most {@code max-entries}
+ * entries younger than {@code max-age}, older ones are trimmed every {@code trim-interval}.
+ */
+@Component
+@Slf4j
+public class FeedUtil {
+
+  private final FeedEntryRepository feedEntryRepository;
+  private final FeedPullAuthorRepository pullAuthorRepository;
+
+  private final Counter pushedPosts;
+  private final Counter pulledPosts;
+  private final DistributionSummary fanOutSize;
+
+  @Value("${application.feed.max-audience:5000}")
+  private long maxAudience;
+
+  @Value("${application.feed.max-entries:1000}")
+  private int maxEntries;
+
+  @Value("${application.feed.max-age:30d}")
+  private Duration maxAge;
+
+  public FeedUtil(
+      FeedEntryRepository feedEntryRepository,
+      FeedPullAuthorRepository pullAuthorRepository,
+      MeterRegistry meterRegistry) {
+
+    this.feedEntryRepository = feedEntryRepository;
+    this.pullAuthorRepository = pullAuthorRepository;
+
+    this.pushedPosts = meterRegistry.counter("feed.posts", "mode", "push");
+    this.pulledPosts = meterRegistry.counter("feed.posts", "mode", "pull");
+    this.fanOutSize = meterRegistry.summary("feed.fan.out.entries");
+  }
+
+  /**
+   * Adds a new post to the feeds of its audience. Must be called inside the transaction that saves
+   * the post, after it was flushed.
+   */
+  public void fanOut(Post post) {
+
+    UUID authorId = post.getUser().getId();
+    long audience = feedEntryRepository.countAudience(authorId);
+
+    if (audience > maxAudience) {
+      pullAuthorRepository.save(
+          new FeedPullAuthor(authorId, audience, OffsetDateTime.now(ZoneOffset.UTC)));
+      pulledPosts.increment();
+      return;
+    }
+
+    if (pullAuthorRepository.existsById(authorId)) {
+      pullAuthorRepository.deleteById(authorId);
+    }
+
+    int entries =
+        feedEntryRepository.fanOut(post.getId(), authorId, post.getAudit().getCreatedAt());
+
+    fanOutSize.record(entries);
+    pushedPosts.increment();
+  }
+
+  /** Removes a deleted post from every feed, in the transaction that deletes it. */
+  public void remove(UUID postId) {
+
+    feedEntryRepository.deleteAllByPostId(postId);
+  }
+
+  /**
+   * Merges the recent posts of the pull authors a user sees into their feed. Already merged posts
+   * are skipped, so it is safe to call on every read of the first page.
+   */
+  @Transactional
+  public void pull(UUID userId) {
+
+    feedEntryRepository.pull(userId, OffsetDateTime.now(ZoneOffset.UTC).minus(maxAge));
+  }
+
+  /** Whether the user has a feed, users without any connection fall back to the latest posts */
+  public boolean hasFeed(UUID userId) {
+
+    return feedEntryRepository.existsByUserId(userId);
+  }
+
+  /**
+   * Reads a page of a feed, newest posts first
+   *
+   * @return Ids of the posts and the cursor of the next page
+   */
+  public PaginationSortingUtil.CursorPage<UUID> page(
+      UUID userId, String cursor, int pageNumber, int pageSize) {
+
+    PaginationSortingUtil.CursorPage<FeedEntry> entries =
+        PaginationSortingUtil.paginate(
+            FeedEntry.class,
+            cursor,
+            pageNumber,
+            pageSize,
+            "createdAt",
+            "desc",
+            pageable -> feedEntryRepository.findAllByUserId(userId, pageable),
+            (position, sort, limit) ->
+                feedEntryRepository.findAllByUserId(userId, position, sort, limit));
+
+    return new PaginationSortingUtil.CursorPage<>(
+        entries.content().stream().map(FeedEntry::getPostId).toList(), entries.nextCursor());
+  }
+
+  @Scheduled(
+      fixedDelayString = "${application.feed.trim-interval:3600000}",
+      initialDelayString = "${application.feed.trim-interval:3600000}")
+  @Transactional
+  public void trim() {
+
+    int expired =
+        feedEntryRepository.deleteAllOlderThan(OffsetDateTime.now(ZoneOffset.UTC).minus(maxAge));
+    int overflow = feedEntryRepository.deleteOverflow(maxEntries);
+
+    if (expired + overflow > 0) {
+      log.info("Feed trim removed {} expired and {} overflowing entries", expired, overflow);
+    }
+  }
+}
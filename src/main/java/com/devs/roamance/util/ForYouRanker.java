@@ -0,0 +1,305 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.model.common.ActivityType;
+import com.devs.roamance.model.common.Location;
+import com.devs.roamance.model.user.preference.CuisineType;
+import com.devs.roamance.model.user.preference.UserPreferences;
+import com.devs.roamance.repository.PostRepository;
+import com.devs.roamance.repository.UserPreferencesRepository;
+import com.devs.roamance.service.AiService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ranks the "for you" feed from an in-memory {@link RankingCandidatePool}.
+ *
+ * <p>The pool holds the {@code pool-size} newest safe posts younger than {@code max-age}. Their
+ * counters and locations are reloaded every {@code refresh-interval} with one indexed query, the
+ * mean of their text embeddings is read from the vector store once per post. A reader is described
+ * by their location, from the request or their latest located post, and by the embedding of their
+ * travel preferences. Preference embeddings are cached by text and computed in the background, a
+ * reader whose preferences are not embedded yet is ranked without the similarity term, so a
+ * ranking never waits on the embedding API.
+ *
+ * <p>Until the pool is loaded, and when {@code enabled} is off, {@link #rank} returns empty and
+ * callers serve the latest posts.
+ */
+@Component
+@Slf4j
+public class ForYouRanker {
+
+  private final PostRepository postRepository;
+  private final UserPreferencesRepository userPreferencesRepository;
+  private final RagUtil ragUtil;
+  private final AiService aiService;
+
+  private final RankingCandidatePool pool;
+  private final RankingCandidatePool.Weights weights;
+  private final Timer rankTimer;
+
+  /** Access ordered, the least recently used profile is evicted first */
+  private final LinkedHashMap<String, float[]> profileEmbeddings =
+      new LinkedHashMap<>(64, 0.75f, true);
+
+  private final Set<String> pendingProfiles = ConcurrentHashMap.newKeySet();
+
+  private volatile boolean ready;
+
+  @Value("${application.ranked-feed.enabled:true}")
+  private boolean enabled;
+
+  @Value("${application.ranked-feed.pool-size:5000}")
+  private int poolSize;
+
+  @Value("${application.ranked-feed.max-age:14d}")
+  private Duration maxAge;
+
+  @Value("${application.ranked-feed.embedding-batch-size:500}")
+  private int embeddingBatchSize;
+
+  @Value("${application.ranked-feed.embedding-retry-interval:6h}")
+  private Duration embeddingRetryInterval;
+
+  @Value("${application.ranked-feed.profile-cache-size:1000}")
+  private int profileCacheSize;
+
+  public ForYouRanker(
+      PostRepository postRepository,
+      UserPreferencesRepository userPreferencesRepository,
+      RagUtil ragUtil,
+      AiService aiService,
+      MeterRegistry meterRegistry,
+      @Value("${application.ranked-feed.weights.recency:1.0}") double recency,
+      @Value("${application.ranked-feed.weights.engagement:0.6}") double engagement,
+      @Value("${application.ranked-feed.weights.proximity:0.8}") double proximity,
+      @Value("${application.ranked-feed.weights.similarity:1.2}") double similarity,
+      @Value("${application.ranked-feed.recency-half-life-hours:24}") double halfLifeHours,
+      @Value("${application.ranked-feed.proximity-scale-km:25}") double proximityScaleKm,
+      @Value("${application.ranked-feed.engagement-saturation:1000}") double saturation) {
+
+    this.postRepository = postRepository;
+    this.userPreferencesRepository = userPreferencesRepository;
+    this.ragUtil = ragUtil;
+    this.aiService = aiService;
+
+    this.pool = new RankingCandidatePool(saturation);
+    this.weights =
+        new RankingCandidatePool.Weights(
+            recency, engagement, proximity, similarity, halfLifeHours, proximityScaleKm);
+
+    this.rankTimer =
+        Timer.builder("feed.rank.duration").publishPercentiles(0.5, 0.99).register(meterRegistry);
+    Gauge.builder("feed.rank.candidates", pool, RankingCandidatePool::size).register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    refresh();
+  }
+
+  /** Reloads the features of the candidates and embeds the new ones */
+  @Scheduled(
+      fixedDelayString = "${application.ranked-feed.refresh-interval:30000}",
+      initialDelayString = "${application.ranked-feed.refresh-interval:30000}")
+  public void refresh() {
+
+    if (!enabled) {
+      return;
+    }
+
+    try {
+      List<Object[]> rows =
+          postRepository.findRankingFeatures(
+              OffsetDateTime.now(ZoneOffset.UTC).minus(maxAge), Limit.of(poolSize));
+
+      pool.replace(rows.stream().map(ForYouRanker::toCandidate).toList());
+      ready = true;
+
+    } catch (Exception e) {
+      log.warn("Ranked feed candidates not refreshed: {}", e.getMessage());
+      return;
+    }
+
+    try {
+      loadEmbeddings();
+    } catch (Exception e) {
+      // Posts without an embedding are ranked without similarity and retried next time
+      log.warn("Ranked feed embeddings not loaded: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Ranks the candidates for a reader
+   *
+   * @param userId Id of the reader
+   * @param latitude Latitude of the reader, null to use their latest located post
+   * @param longitude Longitude of the reader, null to use their latest located post
+   * @param offset Number of ranked posts to skip
+   * @param limit Maximum number of posts to return
+   * @return Post ids, best first, or empty when the ranked feed is not available
+   */
+  public Optional<List<UUID>> rank(
+      UUID userId, Double latitude, Double longitude, int offset, int limit) {
+
+    if (!enabled || !ready) {
+      return Optional.empty();
+    }
+
+    Timer.Sample sample = Timer.start();
+
+    double[] location = viewerLocation(userId, latitude, longitude);
+    RankingCandidatePool.Viewer viewer =
+        new RankingCandidatePool.Viewer(
+            userId,
+            OffsetDateTime.now(ZoneOffset.UTC).toEpochSecond(),
+            location[0],
+            location[1],
+            profileEmbedding(userId));
+
+    List<UUID> ranked = pool.rank(viewer, weights, offset, limit);
+
+    sample.stop(rankTimer);
+    return Optional.of(ranked);
+  }
+
+  private void loadEmbeddings() {
+
+    long now = OffsetDateTime.now(ZoneOffset.UTC).toEpochSecond();
+    List<UUID> missing = pool.missingEmbeddings(now);
+
+    for (int from = 0; from < missing.size(); from += embeddingBatchSize) {
+      List<UUID> batch = missing.subList(from, Math.min(missing.size(), from + embeddingBatchSize));
+
+      Map<UUID, float[]> vectors =
+          ragUtil
+              .meanEmbeddings(
+                  batch.stream().map(UUID::toString).toList(), PgVectorStoreRegistry.TEXTS_TABLE)
+              .entrySet()
+              .stream()
+              .collect(
+                  Collectors.toMap(entry -> UUID.fromString(entry.getKey()), Map.Entry::getValue));
+
+      pool.putEmbeddings(vectors);
+
+      // Image only posts have no text vectors, embeddings written without a post update are
+      // picked up at the retry time
+      Set<UUID> withoutEmbedding = new HashSet<>(batch);
+      withoutEmbedding.removeAll(vectors.keySet());
+      pool.markWithoutEmbedding(withoutEmbedding, now + embeddingRetryInterval.toSeconds());
+    }
+  }
+
+  private double[] viewerLocation(UUID userId, Double latitude, Double longitude) {
+
+    if (latitude != null && longitude != null) {
+      return new double[] {latitude, longitude};
+    }
+
+    List<Location> latest = postRepository.findLatestLocations(userId, Limit.of(1));
+    if (latest.isEmpty()) {
+      return new double[] {Double.NaN, Double.NaN};
+    }
+    return new double[] {latest.getFirst().getLatitude(), latest.getFirst().getLongitude()};
+  }
+
+  private float[] profileEmbedding(UUID userId) {
+
+    Optional<UserPreferences> preferences = userPreferencesRepository.findByUserId(userId);
+    if (preferences.isEmpty()) {
+      return null;
+    }
+
+    String profile = profileText(preferences.get());
+
+    synchronized (profileEmbeddings) {
+      float[] cached = profileEmbeddings.get(profile);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    // Readers with the same preferences share one request
+    if (pendingProfiles.add(profile)) {
+      aiService
+          .getQueryEmbedding(profile)
+          .whenComplete(
+              (embedding, error) -> {
+                if (embedding != null) {
+                  cacheProfile(profile, RankingCandidatePool.normalize(embedding.vector()));
+                } else {
+                  log.warn("Preference embedding failed: {}", error.getMessage());
+                }
+                pendingProfiles.remove(profile);
+              });
+    }
+
+    return null;
+  }
+
+  private void cacheProfile(String profile, float[] embedding) {
+
+    synchronized (profileEmbeddings) {
+      profileEmbeddings.put(profile, embedding);
+
+      Iterator<String> eldest = profileEmbeddings.keySet().iterator();
+      while (profileEmbeddings.size() > profileCacheSize && eldest.hasNext()) {
+        eldest.next();
+        eldest.remove();
+      }
+    }
+  }
+
+  /** Preferences as a search query, sorted so that equal preferences give the same text */
+  private static String profileText(UserPreferences preferences) {
+
+    return "Travel style: "
+        + preferences.getTravelStyle()
+        + ". Activities: "
+        + preferences.getActivityTypes().stream()
+            .map(ActivityType::getName)
+            .sorted()
+            .collect(Collectors.joining(", "))
+        + ". Cuisines: "
+        + preferences.getCuisineTypes().stream()
+            .map(CuisineType::toString)
+            .sorted()
+            .collect(Collectors.joining(", "))
+        + ".";
+  }
+
+  private static RankingCandidatePool.Candidate toCandidate(Object[] row) {
+
+    long createdAt = ((OffsetDateTime) row[2]).toEpochSecond();
+
+    return new RankingCandidatePool.Candidate(
+        (UUID) row[0],
+        (UUID) row[1],
+        createdAt,
+        row[7] == null ? createdAt : ((OffsetDateTime) row[7]).toEpochSecond(),
+        ((Number) row[3]).intValue(),
+        ((Number) row[4]).intValue(),
+        row[5] == null ? Double.NaN : ((Number) row[5]).doubleValue(),
+        row[6] == null ? Double.NaN : ((Number) row[6]).doubleValue());
+  }
+}
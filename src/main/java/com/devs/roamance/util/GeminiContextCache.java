@@ -0,0 +1,449 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.config.GeminiModelConfig;
+import com.devs.roamance.exception.AiServiceUnavailableException;
+import com.devs.roamance.util.AiCallScheduler.Endpoint;
+import com.devs.roamance.util.AiCallScheduler.Feature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gemini context caching for the static system instructions.
+ *
+ * <p>The system instruction of a feature is registered once per model as a cached content and
+ * requests then reference it by name instead of sending the instruction again. Cached tokens are
+ * billed at a fraction of the input price. Entries live for {@code ttl} and are extended when less
+ * than {@code refresh-before} is left, so a busy instruction is never registered twice.
+ *
+ * <p>Gemini only caches contents above a minimum size. When registration is refused, or the API is
+ * not reachable, the instruction is not tried again for {@code retry-after} and callers send the
+ * instruction as usual. A cached content that disappeared is dropped and registered again on the
+ * next call.
+ *
+ * <p>The tokens served from the cache are counted per feature in {@code
+ * ai.context.cache.tokens.saved}, and {@code ai.context.cache.requests} tells cached calls from
+ * fallbacks.
+ */
+@Component
+@Slf4j
+public class GeminiContextCache {
+
+  private static final String BASE_URL = "https://generativelanguage.googleapis.com/v1beta/";
+
+  /** Registered cached content, or a failed registration when name is null */
+  private record Entry(String name, long tokens, long expiresAtMillis) {}
+
+  private record Key(String modelName, Feature feature, String instruction) {}
+
+  @Value("${application.ai.context-cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${application.ai.context-cache.ttl:1h}")
+  private Duration ttl;
+
+  @Value("${application.ai.context-cache.refresh-before:10m}")
+  private Duration refreshBefore;
+
+  @Value("${application.ai.context-cache.retry-after:1h}")
+  private Duration retryAfter;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpClient httpClient =
+      HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+  /** Entries by instruction, a future that is not done is a registration in progress */
+  private final Map<Key, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+  private final Map<Key, String> apiKeys = new ConcurrentHashMap<>();
+
+  private final MeterRegistry meterRegistry;
+  private final AiCallScheduler aiCallScheduler;
+
+  public GeminiContextCache(MeterRegistry meterRegistry, AiCallScheduler aiCallScheduler) {
+
+    this.meterRegistry = meterRegistry;
+    this.aiCallScheduler = aiCallScheduler;
+
+    Gauge.builder(
+            "ai.context.cache.size",
+            entries,
+            cached ->
+                cached.values().stream()
+                    .map(GeminiContextCache::completed)
+                    .filter(entry -> entry != null && entry.name() != null)
+                    .count())
+        .description("Number of system instructions cached by Gemini")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Makes sure the system instruction of a feature is cached, registering it on first use
+   *
+   * @param apiKey API key for Google AI services
+   * @param modelName Model name, the cached content belongs to one model
+   * @param feature Feature the instruction belongs to
+   * @param instruction Static system instruction
+   * @return Whether requests can reference the cached instruction
+   */
+  public boolean register(String apiKey, String modelName, Feature feature, String instruction) {
+
+    if (!enabled) {
+      return false;
+    }
+
+    Key key = new Key(modelName, feature, instruction);
+
+    CompletableFuture<Entry> current = entries.get(key);
+    Entry done = current == null ? null : completed(current);
+    if (done != null && done.expiresAtMillis() <= System.currentTimeMillis()) {
+      entries.remove(key, current);
+    }
+
+    // One registration per instruction, made outside the map, concurrent callers wait for it
+    CompletableFuture<Entry> created = new CompletableFuture<>();
+    CompletableFuture<Entry> pending = entries.computeIfAbsent(key, k -> created);
+    if (pending == created) {
+      try {
+        created.complete(register(apiKey, key));
+      } finally {
+        // Waiting callers send the instruction inline when the registration broke unexpectedly
+        created.complete(failed());
+      }
+    }
+
+    Entry entry = pending.join();
+    if (entry.name() == null) {
+      count(feature, "fallback");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Sends a request that references the cached system instruction of a feature
+   *
+   * @param apiKey API key for Google AI services
+   * @param modelName Model name, the cached content belongs to one model
+   * @param config Generation config of the request
+   * @param feature Feature the instruction belongs to
+   * @param instruction Static system instruction
+   * @param text Text of the user message, may be null
+   * @param media Media of the user message, may be empty
+   * @return The response, empty when the instruction is not cached and must be sent as usual
+   * @throws IOException When the request fails for another reason than the cached content
+   */
+  public Optional<ChatResponse> generate(
+      String apiKey,
+      String modelName,
+      GeminiModelConfig config,
+      Feature feature,
+      String instruction,
+      String text,
+      Map<String, RestUtil.Media> media)
+      throws IOException, InterruptedException {
+
+    Key key = new Key(modelName, feature, instruction);
+    CompletableFuture<Entry> cached = entries.get(key);
+    Entry entry = cached == null ? null : completed(cached);
+
+    if (entry == null || entry.name() == null) {
+      count(feature, "fallback");
+      return Optional.empty();
+    }
+
+    ObjectNode body = objectMapper.createObjectNode();
+    body.put("cachedContent", entry.name());
+    body.set("contents", contents(text, media));
+    body.set("generationConfig", generationConfig(config));
+    body.set("safetySettings", safetySettings(config));
+
+    HttpResponse<String> response =
+        send(apiKey, "models/" + modelName + ":generateContent", "POST", body, config.getTimeout());
+
+    if (isCachedContentGone(response)) {
+      log.warn(
+          "Cached instruction of {} rejected ({}), sending it inline: {}",
+          feature,
+          response.statusCode(),
+          response.body());
+      entries.remove(key, cached);
+      count(feature, "fallback");
+      return Optional.empty();
+    }
+    if (response.statusCode() != 200) {
+      throw new IOException(
+          "Gemini call failed with status code: "
+              + response.statusCode()
+              + ", message: "
+              + response.body());
+    }
+
+    JsonNode json = objectMapper.readTree(response.body());
+    long cachedTokens = json.path("usageMetadata").path("cachedContentTokenCount").asLong();
+    if (cachedTokens > 0) {
+      meterRegistry
+          .counter("ai.context.cache.tokens.saved", "feature", feature.tag())
+          .increment(cachedTokens);
+    }
+    count(feature, "cached");
+
+    return Optional.of(chatResponse(json));
+  }
+
+  /** Extends the cached contents that are about to expire */
+  @Scheduled(fixedDelayString = "${application.ai.context-cache.refresh-interval:60000}")
+  public void refresh() {
+
+    long now = System.currentTimeMillis();
+
+    entries.forEach(
+        (key, cached) -> {
+          Entry entry = completed(cached);
+          if (entry == null
+              || entry.name() == null
+              || entry.expiresAtMillis() - now > refreshBefore.toMillis()) {
+            return;
+          }
+
+          try {
+            ObjectNode body = objectMapper.createObjectNode().put("ttl", ttl.toSeconds() + "s");
+            HttpResponse<String> response =
+                send(
+                    apiKeys.get(key),
+                    entry.name() + "?updateMask=ttl",
+                    "PATCH",
+                    body,
+                    Duration.ofSeconds(10));
+
+            if (response.statusCode() != 200) {
+              throw new IOException("status " + response.statusCode() + ": " + response.body());
+            }
+            long expiresAtMillis = System.currentTimeMillis() + ttl.toMillis();
+            entries.replace(
+                key,
+                cached,
+                CompletableFuture.completedFuture(
+                    new Entry(entry.name(), entry.tokens(), expiresAtMillis)));
+
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+          } catch (Exception e) {
+            // Registered again on its next use
+            log.warn("Cached instruction of {} not extended: {}", key.feature(), e.getMessage());
+            entries.remove(key, cached);
+          }
+        });
+  }
+
+  private Entry register(String apiKey, Key key) {
+
+    ObjectNode body = objectMapper.createObjectNode();
+    body.put("model", "models/" + key.modelName());
+    body.put("displayName", "roamance-" + key.feature().tag());
+    body.putObject("systemInstruction")
+        .putArray("parts")
+        .addObject()
+        .put("text", key.instruction());
+    body.put("ttl", ttl.toSeconds() + "s");
+
+    try {
+      HttpResponse<String> response =
+          aiCallScheduler.call(
+              Endpoint.GEMINI,
+              key.feature(),
+              () -> send(apiKey, "cachedContents", "POST", body, Duration.ofSeconds(30)));
+
+      if (response.statusCode() != 200) {
+        log.info(
+            "Instruction of {} not cached ({}), sending it inline for {}: {}",
+            key.feature(),
+            response.statusCode(),
+            retryAfter,
+            response.body());
+        return failed();
+      }
+
+      JsonNode json = objectMapper.readTree(response.body());
+      String name = json.path("name").asText(null);
+      if (name == null) {
+        return failed();
+      }
+
+      long tokens = json.path("usageMetadata").path("totalTokenCount").asLong();
+      log.info("Cached instruction of {} as {} ({} tokens)", key.feature(), name, tokens);
+
+      apiKeys.put(key, apiKey);
+      return new Entry(name, tokens, System.currentTimeMillis() + ttl.toMillis());
+
+    } catch (AiServiceUnavailableException e) {
+      // Shed or circuit open, says nothing about the instruction, tried again on the next call
+      return new Entry(null, 0, System.currentTimeMillis());
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return failed();
+
+    } catch (Exception e) {
+      log.warn("Instruction of {} not cached: {}", key.feature(), e.getMessage());
+      return failed();
+    }
+  }
+
+  private Entry failed() {
+    return new Entry(null, 0, System.currentTimeMillis() + retryAfter.toMillis());
+  }
+
+  /** The entry of a finished registration, null while it is in progress */
+  private static Entry completed(CompletableFuture<Entry> entry) {
+    return entry.isDone() ? entry.getNow(null) : null;
+  }
+
+  private HttpResponse<String> send(
+      String apiKey, String path, String method, ObjectNode body, Duration timeout)
+      throws IOException, InterruptedException {
+
+    HttpRequest request =
+        HttpRequest.newBuilder()
+            .uri(URI.create(BASE_URL + path))
+            .header("x-goog-api-key", apiKey)
+            .header("Content-Type", "application/json")
+            .timeout(timeout)
+            .method(
+                method, HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+            .build();
+
+    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private ArrayNode contents(String text, Map<String, RestUtil.Media> media) {
+
+    ArrayNode contents = objectMapper.createArrayNode();
+    ObjectNode content = contents.addObject().put("role", "user");
+    ArrayNode parts = content.putArray("parts");
+
+    if (text != null && !text.isEmpty()) {
+      parts.addObject().put("text", text);
+    }
+    if (media != null) {
+      for (RestUtil.Media item : media.values()) {
+        parts
+            .addObject()
+            .putObject("inlineData")
+            .put("mimeType", item.mimeType())
+            .put("data", Base64.getEncoder().encodeToString(item.content()));
+      }
+    }
+
+    return contents;
+  }
+
+  private ObjectNode generationConfig(GeminiModelConfig config) {
+
+    ObjectNode generationConfig =
+        objectMapper
+            .createObjectNode()
+            .put("temperature", config.getTemperature())
+            .put("topP", config.getTopP())
+            .put("topK", config.getTopK())
+            .put("maxOutputTokens", config.getMaxOutputTokens());
+
+    if (config.getResponseFormat() != null
+        && config.getResponseFormat().type() == ResponseFormatType.JSON) {
+      generationConfig.put("responseMimeType", "application/json");
+    }
+
+    return generationConfig;
+  }
+
+  private ArrayNode safetySettings(GeminiModelConfig config) {
+
+    ArrayNode safetySettings = objectMapper.createArrayNode();
+    config
+        .getSafetySettings()
+        .forEach(
+            (category, threshold) ->
+                safetySettings
+                    .addObject()
+                    .put("category", category.name())
+                    .put("threshold", threshold.name()));
+
+    return safetySettings;
+  }
+
+  private static ChatResponse chatResponse(JsonNode json) {
+
+    JsonNode candidate = json.path("candidates").path(0);
+
+    StringBuilder text = new StringBuilder();
+    for (JsonNode part : candidate.path("content").path("parts")) {
+      text.append(part.path("text").asText(""));
+    }
+
+    FinishReason finishReason =
+        json.path("promptFeedback").hasNonNull("blockReason")
+            ? FinishReason.CONTENT_FILTER
+            : finishReason(candidate.path("finishReason").asText(""));
+
+    JsonNode usage = json.path("usageMetadata");
+
+    return ChatResponse.builder()
+        .aiMessage(new AiMessage(text.toString()))
+        .finishReason(finishReason)
+        .tokenUsage(
+            new TokenUsage(
+                usage.path("promptTokenCount").asInt(), usage.path("candidatesTokenCount").asInt()))
+        .build();
+  }
+
+  private static FinishReason finishReason(String reason) {
+
+    return switch (reason) {
+      case "STOP" -> FinishReason.STOP;
+      case "MAX_TOKENS" -> FinishReason.LENGTH;
+      case "SAFETY", "RECITATION", "BLOCKLIST", "PROHIBITED_CONTENT", "SPII" ->
+          FinishReason.CONTENT_FILTER;
+      default -> FinishReason.OTHER;
+    };
+  }
+
+  /** Whether the request failed on a cached content that expired, was deleted or is not usable */
+  private static boolean isCachedContentGone(HttpResponse<String> response) {
+
+    int status = response.statusCode();
+    return status == 403
+        || status == 404
+        || (status == 400 && response.body().toLowerCase(Locale.ROOT).contains("cache"));
+  }
+
+  private void count(Feature feature, String result) {
+    meterRegistry
+        .counter("ai.context.cache.requests", "feature", feature.tag(), "result", result)
+        .increment();
+  }
+}
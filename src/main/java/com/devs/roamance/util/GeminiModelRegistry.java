@@ -0,0 +1,211 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.config.GeminiModelConfig;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.googleai.GeminiHarmBlockThreshold;
+import dev.langchain4j.model.googleai.GeminiHarmCategory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches immutable Gemini chat models keyed by model name and {@link GeminiModelConfig}.
+ *
+ * <p>Every Gemini model owns its own HTTP client, so building one per call means a fresh
+ * connection pool and TLS handshake per request. Reusing the instance for an identical
+ * configuration keeps those connections alive across calls.
+ */
+@Component
+@Slf4j
+public class GeminiModelRegistry {
+
+  private final GeminiModelUtil geminiModelUtil;
+
+  private final Map<ModelKey, ChatLanguageModel> chatModels = new ConcurrentHashMap<>();
+  private final Map<ModelKey, StreamingChatLanguageModel> streamingChatModels =
+      new ConcurrentHashMap<>();
+
+  private final AtomicInteger inFlightBuilds = new AtomicInteger();
+
+  private final Counter hits;
+  private final Counter misses;
+
+  public GeminiModelRegistry(GeminiModelUtil geminiModelUtil, MeterRegistry meterRegistry) {
+
+    this.geminiModelUtil = geminiModelUtil;
+
+    this.hits = meterRegistry.counter("gemini.model.registry.requests", "result", "hit");
+    this.misses = meterRegistry.counter("gemini.model.registry.requests", "result", "miss");
+
+    Gauge.builder(
+            "gemini.model.registry.size", () -> chatModels.size() + streamingChatModels.size())
+        .description("Number of cached Gemini model instances")
+        .register(meterRegistry);
+
+    Gauge.builder("gemini.model.registry.in.flight", inFlightBuilds, AtomicInteger::get)
+        .description("Number of Gemini models currently being built")
+        .register(meterRegistry);
+  }
+
+  /** Cache key, holding a copy of the config so that callers mutating theirs cannot alter it. */
+  private record ModelKey(String apiKey, String modelName, ConfigKey config) {
+
+    @Override
+    public String toString() {
+      return "ModelKey[modelName=" + modelName + ", config=" + config + "]";
+    }
+  }
+
+  /** Immutable snapshot of the fields of a {@link GeminiModelConfig} */
+  private record ConfigKey(
+      double temperature,
+      double topP,
+      int topK,
+      int maxOutputTokens,
+      Duration timeout,
+      ResponseFormat responseFormat,
+      Map<GeminiHarmCategory, GeminiHarmBlockThreshold> safetySettings) {
+
+    static ConfigKey of(GeminiModelConfig config) {
+
+      Objects.requireNonNull(config, "config must not be null");
+
+      return new ConfigKey(
+          config.getTemperature(),
+          config.getTopP(),
+          config.getTopK(),
+          config.getMaxOutputTokens(),
+          config.getTimeout(),
+          config.getResponseFormat(),
+          config.getSafetySettings() == null ? null : Map.copyOf(config.getSafetySettings()));
+    }
+
+    /** A new config with the values of the snapshot, the model is built from it */
+    GeminiModelConfig toConfig() {
+
+      return GeminiModelConfig.builder()
+          .temperature(temperature)
+          .topP(topP)
+          .topK(topK)
+          .maxOutputTokens(maxOutputTokens)
+          .timeout(timeout)
+          .responseFormat(responseFormat)
+          .safetySettings(safetySettings)
+          .build();
+    }
+  }
+
+  /**
+   * Returns a cached blocking model for the given configuration, building it on first use
+   *
+   * @param apiKey API key for Google AI services
+   * @param modelName Model name to use (e.g., "gemini-pro")
+   * @param config Configuration object with model parameters
+   * @return Shared ChatLanguageModel instance
+   */
+  public ChatLanguageModel chatModel(String apiKey, String modelName, GeminiModelConfig config) {
+
+    return lookup(
+        chatModels,
+        new ModelKey(apiKey, modelName, ConfigKey.of(config)),
+        key ->
+            geminiModelUtil.geminiModelBuilder(
+                key.apiKey(), key.modelName(), key.config().toConfig()));
+  }
+
+  /**
+   * Returns a cached blocking model for the customized configuration
+   *
+   * @param apiKey API key for Google AI services
+   * @param modelName Model name to use (e.g., "gemini-pro")
+   * @param configCustomizer Consumer to customize the configuration
+   * @return Shared ChatLanguageModel instance
+   */
+  public ChatLanguageModel chatModel(
+      String apiKey,
+      String modelName,
+      Consumer<GeminiModelConfig.GeminiModelConfigBuilder> configCustomizer) {
+
+    return chatModel(apiKey, modelName, buildConfig(configCustomizer));
+  }
+
+  /**
+   * Returns a cached streaming model for the given configuration, building it on first use
+   *
+   * @param apiKey API key for Google AI services
+   * @param modelName Model name to use (e.g., "gemini-pro")
+   * @param config Configuration object with model parameters
+   * @return Shared StreamingChatLanguageModel instance
+   */
+  public StreamingChatLanguageModel streamingChatModel(
+      String apiKey, String modelName, GeminiModelConfig config) {
+
+    return lookup(
+        streamingChatModels,
+        new ModelKey(apiKey, modelName, ConfigKey.of(config)),
+        key ->
+            geminiModelUtil.geminiStreamingModelBuilder(
+                key.apiKey(), key.modelName(), key.config().toConfig()));
+  }
+
+  /**
+   * Returns a cached streaming model for the customized configuration
+   *
+   * @param apiKey API key for Google AI services
+   * @param modelName Model name to use (e.g., "gemini-pro")
+   * @param configCustomizer Consumer to customize the configuration
+   * @return Shared StreamingChatLanguageModel instance
+   */
+  public StreamingChatLanguageModel streamingChatModel(
+      String apiKey,
+      String modelName,
+      Consumer<GeminiModelConfig.GeminiModelConfigBuilder> configCustomizer) {
+
+    return streamingChatModel(apiKey, modelName, buildConfig(configCustomizer));
+  }
+
+  private <T> T lookup(Map<ModelKey, T> cache, ModelKey key, Function<ModelKey, T> factory) {
+
+    Objects.requireNonNull(key.apiKey(), "apiKey must not be null");
+    Objects.requireNonNull(key.modelName(), "modelName must not be null");
+    T cached = cache.get(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    // computeIfAbsent collapses concurrent builds of the same key into a single one
+    return cache.computeIfAbsent(
+        key,
+        k -> {
+          misses.increment();
+          inFlightBuilds.incrementAndGet();
+          try {
+            log.info("Building Gemini model for {}", k);
+            return factory.apply(k);
+          } finally {
+            inFlightBuilds.decrementAndGet();
+          }
+        });
+  }
+
+  private GeminiModelConfig buildConfig(
+      Consumer<GeminiModelConfig.GeminiModelConfigBuilder> configCustomizer) {
+
+    GeminiModelConfig.GeminiModelConfigBuilder configBuilder = GeminiModelConfig.builder();
+    configCustomizer.accept(configBuilder);
+
+    return configBuilder.build();
+  }
+}
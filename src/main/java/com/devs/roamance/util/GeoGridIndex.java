@@ -0,0 +1,502 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.model.common.Location;
+import com.devs.roamance.repository.ItineraryRepository;
+import com.devs.roamance.repository.JournalRepository;
+import com.devs.roamance.repository.PostRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process spatial index of the post, journal and itinerary locations, answering the nearby
+ * searches without touching the database.
+ *
+ * <p>Points are bucketed in a grid of {@code cell-degrees} square cells, each cell keeping its
+ * latitudes and longitudes in primitive arrays. A radius query scans the cells under the bounding
+ * box of its circle and computes the exact distance for their points only, so its cost follows the
+ * number of points around the center, not the number of rows. Results are ordered like the
+ * repository queries: nearest first, itineraries by their closest location.
+ *
+ * <p>The index is loaded from the database once the application is ready and then follows the
+ * services: writes are applied after their transaction commits. Writes committed while the load
+ * reads the database are recorded and applied again over the loaded rows, which may not contain
+ * them. Until the load is over, and when {@code enabled} is off, {@link #nearby} returns empty and
+ * callers query the database.
+ *
+ * <p>Writes made through other instances are not seen by these hooks, so the whole index is loaded
+ * again every {@code reload-interval}: a location written or deleted on another node shows in the
+ * nearby results of this one after at most that delay.
+ */
+@Component
+@Slf4j
+public class GeoGridIndex {
+
+  public enum Kind {
+    POST,
+    JOURNAL,
+    ITINERARY
+  }
+
+  private final boolean enabled;
+  private final double cellDegrees;
+
+  private final PostRepository postRepository;
+  private final JournalRepository journalRepository;
+  private final ItineraryRepository itineraryRepository;
+
+  private final Map<Kind, Grid> grids = new EnumMap<>(Kind.class);
+
+  private volatile boolean ready;
+
+  public GeoGridIndex(
+      PostRepository postRepository,
+      JournalRepository journalRepository,
+      ItineraryRepository itineraryRepository,
+      MeterRegistry meterRegistry,
+      @Value("${application.geo-index.enabled:true}") boolean enabled,
+      @Value("${application.geo-index.cell-degrees:0.1}") double cellDegrees) {
+
+    this.enabled = enabled;
+    this.cellDegrees = cellDegrees;
+    this.postRepository = postRepository;
+    this.journalRepository = journalRepository;
+    this.itineraryRepository = itineraryRepository;
+
+    for (Kind kind : Kind.values()) {
+      Grid grid = new Grid();
+      grids.put(kind, grid);
+
+      Gauge.builder("geo.index.points", grid, Grid::points)
+          .tag("kind", kind.name().toLowerCase())
+          .register(meterRegistry);
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    reload();
+  }
+
+  /** Loads every location from the database */
+  @Scheduled(
+      fixedDelayString = "${application.geo-index.reload-interval:300000}",
+      initialDelayString = "${application.geo-index.reload-interval:300000}")
+  public synchronized void reload() {
+
+    if (!enabled) {
+      return;
+    }
+
+    // Before the reads, a write committed during them is replayed over their rows
+    grids.values().forEach(Grid::startRecording);
+
+    try {
+      long started = System.nanoTime();
+
+      rebuild(
+          postRepository.findAllLocations(),
+          journalRepository.findAllLocations(),
+          itineraryRepository.findAllLocations());
+
+      log.info(
+          "Geo index loaded {} posts, {} journals and {} itinerary locations in {} ms",
+          grids.get(Kind.POST).points(),
+          grids.get(Kind.JOURNAL).points(),
+          grids.get(Kind.ITINERARY).points(),
+          (System.nanoTime() - started) / 1_000_000);
+
+    } catch (Exception e) {
+      grids.values().forEach(Grid::stopRecording);
+      log.warn("Geo index not loaded: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Replaces the content of the index and makes it available to queries. Writes recorded since the
+   * load started are applied over the rows.
+   *
+   * @param posts Rows of post id, latitude and longitude
+   * @param journals Rows of journal id, latitude and longitude
+   * @param itineraries Rows of itinerary id, latitude and longitude, one per location
+   */
+  public void rebuild(List<Object[]> posts, List<Object[]> journals, List<Object[]> itineraries) {
+
+    load(Kind.POST, posts);
+    load(Kind.JOURNAL, journals);
+    load(Kind.ITINERARY, itineraries);
+    ready = true;
+  }
+
+  /**
+   * Sets the locations of an entity once the current transaction commits
+   *
+   * @param kind Kind of the entity
+   * @param id Id of the entity
+   * @param locations Its locations, replacing the previous ones
+   */
+  public void put(Kind kind, UUID id, Collection<Location> locations) {
+
+    if (!enabled || id == null) {
+      return;
+    }
+
+    double[] points =
+        locations == null
+            ? new double[0]
+            : locations.stream()
+                .filter(Objects::nonNull)
+                .flatMapToDouble(
+                    location -> DoubleStream.of(location.getLatitude(), location.getLongitude()))
+                .toArray();
+
+    afterCommit(() -> grids.get(kind).put(id, points));
+  }
+
+  /**
+   * Sets the location of an entity once the current transaction commits
+   *
+   * @param kind Kind of the entity
+   * @param id Id of the entity
+   * @param location Its location, null when it has none
+   */
+  public void put(Kind kind, UUID id, Location location) {
+    put(kind, id, location == null ? List.of() : List.of(location));
+  }
+
+  /**
+   * Removes an entity once the current transaction commits
+   *
+   * @param kind Kind of the entity
+   * @param id Id of the entity
+   */
+  public void remove(Kind kind, UUID id) {
+
+    if (!enabled || id == null) {
+      return;
+    }
+    afterCommit(() -> grids.get(kind).put(id, new double[0]));
+  }
+
+  /**
+   * Ids of the entities within a radius, nearest first
+   *
+   * @param kind Kind of the entities
+   * @param latitude Latitude of the center
+   * @param longitude Longitude of the center
+   * @param radiusKm Radius of the search
+   * @param limit Page size
+   * @param offset Ids skipped
+   * @return The page of ids, empty when the index is not available
+   */
+  public Optional<List<UUID>> nearby(
+      Kind kind, double latitude, double longitude, double radiusKm, int limit, int offset) {
+
+    if (!enabled || !ready) {
+      return Optional.empty();
+    }
+
+    return Optional.of(grids.get(kind).nearby(latitude, longitude, radiusKm, limit, offset));
+  }
+
+  private void load(Kind kind, List<Object[]> rows) {
+
+    Map<UUID, List<double[]>> points = new HashMap<>();
+    for (Object[] row : rows) {
+      if (row[1] != null && row[2] != null) {
+        points
+            .computeIfAbsent((UUID) row[0], id -> new ArrayList<>())
+            .add(new double[] {((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue()});
+      }
+    }
+
+    grids
+        .get(kind)
+        .replaceAll(
+            points.entrySet().stream()
+                .collect(
+                    Collectors.toMap(
+                        Map.Entry::getKey,
+                        entry ->
+                            entry.getValue().stream()
+                                .flatMapToDouble(Arrays::stream)
+                                .toArray())));
+  }
+
+  private static void afterCommit(Runnable action) {
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+
+  private long cellKey(int latitudeIndex, int longitudeIndex) {
+    return ((long) latitudeIndex << 32) | (longitudeIndex & 0xFFFFFFFFL);
+  }
+
+  private int latitudeIndex(double latitude) {
+    return (int) Math.floor((latitude + 90) / cellDegrees);
+  }
+
+  private int longitudeIndex(double longitude) {
+    return (int) Math.floor((longitude + 180) / cellDegrees);
+  }
+
+  /** Points of one kind, guarded by a read/write lock */
+  private final class Grid {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    /** Flattened latitude/longitude pairs of each entity, to find its cells again */
+    private final Map<UUID, double[]> pointsById = new HashMap<>();
+
+    /** Latest points of the entities written during a load, null when no load is running */
+    private Map<UUID, double[]> recorded;
+
+    private int points;
+
+    void startRecording() {
+
+      lock.writeLock().lock();
+      try {
+        recorded = new HashMap<>();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void stopRecording() {
+
+      lock.writeLock().lock();
+      try {
+        recorded = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void put(UUID id, double[] points) {
+
+      lock.writeLock().lock();
+      try {
+        if (recorded != null) {
+          recorded.put(id, points);
+        }
+        putLocked(id, points);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void replaceAll(Map<UUID, double[]> all) {
+
+      lock.writeLock().lock();
+      try {
+        cells.clear();
+        pointsById.clear();
+        points = 0;
+
+        all.forEach(this::putLocked);
+
+        if (recorded != null) {
+          recorded.forEach(this::putLocked);
+          recorded = null;
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    private void putLocked(UUID id, double[] entityPoints) {
+
+      removeLocked(id);
+
+      if (entityPoints.length > 0) {
+        pointsById.put(id, entityPoints);
+        for (int i = 0; i < entityPoints.length; i += 2) {
+          addLocked(id, entityPoints[i], entityPoints[i + 1]);
+        }
+      }
+    }
+
+    List<UUID> nearby(double latitude, double longitude, double radiusKm, int limit, int offset) {
+
+      GeoUtil.BoundingBox box = GeoUtil.boundingBox(latitude, longitude, radiusKm);
+      Map<UUID, Double> distances = new HashMap<>();
+
+      lock.readLock().lock();
+      try {
+        int minLatitude = latitudeIndex(box.minLatitude());
+        int maxLatitude = latitudeIndex(box.maxLatitude());
+
+        scan(
+            minLatitude,
+            maxLatitude,
+            longitudeIndex(box.minLongitude()),
+            longitudeIndex(box.maxLongitude()),
+            latitude,
+            longitude,
+            radiusKm,
+            distances);
+
+        if (box.wrapMinLongitude() != box.minLongitude()) {
+          scan(
+              minLatitude,
+              maxLatitude,
+              longitudeIndex(box.wrapMinLongitude()),
+              longitudeIndex(box.wrapMaxLongitude()),
+              latitude,
+              longitude,
+              radiusKm,
+              distances);
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+
+      return distances.entrySet().stream()
+          .sorted(
+              Map.Entry.<UUID, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+          .skip(offset)
+          .limit(limit)
+          .map(Map.Entry::getKey)
+          .toList();
+    }
+
+    private void scan(
+        int minLatitude,
+        int maxLatitude,
+        int minLongitude,
+        int maxLongitude,
+        double latitude,
+        double longitude,
+        double radiusKm,
+        Map<UUID, Double> distances) {
+
+      for (int latIndex = minLatitude; latIndex <= maxLatitude; latIndex++) {
+        for (int lngIndex = minLongitude; lngIndex <= maxLongitude; lngIndex++) {
+
+          Cell cell = cells.get(cellKey(latIndex, lngIndex));
+          if (cell == null) {
+            continue;
+          }
+
+          for (int i = 0; i < cell.size; i++) {
+            double distance =
+                GeoUtil.distanceKm(latitude, longitude, cell.latitudes[i], cell.longitudes[i]);
+            if (distance < radiusKm) {
+              // Itineraries have several locations, the closest one counts
+              distances.merge(cell.ids[i], distance, Math::min);
+            }
+          }
+        }
+      }
+    }
+
+    private void addLocked(UUID id, double latitude, double longitude) {
+      cells
+          .computeIfAbsent(
+              cellKey(latitudeIndex(latitude), longitudeIndex(longitude)), key -> new Cell())
+          .add(id, latitude, longitude);
+      points++;
+    }
+
+    private void removeLocked(UUID id) {
+
+      double[] previous = pointsById.remove(id);
+      if (previous == null) {
+        return;
+      }
+
+      for (int i = 0; i < previous.length; i += 2) {
+        long key = cellKey(latitudeIndex(previous[i]), longitudeIndex(previous[i + 1]));
+        Cell cell = cells.get(key);
+        if (cell != null) {
+          points -= cell.remove(id);
+          if (cell.size == 0) {
+            cells.remove(key);
+          }
+        }
+      }
+    }
+
+    int points() {
+      lock.readLock().lock();
+      try {
+        return points;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+  }
+
+  /** Points of one cell in parallel primitive arrays */
+  private static final class Cell {
+
+    private double[] latitudes = new double[4];
+    private double[] longitudes = new double[4];
+    private UUID[] ids = new UUID[4];
+    private int size;
+
+    void add(UUID id, double latitude, double longitude) {
+
+      if (size == ids.length) {
+        latitudes = Arrays.copyOf(latitudes, size * 2);
+        longitudes = Arrays.copyOf(longitudes, size * 2);
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+
+      latitudes[size] = latitude;
+      longitudes[size] = longitude;
+      ids[size] = id;
+      size++;
+    }
+
+    /** Removes every point of an entity, returns how many there were */
+    int remove(UUID id) {
+
+      int removed = 0;
+      for (int i = size - 1; i >= 0; i--) {
+        if (ids[i].equals(id)) {
+          size--;
+          latitudes[i] = latitudes[size];
+          longitudes[i] = longitudes[size];
+          ids[i] = ids[size];
+          ids[size] = null;
+          removed++;
+        }
+      }
+      return removed;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.devs.roamance.util;
+
+/**
+ * Geometry of the nearby searches.
+ *
+ * <p>A search first keeps the rows inside the bounding box of its circle, a range scan on the
+ * (latitude, longitude) indexes, and computes the exact distance only for those candidates. The box
+ * is split in two longitude ranges when it crosses the antimeridian and spans every longitude when
+ * it reaches a pole.
+ */
+public class GeoUtil {
+
+  public static final double EARTH_RADIUS_KM = 6371;
+
+  /**
+   * Box around a search circle, rows match when their longitude is in either of the two ranges.
+   * Both ranges are the same unless the box crosses the antimeridian.
+   */
+  public record BoundingBox(
+      double minLatitude,
+      double maxLatitude,
+      double minLongitude,
+      double maxLongitude,
+      double wrapMinLongitude,
+      double wrapMaxLongitude) {
+
+    public boolean contains(double latitude, double longitude) {
+      return latitude >= minLatitude
+          && latitude <= maxLatitude
+          && ((longitude >= minLongitude && longitude <= maxLongitude)
+              || (longitude >= wrapMinLongitude && longitude <= wrapMaxLongitude));
+    }
+  }
+
+  private GeoUtil() {}
+
+  /**
+   * Smallest latitude/longitude box that contains a circle on the sphere
+   *
+   * @param latitude Latitude of the center in degrees
+   * @param longitude Longitude of the center in degrees
+   * @param radiusKm Radius of the circle
+   * @return The bounding box
+   */
+  public static BoundingBox boundingBox(double latitude, double longitude, double radiusKm) {
+
+    double angularRadius = radiusKm / EARTH_RADIUS_KM;
+    double lat = Math.toRadians(latitude);
+
+    double minLat = lat - angularRadius;
+    double maxLat = lat + angularRadius;
+
+    if (minLat <= -Math.PI / 2 || maxLat >= Math.PI / 2) {
+      return new BoundingBox(
+          Math.toDegrees(Math.max(minLat, -Math.PI / 2)),
+          Math.toDegrees(Math.min(maxLat, Math.PI / 2)),
+          -180,
+          180,
+          -180,
+          180);
+    }
+
+    double deltaLng = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(lat)));
+    double minLng = longitude - deltaLng;
+    double maxLng = longitude + deltaLng;
+
+    if (minLng < -180) {
+      return new BoundingBox(
+          Math.toDegrees(minLat), Math.toDegrees(maxLat), minLng + 360, 180, -180, maxLng);
+    }
+    if (maxLng > 180) {
+      return new BoundingBox(
+          Math.toDegrees(minLat), Math.toDegrees(maxLat), minLng, 180, -180, maxLng - 360);
+    }
+
+    return new BoundingBox(
+        Math.toDegrees(minLat), Math.toDegrees(maxLat), minLng, maxLng, minLng, maxLng);
+  }
+
+  /**
+   * Great circle distance, the same haversine formula the repositories use
+   *
+   * @return Distance in km
+   */
+  public static double distanceKm(
+      double latitude1, double longitude1, double latitude2, double longitude2) {
+
+    double sinLat = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+    double sinLng = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+
+    double a =
+        sinLat * sinLat
+            + Math.cos(Math.toRadians(latitude1))
+                * Math.cos(Math.toRadians(latitude2))
+                * sinLng
+                * sinLng;
+
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+}
@@ -0,0 +1,259 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.dto.common.AiPoweredDayPlanDto;
+import com.devs.roamance.dto.common.AiPoweredItineraryDto;
+import com.devs.roamance.dto.request.ai.AiPoweredItineraryCreateRequestDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Cache of generated itineraries, reused as templates for equivalent requests.
+ *
+ * <p>Requests are keyed on the normalized location (case, accents and punctuation ignored), the
+ * number of days, the budget level, the number of people and the season of the start date, plus its
+ * weekday when {@code match-weekday} is set. The generated costs are totals for the whole group, so
+ * the group size is part of the key as is. A hit is re-dated to the requested start date, so a
+ * trip generated for one weekend in June serves every other weekend of the summer. With the weekday
+ * in the key the shift is a whole number of weeks and weekly patterns like markets stay right.
+ *
+ * <p>Templates are kept serialized, which both copies them and gives their size. Entries expire
+ * after {@code ttl}, and the least recently used ones are evicted once there are more than {@code
+ * max-entries} or they take more than {@code max-bytes}.
+ */
+@Component
+@Slf4j
+public class ItineraryTemplateCache {
+
+  private record Entry(byte[] template, long createdAtMillis) {
+
+    long size() {
+      return template.length;
+    }
+  }
+
+  @Value("${application.ai.itinerary-cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${application.ai.itinerary-cache.ttl:24h}")
+  private Duration ttl;
+
+  @Value("${application.ai.itinerary-cache.max-entries:500}")
+  private int maxEntries;
+
+  @Value("${application.ai.itinerary-cache.max-bytes:16MB}")
+  private DataSize maxBytes;
+
+  @Value("${application.ai.itinerary-cache.match-weekday:true}")
+  private boolean matchWeekday;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  /** Access ordered, the least recently used entry is evicted first */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+  private long bytes;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  public ItineraryTemplateCache(MeterRegistry meterRegistry) {
+
+    this.hits = meterRegistry.counter("itinerary.template.cache.requests", "result", "hit");
+    this.misses = meterRegistry.counter("itinerary.template.cache.requests", "result", "miss");
+    this.evictions = meterRegistry.counter("itinerary.template.cache.evictions");
+
+    Gauge.builder("itinerary.template.cache.size", this, ItineraryTemplateCache::size)
+        .register(meterRegistry);
+    Gauge.builder("itinerary.template.cache.bytes", this, cache -> cache.bytes)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Looks up an itinerary generated for an equivalent request
+   *
+   * @param requestDto Itinerary generation request
+   * @return Copy of the cached itinerary, moved to the requested start date
+   */
+  public Optional<AiPoweredItineraryDto> get(AiPoweredItineraryCreateRequestDto requestDto) {
+
+    if (!enabled) {
+      return Optional.empty();
+    }
+
+    String key = key(requestDto);
+    Entry entry;
+
+    synchronized (entries) {
+      entry = entries.get(key);
+
+      if (entry != null && System.currentTimeMillis() - entry.createdAtMillis() > ttl.toMillis()) {
+        remove(key);
+        entry = null;
+      }
+    }
+
+    if (entry == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+
+    try {
+      AiPoweredItineraryDto itinerary =
+          objectMapper.readValue(entry.template(), AiPoweredItineraryDto.class);
+
+      hits.increment();
+      return Optional.of(redate(itinerary, requestDto.getStartDate()));
+
+    } catch (IOException e) {
+      log.warn("Cached itinerary template {} unreadable: {}", key, e.getMessage());
+      misses.increment();
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Caches a generated itinerary as the template of its request
+   *
+   * @param requestDto Request the itinerary was generated for
+   * @param itinerary Generated itinerary
+   */
+  public void put(AiPoweredItineraryCreateRequestDto requestDto, AiPoweredItineraryDto itinerary) {
+
+    if (!enabled || itinerary.getStartDate() == null) {
+      return;
+    }
+
+    byte[] template;
+    try {
+      template = objectMapper.writeValueAsBytes(itinerary);
+
+    } catch (IOException e) {
+      log.warn("Itinerary template could not be serialized: {}", e.getMessage());
+      return;
+    }
+
+    if (template.length > maxBytes.toBytes()) {
+      return;
+    }
+
+    String key = key(requestDto);
+
+    synchronized (entries) {
+      remove(key);
+      entries.put(key, new Entry(template, System.currentTimeMillis()));
+      bytes += template.length;
+
+      Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+      while ((entries.size() > maxEntries || bytes > maxBytes.toBytes()) && eldest.hasNext()) {
+        bytes -= eldest.next().getValue().size();
+        eldest.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Cache key of a request, equal for requests that can share an itinerary
+   *
+   * @param requestDto Itinerary generation request
+   * @return Normalized key
+   */
+  private String key(AiPoweredItineraryCreateRequestDto requestDto) {
+
+    LocalDate startDate = requestDto.getStartDate();
+
+    StringBuilder key =
+        new StringBuilder()
+            .append(normalize(requestDto.getLocation()))
+            .append('|')
+            .append(requestDto.getNumberOfDays())
+            .append('|')
+            .append(normalize(requestDto.getBudgetLevel()))
+            .append('|')
+            .append(requestDto.getNumberOfPeople())
+            .append('|')
+            .append(season(startDate));
+
+    if (matchWeekday) {
+      key.append('|').append(startDate.getDayOfWeek());
+    }
+
+    return key.toString();
+  }
+
+  private static AiPoweredItineraryDto redate(AiPoweredItineraryDto itinerary, LocalDate start) {
+
+    long days = ChronoUnit.DAYS.between(itinerary.getStartDate(), start);
+    if (days == 0) {
+      return itinerary;
+    }
+
+    itinerary.setStartDate(start);
+    if (itinerary.getEndDate() != null) {
+      itinerary.setEndDate(itinerary.getEndDate().plusDays(days));
+    }
+    for (AiPoweredDayPlanDto dayPlan : itinerary.getDayPlans()) {
+      if (dayPlan.getDate() != null) {
+        dayPlan.setDate(dayPlan.getDate().plusDays(days));
+      }
+    }
+
+    return itinerary;
+  }
+
+  private static String normalize(String text) {
+
+    if (text == null) {
+      return "";
+    }
+
+    return Normalizer.normalize(text, Normalizer.Form.NFD)
+        .replaceAll("\\p{M}", "")
+        .toLowerCase(Locale.ROOT)
+        .replaceAll("[^\\p{L}\\p{N}]+", " ")
+        .trim();
+  }
+
+  private static String season(LocalDate date) {
+
+    return switch (date.getMonth()) {
+      case DECEMBER, JANUARY, FEBRUARY -> "DJF";
+      case MARCH, APRIL, MAY -> "MAM";
+      case JUNE, JULY, AUGUST -> "JJA";
+      default -> "SON";
+    };
+  }
+
+  private void remove(String key) {
+
+    Entry removed = entries.remove(key);
+    if (removed != null) {
+      bytes -= removed.size();
+    }
+  }
+
+  private int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+}
@@ -3,13 +3,18 @@ package com.devs.roamance.util;
 import com.devs.roamance.dto.common.AiPoweredActivityDto;
 import com.devs.roamance.dto.common.AiPoweredDayPlanDto;
 import com.devs.roamance.dto.common.AiPoweredItineraryDto;
+import com.devs.roamance.exception.DateOutOfRangeException;
+import com.devs.roamance.exception.ScheduleCollisionException;
 import com.devs.roamance.model.common.Location;
 import com.devs.roamance.model.travel.itinerary.Activity;
 import com.devs.roamance.model.travel.itinerary.DayPlan;
 import com.devs.roamance.model.travel.itinerary.Itinerary;
 import com.devs.roamance.model.user.User;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
@@ -29,16 +34,48 @@ public class ItineraryUtil {
 
     for (DayPlan dayPlan : itinerary.getDayPlans()) {
 
-      itinerary.validateDayPlanDate(dayPlan);
+      validateDayPlan(itinerary, dayPlan);
 
       for (Activity activity : dayPlan.getActivities()) {
-
-        dayPlan.validateNoTimeCollisions(activity);
         activity.setId(null); // clear before persisting
       }
     }
   }
 
+  /**
+   * Runs the checks of validateDayPlansAndActivities on a generated itinerary, day by day, so that
+   * only the failing days have to be generated again
+   *
+   * @param itineraryDto Generated itinerary
+   * @return The problem of each failing day plan, keyed by its date
+   */
+  public Map<LocalDate, String> findInvalidDayPlans(AiPoweredItineraryDto itineraryDto) {
+
+    Itinerary itinerary = new Itinerary();
+    mapToDayPlansAndActivities(itinerary, itineraryDto, null);
+
+    Map<LocalDate, String> invalidDayPlans = new TreeMap<>();
+    for (DayPlan dayPlan : itinerary.getDayPlans()) {
+      try {
+        validateDayPlan(itinerary, dayPlan);
+
+      } catch (DateOutOfRangeException | ScheduleCollisionException e) {
+        invalidDayPlans.put(dayPlan.getDate(), e.getMessage());
+      }
+    }
+
+    return invalidDayPlans;
+  }
+
+  private void validateDayPlan(Itinerary itinerary, DayPlan dayPlan) {
+
+    itinerary.validateDayPlanDate(dayPlan);
+
+    for (Activity activity : dayPlan.getActivities()) {
+      dayPlan.validateNoTimeCollisions(activity);
+    }
+  }
+
   public void mapToDayPlansAndActivities(
       Itinerary itinerary, AiPoweredItineraryDto itineraryDto, User user) {
 
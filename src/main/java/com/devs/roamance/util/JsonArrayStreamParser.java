@@ -0,0 +1,101 @@
+package com.devs.roamance.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Picks the elements of one array field of the root object out of a JSON document that arrives in
+ * chunks, e.g. the partial responses of a streaming model.
+ *
+ * <p>Chunks are fed to Jackson's non-blocking parser, so nothing is re-parsed. The tokens of an
+ * array element are buffered until its closing brace and the element is then handed to the
+ * consumer, long before the rest of the document is complete. Not thread safe, feed the chunks of
+ * one document in order.
+ */
+public class JsonArrayStreamParser<T> {
+
+  private final ObjectMapper objectMapper;
+  private final String arrayField;
+  private final Class<T> elementType;
+  private final Consumer<T> onElement;
+
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+
+  private TokenBuffer element;
+  private int elementDepth;
+
+  public JsonArrayStreamParser(
+      ObjectMapper objectMapper, String arrayField, Class<T> elementType, Consumer<T> onElement)
+      throws IOException {
+
+    this.objectMapper = objectMapper;
+    this.arrayField = arrayField;
+    this.elementType = elementType;
+    this.onElement = onElement;
+
+    this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+  }
+
+  /**
+   * Parses the next chunk of the document, completed array elements are passed to the consumer
+   *
+   * @param chunk Next part of the JSON text
+   */
+  public void feed(String chunk) throws IOException {
+
+    byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+    feeder.feedInput(bytes, 0, bytes.length);
+
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+      handle(token);
+    }
+  }
+
+  private void handle(JsonToken token) throws IOException {
+
+    if (element != null) {
+      element.copyCurrentEvent(parser);
+
+      if (token.isStructStart()) {
+        elementDepth++;
+      } else if (token.isStructEnd() && --elementDepth == 0) {
+        T value = objectMapper.readValue(element.asParser(), elementType);
+        element = null;
+        onElement.accept(value);
+      }
+      return;
+    }
+
+    if (token == JsonToken.START_OBJECT && isElementOfArrayField(parser.getParsingContext())) {
+      element = new TokenBuffer(parser);
+      element.copyCurrentEvent(parser);
+      elementDepth = 1;
+    }
+  }
+
+  /** Whether an object starts directly inside the array field of the root object */
+  private boolean isElementOfArrayField(JsonStreamContext objectContext) {
+
+    JsonStreamContext array = objectContext.getParent();
+    if (array == null || !array.inArray()) {
+      return false;
+    }
+
+    JsonStreamContext root = array.getParent();
+    return root != null
+        && root.inObject()
+        && root.getParent() != null
+        && root.getParent().inRoot()
+        && arrayField.equals(root.getCurrentName());
+  }
+}
@@ -0,0 +1,342 @@
+package com.devs.roamance.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Bounded cache of downloaded media, keyed by URL and revalidated with the ETag of the response.
+ *
+ * <p>Entries live in an LRU map limited by {@code max-bytes}. When {@code spill-dir} is set,
+ * entries evicted from memory are written to disk (limited by {@code disk-max-bytes}) and promoted
+ * back on the next access. Entries older than {@code max-age} are revalidated with a conditional
+ * request, a {@code 304} keeps the cached bytes. Concurrent loads of the same URL share one
+ * download.
+ */
+@Component
+@Slf4j
+public class MediaCache {
+
+  /** Fetches a URL, sending the ETag as {@code If-None-Match} when there is one. */
+  @FunctionalInterface
+  public interface Loader {
+    Fetched load(String etag) throws Exception;
+  }
+
+  /** Result of a fetch, {@code media} is null when the server answered "not modified". */
+  public record Fetched(RestUtil.Media media, String etag) {}
+
+  private record Entry(RestUtil.Media media, String etag, long fetchedAtMillis) {
+
+    long size() {
+      return media.content().length;
+    }
+  }
+
+  private record DiskEntry(
+      Path path, String mimeType, String etag, long fetchedAtMillis, long size) {}
+
+  private final long maxBytes;
+  private final long diskMaxBytes;
+  private final Duration maxAge;
+  private final Path spillDir;
+
+  private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+  private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(64, 0.75f, true);
+  private long memoryBytes;
+  private long diskBytes;
+
+  private final ConcurrentMap<String, CompletableFuture<RestUtil.Media>> inFlight =
+      new ConcurrentHashMap<>();
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter revalidated;
+  private final Counter collapsed;
+  private final Counter bytesSaved;
+
+  public MediaCache(
+      MeterRegistry meterRegistry,
+      @Value("${application.media-cache.max-bytes:64MB}") DataSize maxBytes,
+      @Value("${application.media-cache.disk-max-bytes:512MB}") DataSize diskMaxBytes,
+      @Value("${application.media-cache.max-age:1h}") Duration maxAge,
+      @Value("${application.media-cache.spill-dir:}") String spillDir) {
+
+    this.maxBytes = maxBytes.toBytes();
+    this.diskMaxBytes = diskMaxBytes.toBytes();
+    this.maxAge = maxAge;
+    this.spillDir = spillDir == null || spillDir.isBlank() ? null : Path.of(spillDir);
+
+    this.hits = meterRegistry.counter("media.cache.requests", "result", "hit");
+    this.misses = meterRegistry.counter("media.cache.requests", "result", "miss");
+    this.revalidated = meterRegistry.counter("media.cache.requests", "result", "revalidated");
+    this.collapsed = meterRegistry.counter("media.cache.requests", "result", "collapsed");
+    this.bytesSaved =
+        Counter.builder("media.cache.bytes.saved")
+            .description("Downloaded bytes served from the cache instead of the network")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+
+    Gauge.builder("media.cache.hit.ratio", this, MediaCache::hitRatio)
+        .description("Share of media requests answered without a full download")
+        .register(meterRegistry);
+    Gauge.builder("media.cache.memory.bytes", this, cache -> cache.memoryBytes)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("media.cache.disk.bytes", this, cache -> cache.diskBytes)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void init() {
+
+    if (spillDir == null) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(spillDir);
+
+      // The disk index is not persisted, files of a previous run are unreachable
+      try (var files = Files.list(spillDir)) {
+        files.filter(path -> path.toString().endsWith(".media")).forEach(this::deleteQuietly);
+      }
+
+    } catch (IOException e) {
+      log.warn("Media cache spill directory {} unusable: {}", spillDir, e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the cached media of a URL, loading it when absent or stale
+   *
+   * @param url URL of the media
+   * @param loader Fetches the URL, called at most once for concurrent requests of the same URL
+   * @return Future of the media
+   */
+  public CompletableFuture<RestUtil.Media> get(String url, Loader loader) {
+
+    Entry cached = lookup(url);
+
+    if (cached != null && !isStale(cached)) {
+      hits.increment();
+      bytesSaved.increment(cached.size());
+      return CompletableFuture.completedFuture(cached.media());
+    }
+
+    CompletableFuture<RestUtil.Media> created = new CompletableFuture<>();
+    CompletableFuture<RestUtil.Media> existing = inFlight.putIfAbsent(url, created);
+
+    if (existing != null) {
+      collapsed.increment();
+      return existing.whenComplete(
+          (media, e) -> {
+            if (media != null) {
+              bytesSaved.increment(media.content().length);
+            }
+          });
+    }
+
+    try {
+      Fetched fetched = loader.load(cached == null ? null : cached.etag());
+
+      RestUtil.Media media;
+      if (fetched.media() == null && cached != null) {
+        revalidated.increment();
+        bytesSaved.increment(cached.size());
+        media = cached.media();
+        put(url, new Entry(media, cached.etag(), System.currentTimeMillis()));
+
+      } else if (fetched.media() != null) {
+        misses.increment();
+        media = fetched.media();
+        put(url, new Entry(media, fetched.etag(), System.currentTimeMillis()));
+
+      } else {
+        throw new IOException("Not modified response without a cached copy of " + url);
+      }
+
+      created.complete(media);
+
+    } catch (Exception e) {
+      created.completeExceptionally(e);
+
+    } finally {
+      inFlight.remove(url, created);
+    }
+
+    return created;
+  }
+
+  private boolean isStale(Entry entry) {
+    return System.currentTimeMillis() - entry.fetchedAtMillis() > maxAge.toMillis();
+  }
+
+  private Entry lookup(String url) {
+
+    synchronized (memory) {
+      Entry entry = memory.get(url);
+      if (entry != null) {
+        return entry;
+      }
+    }
+
+    DiskEntry diskEntry;
+    synchronized (disk) {
+      diskEntry = disk.remove(url);
+      if (diskEntry != null) {
+        diskBytes -= diskEntry.size();
+      }
+    }
+
+    if (diskEntry == null) {
+      return null;
+    }
+
+    try {
+      byte[] content = Files.readAllBytes(diskEntry.path());
+      Entry entry =
+          new Entry(
+              new RestUtil.Media(content, diskEntry.mimeType()),
+              diskEntry.etag(),
+              diskEntry.fetchedAtMillis());
+
+      put(url, entry);
+      return entry;
+
+    } catch (IOException e) {
+      log.warn("Reading spilled media of {} failed: {}", url, e.getMessage());
+      return null;
+
+    } finally {
+      deleteQuietly(diskEntry.path());
+    }
+  }
+
+  private void put(String url, Entry entry) {
+
+    List<Map.Entry<String, Entry>> evicted = new ArrayList<>();
+
+    synchronized (memory) {
+      Entry previous = memory.remove(url);
+      if (previous != null) {
+        memoryBytes -= previous.size();
+      }
+
+      if (entry.size() <= maxBytes) {
+        memory.put(url, entry);
+        memoryBytes += entry.size();
+      } else {
+        evicted.add(Map.entry(url, entry));
+      }
+
+      Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+      while (memoryBytes > maxBytes && eldest.hasNext()) {
+        Map.Entry<String, Entry> next = eldest.next();
+        evicted.add(Map.entry(next.getKey(), next.getValue()));
+        memoryBytes -= next.getValue().size();
+        eldest.remove();
+      }
+    }
+
+    // Disk writes happen outside the lock so readers are not blocked by IO
+    evicted.forEach(e -> spill(e.getKey(), e.getValue()));
+  }
+
+  private void spill(String url, Entry entry) {
+
+    if (spillDir == null || entry.size() > diskMaxBytes) {
+      return;
+    }
+
+    Path path = spillDir.resolve(fileName(url));
+    Path tmp = spillDir.resolve(path.getFileName() + ".tmp");
+
+    try {
+      Files.write(tmp, entry.media().content());
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    } catch (IOException e) {
+      log.warn("Spilling media of {} to disk failed: {}", url, e.getMessage());
+      deleteQuietly(tmp);
+      return;
+    }
+
+    List<Path> dropped = new ArrayList<>();
+
+    synchronized (disk) {
+      DiskEntry previous =
+          disk.put(
+              url,
+              new DiskEntry(
+                  path,
+                  entry.media().mimeType(),
+                  entry.etag(),
+                  entry.fetchedAtMillis(),
+                  entry.size()));
+      if (previous != null) {
+        diskBytes -= previous.size();
+      }
+      diskBytes += entry.size();
+
+      Iterator<DiskEntry> eldest = disk.values().iterator();
+      while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+        DiskEntry next = eldest.next();
+        diskBytes -= next.size();
+        dropped.add(next.path());
+        eldest.remove();
+      }
+    }
+
+    dropped.forEach(this::deleteQuietly);
+  }
+
+  private double hitRatio() {
+
+    double served = hits.count() + revalidated.count() + collapsed.count();
+    double total = served + misses.count();
+    return total == 0 ? 0 : served / total;
+  }
+
+  private static String fileName(String url) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest) + ".media";
+
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.warn("Deleting {} failed: {}", path, e.getMessage());
+    }
+  }
+}
@@ -1,9 +1,77 @@
 package com.devs.roamance.util;
 
+import com.devs.roamance.constant.ResponseMessage;
+import com.devs.roamance.model.social.Chat;
+import com.devs.roamance.model.social.Comment;
+import com.devs.roamance.model.social.FeedEntry;
+import com.devs.roamance.model.social.Message;
+import com.devs.roamance.model.social.Post;
+import com.devs.roamance.model.travel.itinerary.Itinerary;
+import com.devs.roamance.model.travel.journal.Journal;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mapping.PropertyPath;
 
 public class PaginationSortingUtil {
 
+  private static final ObjectMapper CURSOR_MAPPER =
+      JsonMapper.builder()
+          .findAndAddModules()
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+          .build();
+
+  /**
+   * Properties a cursor paginated list can be sorted by. Their values end up in the cursor returned
+   * to the client, so they are scalar columns of the listed entity only, never an association.
+   */
+  private static final Map<Class<?>, Set<String>> SORT_PROPERTIES =
+      Map.of(
+          Post.class,
+          Set.of("id", "likesCount", "commentsCount", "audit.createdAt", "audit.lastModifiedAt"),
+          Comment.class,
+          Set.of("id", "audit.createdAt", "audit.lastModifiedAt"),
+          Chat.class,
+          Set.of("id", "audit.createdAt", "audit.lastModifiedAt"),
+          Message.class,
+          Set.of("id", "audit.createdAt", "audit.lastModifiedAt"),
+          FeedEntry.class,
+          Set.of("id", "createdAt"),
+          Journal.class,
+          Set.of("id", "title", "date", "audit.createdAt", "audit.lastModifiedAt"),
+          Itinerary.class,
+          Set.of(
+              "id", "title", "startDate", "endDate", "audit.createdAt", "audit.lastModifiedAt"));
+
+  /** Entities of a list request and the cursor of the following ones, null on the last page */
+  public record CursorPage<T>(List<T> content, String nextCursor) {}
+
+  /** Keyset query of a repository, e.g. {@code findAllByUserId(userId, position, sort, limit)} */
+  @FunctionalInterface
+  public interface KeysetQuery<T> {
+
+    Window<T> find(ScrollPosition position, Sort sort, Limit limit);
+  }
+
   private PaginationSortingUtil() {}
 
   public static int[] validatePaginationParams(int pageNumber, int pageSize) {
@@ -22,4 +90,144 @@ public class PaginationSortingUtil {
         ? Sort.Direction.DESC
         : Sort.Direction.ASC;
   }
+
+  /**
+   * Sort of a list request with the id as tie-breaker, so every row has a unique position
+   *
+   * @param sortBy Sort property
+   * @param sortDir Sort direction
+   * @return The sort
+   */
+  public static Sort getKeysetSort(String sortBy, String sortDir) {
+
+    Sort.Direction direction = getSortDirection(sortDir);
+    Sort sort = Sort.by(direction, sortBy);
+
+    return "id".equals(sortBy) ? sort : sort.and(Sort.by(direction, "id"));
+  }
+
+  /**
+   * Fetches a list without counting its rows.
+   *
+   * <p>Without a cursor the page number is used as an offset, with one the rows following the
+   * cursor are read by a keyset query, so scrolling deep into a list costs the same as its first
+   * page. Both return the cursor of the next page, which encodes the sort values of the last row.
+   *
+   * @param type Entity type, used to decode the cursor
+   * @param cursor Cursor from a previous response, null for offset pagination
+   * @param pageNumber Page number, ignored with a cursor
+   * @param pageSize Page size
+   * @param sortBy Sort property
+   * @param sortDir Sort direction
+   * @param offsetQuery Slice query of the repository
+   * @param keysetQuery Window query of the repository
+   * @return The entities and the next cursor
+   * @throws IllegalArgumentException When the sort property is not allowed for the entity
+   */
+  public static <T> CursorPage<T> paginate(
+      Class<T> type,
+      String cursor,
+      int pageNumber,
+      int pageSize,
+      String sortBy,
+      String sortDir,
+      Function<Pageable, Slice<T>> offsetQuery,
+      KeysetQuery<T> keysetQuery) {
+
+    if (!SORT_PROPERTIES.getOrDefault(type, Set.of()).contains(sortBy)) {
+      throw new IllegalArgumentException(String.format(ResponseMessage.INVALID_SORT_BY, sortBy));
+    }
+
+    Sort sort = getKeysetSort(sortBy, sortDir);
+
+    if (cursor == null || cursor.isBlank()) {
+
+      Slice<T> slice = offsetQuery.apply(PageRequest.of(pageNumber, pageSize, sort));
+
+      return new CursorPage<>(
+          slice.getContent(), nextCursor(slice.getContent(), slice.hasNext(), sort));
+    }
+
+    Window<T> window =
+        keysetQuery.find(decodeCursor(cursor, sort, type), sort, Limit.of(pageSize));
+
+    return new CursorPage<>(
+        window.getContent(), nextCursor(window.getContent(), window.hasNext(), sort));
+  }
+
+  /**
+   * Whether a cursor continues a list sorted by a property, e.g. to tell apart the cursors of two
+   * lists served by the same endpoint
+   *
+   * @param cursor Cursor from a previous response
+   * @param sortBy Sort property
+   * @return False when the cursor is sorted otherwise or malformed
+   */
+  public static boolean isCursorSortedBy(String cursor, String sortBy) {
+
+    try {
+      Iterator<String> names = CURSOR_MAPPER.readTree(decodeBase64(cursor)).fieldNames();
+      return names.hasNext() && names.next().equals(sortBy);
+
+    } catch (IOException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static String nextCursor(List<?> content, boolean hasNext, Sort sort) {
+
+    if (!hasNext || content.isEmpty()) {
+      return null;
+    }
+
+    BeanWrapperImpl last = new BeanWrapperImpl(content.getLast());
+    ObjectNode keys = CURSOR_MAPPER.createObjectNode();
+
+    for (Sort.Order order : sort) {
+      Object value = last.getPropertyValue(order.getProperty());
+      keys.set(order.getProperty(), CURSOR_MAPPER.valueToTree(value));
+    }
+
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(keys.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ScrollPosition decodeCursor(String cursor, Sort sort, Class<?> type) {
+
+    try {
+      JsonNode keys = CURSOR_MAPPER.readTree(decodeBase64(cursor));
+      Map<String, Object> position = new LinkedHashMap<>();
+
+      // A cursor only continues the sort it was created for
+      Iterator<String> names = keys.fieldNames();
+      for (Sort.Order order : sort) {
+        String property = order.getProperty();
+        if (!names.hasNext() || !names.next().equals(property)) {
+          throw new IllegalArgumentException(ResponseMessage.INVALID_CURSOR);
+        }
+
+        Class<?> valueType = PropertyPath.from(property, type).getLeafProperty().getType();
+        position.put(property, CURSOR_MAPPER.treeToValue(keys.get(property), valueType));
+      }
+
+      if (names.hasNext()) {
+        throw new IllegalArgumentException(ResponseMessage.INVALID_CURSOR);
+      }
+
+      return ScrollPosition.forward(position);
+
+    } catch (IOException e) {
+      throw new IllegalArgumentException(ResponseMessage.INVALID_CURSOR, e);
+    }
+  }
+
+  private static byte[] decodeBase64(String cursor) {
+
+    try {
+      return Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(ResponseMessage.INVALID_CURSOR, e);
+    }
+  }
 }
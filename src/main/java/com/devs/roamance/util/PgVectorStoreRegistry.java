@@ -0,0 +1,129 @@
+package com.devs.roamance.util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds one long-lived {@link PgVectorEmbeddingStore} per vector table, all sharing a single
+ * bounded HikariCP pool.
+ *
+ * <p>Building a store runs the extension and table DDL, so it is done once per table (at startup
+ * for the known tables) instead of on every ingestion or search. Searches go through an {@link
+ * AnnTuningDataSource} so per-query ANN parameters can be applied.
+ *
+ * <p>The pool is deliberately not exposed as a {@link DataSource} bean, otherwise it would
+ * replace the auto-configured JPA datasource.
+ */
+@Component
+@Slf4j
+public class PgVectorStoreRegistry {
+
+  public static final String TEXTS_TABLE = "texts";
+  public static final String IMAGE_DESCRIPTIONS_TABLE = "image_descriptions";
+  public static final String IMAGE_EMBEDDINGS_TABLE = "image_embeddings";
+
+  /** Dimension shared by nomic-embed-text-v1.5 and nomic-embed-vision-v1.5 */
+  public static final int NOMIC_DIMENSION = 768;
+
+  public static final List<String> KNOWN_TABLES =
+      List.of(TEXTS_TABLE, IMAGE_DESCRIPTIONS_TABLE, IMAGE_EMBEDDINGS_TABLE);
+
+  private final HikariDataSource dataSource;
+  private final AnnTuningDataSource searchDataSource;
+  private final Map<String, EmbeddingStore<TextSegment>> stores = new ConcurrentHashMap<>();
+
+  @Value("${application.pgvector.warm-up:true}")
+  private boolean warmUp;
+
+  public PgVectorStoreRegistry(
+      @Value("${application.pgvector.host}") String host,
+      @Value("${application.pgvector.port}") Integer port,
+      @Value("${application.pgvector.db}") String vectorDb,
+      @Value("${application.pgvector.user}") String user,
+      @Value("${application.pgvector.password}") String password,
+      @Value("${application.pgvector.pool.max-size:10}") int maxPoolSize,
+      @Value("${application.pgvector.pool.min-idle:2}") int minIdle) {
+
+    HikariConfig config = new HikariConfig();
+    config.setPoolName("pgvector");
+    config.setJdbcUrl(String.format("jdbc:postgresql://%s:%d/%s", host, port, vectorDb));
+    config.setUsername(user);
+    config.setPassword(password);
+    config.setMaximumPoolSize(maxPoolSize);
+    config.setMinimumIdle(Math.min(minIdle, maxPoolSize));
+    // Do not fail application startup when the vector database is temporarily unreachable
+    config.setInitializationFailTimeout(-1);
+
+    this.dataSource = new HikariDataSource(config);
+    this.searchDataSource = new AnnTuningDataSource(dataSource);
+  }
+
+  /** Creates the known tables and their indexes once the application is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(0)
+  public void warmUp() {
+
+    if (!warmUp) {
+      return;
+    }
+
+    for (String table : KNOWN_TABLES) {
+      try {
+        getStore(table, NOMIC_DIMENSION);
+      } catch (Exception e) {
+        log.warn("Vector store warm up failed for table {}: {}", table, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the store for a table, creating the table and its index on first use
+   *
+   * @param tableName Name of the vector table
+   * @param dimension Dimension of the embeddings stored in the table
+   * @return Shared EmbeddingStore instance
+   */
+  public EmbeddingStore<TextSegment> getStore(String tableName, int dimension) {
+
+    return stores.computeIfAbsent(tableName, table -> buildStore(table, dimension));
+  }
+
+  /** The pooled datasource of the vector database, for direct maintenance queries. */
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  private EmbeddingStore<TextSegment> buildStore(String tableName, int dimension) {
+
+    log.info("Initializing vector store for table {}", tableName);
+
+    // ANN indexes are created and rebuilt by VectorIndexManager
+    return PgVectorEmbeddingStore.datasourceBuilder()
+        .datasource(searchDataSource)
+        .table(tableName)
+        .dimension(dimension)
+        .useIndex(false)
+        .createTable(true)
+        .dropTableFirst(false)
+        .build();
+  }
+
+  @PreDestroy
+  public void close() {
+    dataSource.close();
+  }
+}
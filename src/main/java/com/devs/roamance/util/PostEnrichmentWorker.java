@@ -0,0 +1,203 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.model.social.PostEnrichmentJob;
+import com.devs.roamance.model.social.PostEnrichmentJobStatus;
+import com.devs.roamance.repository.PostEnrichmentJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Polls the post enrichment outbox and runs due jobs with bounded concurrency.
+ *
+ * <p>Jobs are claimed with {@code SELECT ... FOR UPDATE SKIP LOCKED} and leased for {@code lease}
+ * so several application instances can share the table without processing a job twice. A lease
+ * that runs out (crashed instance) makes the job claimable again, unless it was the last attempt.
+ * Failed jobs are retried with exponential backoff until {@code max-attempts} is reached, then kept
+ * as FAILED for inspection.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(
+    name = "application.ai.enrichment.worker.enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class PostEnrichmentWorker {
+
+  private final PostEnrichmentJobRepository jobRepository;
+  private final PostUtil postUtil;
+  private final TransactionTemplate transactionTemplate;
+
+  private final String workerId;
+  private final ExecutorService executor;
+  private final Semaphore slots;
+
+  private final Counter completedJobs;
+  private final Counter retriedJobs;
+  private final Counter failedJobs;
+
+  @Value("${application.ai.enrichment.worker.max-attempts:5}")
+  private int maxAttempts;
+
+  @Value("${application.ai.enrichment.worker.lease:5m}")
+  private Duration lease;
+
+  @Value("${application.ai.enrichment.worker.base-backoff:30s}")
+  private Duration baseBackoff;
+
+  public PostEnrichmentWorker(
+      PostEnrichmentJobRepository jobRepository,
+      PostUtil postUtil,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${application.ai.enrichment.worker.concurrency:4}") int concurrency) {
+
+    this.jobRepository = jobRepository;
+    this.postUtil = postUtil;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+    this.workerId = resolveHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    this.executor =
+        Executors.newFixedThreadPool(
+            concurrency, Thread.ofPlatform().name("Enrichment-", 0).factory());
+    this.slots = new Semaphore(concurrency);
+
+    this.completedJobs = meterRegistry.counter("post.enrichment.jobs", "result", "completed");
+    this.retriedJobs = meterRegistry.counter("post.enrichment.jobs", "result", "retried");
+    this.failedJobs = meterRegistry.counter("post.enrichment.jobs", "result", "failed");
+  }
+
+  @Scheduled(fixedDelayString = "${application.ai.enrichment.worker.poll-interval:2000}")
+  public void poll() {
+
+    int free = slots.availablePermits();
+    if (free == 0) {
+      return;
+    }
+
+    List<PostEnrichmentJob> claimed;
+    try {
+      claimed = claim(free);
+    } catch (Exception e) {
+      log.error("Claiming enrichment jobs failed: {}", e.getMessage(), e);
+      return;
+    }
+
+    for (PostEnrichmentJob job : claimed) {
+      slots.acquireUninterruptibly();
+      executor.execute(
+          () -> {
+            try {
+              run(job);
+            } finally {
+              slots.release();
+            }
+          });
+    }
+  }
+
+  private List<PostEnrichmentJob> claim(int limit) {
+
+    return transactionTemplate.execute(
+        status -> {
+          OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+
+          int expired = jobRepository.failExpiredJobs(maxAttempts);
+          if (expired > 0) {
+            failedJobs.increment(expired);
+          }
+
+          List<PostEnrichmentJob> jobs = jobRepository.lockDueJobs(limit, maxAttempts);
+          for (PostEnrichmentJob job : jobs) {
+            job.setStatus(PostEnrichmentJobStatus.RUNNING);
+            job.setLockedBy(workerId);
+            job.setLockedUntil(now.plus(lease));
+            job.setAttempts(job.getAttempts() + 1);
+          }
+
+          return jobRepository.saveAll(jobs);
+        });
+  }
+
+  private void run(PostEnrichmentJob job) {
+
+    try {
+      postUtil.processEnrichmentJob(job);
+
+      transactionTemplate.executeWithoutResult(status -> jobRepository.deleteById(job.getId()));
+      completedJobs.increment();
+
+    } catch (Exception e) {
+      log.warn(
+          "Enrichment job {} ({}) for post {} failed on attempt {}: {}",
+          job.getId(),
+          job.getType(),
+          job.getPostId(),
+          job.getAttempts(),
+          e.getMessage());
+
+      reschedule(job, e);
+    }
+  }
+
+  private void reschedule(PostEnrichmentJob job, Exception cause) {
+
+    String error = String.valueOf(cause.getMessage());
+    job.setLastError(error.length() > 2000 ? error.substring(0, 2000) : error);
+    job.setLockedBy(null);
+    job.setLockedUntil(null);
+
+    if (job.getAttempts() >= maxAttempts) {
+      job.setStatus(PostEnrichmentJobStatus.FAILED);
+      failedJobs.increment();
+    } else {
+      long factor = 1L << Math.min(job.getAttempts() - 1, 10);
+      job.setStatus(PostEnrichmentJobStatus.PENDING);
+      job.setNextAttemptAt(
+          OffsetDateTime.now(ZoneOffset.UTC).plus(baseBackoff.multipliedBy(factor)));
+      retriedJobs.increment();
+    }
+
+    try {
+      transactionTemplate.executeWithoutResult(status -> jobRepository.save(job));
+    } catch (Exception e) {
+      // The lease runs out and the job is picked up again, or it was already claimed again
+      log.error("Rescheduling enrichment job {} failed: {}", job.getId(), e.getMessage(), e);
+    }
+  }
+
+  private static String resolveHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (Exception e) {
+      return "worker";
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+
+    executor.shutdown();
+    if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+      // Unfinished jobs stay RUNNING until their lease expires and are then retried
+      executor.shutdownNow();
+    }
+  }
+}
@@ -2,16 +2,25 @@ package com.devs.roamance.util;
 
 import com.devs.roamance.constant.ResponseMessage;
 import com.devs.roamance.dto.request.ai.MultiModalAiRequestDto;
-import com.devs.roamance.dto.request.social.PostRequestDto;
+import com.devs.roamance.dto.response.ai.PostEnrichmentDto;
 import com.devs.roamance.dto.response.ai.TidbitsAndSafetyDto;
-import com.devs.roamance.exception.ResourceNotFoundException;
+import com.devs.roamance.exception.AiGenerationFailedException;
 import com.devs.roamance.model.social.Post;
+import com.devs.roamance.model.social.PostEnrichmentJob;
+import com.devs.roamance.model.social.PostEnrichmentJobStatus;
+import com.devs.roamance.model.social.PostEnrichmentJobType;
+import com.devs.roamance.repository.PostEnrichmentJobRepository;
 import com.devs.roamance.repository.PostRepository;
 import com.devs.roamance.service.AiService;
 import dev.langchain4j.model.output.FinishReason;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -20,57 +29,147 @@ public class PostUtil {
 
   private final AiService aiService;
   private final PostRepository postRepository;
+  private final PostEnrichmentJobRepository jobRepository;
+  private final RagUtil ragUtil;
+
+  // One Gemini call and one media download per post instead of one per job type
+  @Value("${application.ai.enrichment.combined:true}")
+  private boolean combinedEnrichment;
+
+  public PostUtil(
+      AiService aiService,
+      PostRepository postRepository,
+      PostEnrichmentJobRepository jobRepository,
+      RagUtil ragUtil) {
 
-  public PostUtil(AiService aiService, PostRepository postRepository) {
     this.aiService = aiService;
     this.postRepository = postRepository;
+    this.jobRepository = jobRepository;
+    this.ragUtil = ragUtil;
+  }
+
+  /**
+   * Records the AI enrichment jobs of a post. Must be called inside the transaction that saves the
+   * post, so that the post and its jobs are committed together. Also used after an update, the
+   * embedding step only re-embeds the parts whose content hash changed.
+   */
+  public void enqueueEnrichment(UUID postId) {
+
+    List<PostEnrichmentJobType> types =
+        combinedEnrichment
+            ? List.of(PostEnrichmentJobType.COMBINED)
+            : List.of(
+                PostEnrichmentJobType.TIDBITS_AND_SAFETY, PostEnrichmentJobType.VECTOR_EMBEDDINGS);
+
+    for (PostEnrichmentJobType type : types) {
+      enqueue(postId, type);
+    }
   }
 
-  @Async("asyncExecutor")
-  public void backgroundAiAnalysis(UUID postId, PostRequestDto createRequestDto) {
-    try {
-      MultiModalAiRequestDto aiRequestDto = new MultiModalAiRequestDto();
-      setFields(aiRequestDto, createRequestDto);
+  /** Records the removal of the vectors of a deleted post, in the transaction that deletes it. */
+  public void enqueueVectorRemoval(UUID postId) {
 
-      TidbitsAndSafetyDto responseDto = aiService.getTidbitsAndSafety(aiRequestDto).join();
+    enqueue(postId, PostEnrichmentJobType.VECTOR_REMOVAL);
+  }
 
-      Post post =
-          postRepository
-              .findById(postId)
-              .orElseThrow(
-                  () ->
-                      new ResourceNotFoundException(
-                          String.format(ResponseMessage.POST_NOT_FOUND, postId)));
+  private void enqueue(UUID postId, PostEnrichmentJobType type) {
 
-      updatePostWithAnalysis(responseDto, post);
+    // A pending job reads the post when it runs, so it already sees the latest content
+    if (jobRepository.existsByPostIdAndTypeAndStatus(
+        postId, type, PostEnrichmentJobStatus.PENDING)) {
+      return;
+    }
 
-      postRepository.save(post);
+    jobRepository.save(new PostEnrichmentJob(postId, type, OffsetDateTime.now(ZoneOffset.UTC)));
+  }
 
-    } catch (Exception e) {
-      log.error("Error in background AI analysis for post {}: {}", postId, e.getMessage(), e);
+  /** Runs a claimed enrichment job, any exception thrown makes the job retry later. */
+  public void processEnrichmentJob(PostEnrichmentJob job) {
+
+    if (job.getType() == PostEnrichmentJobType.VECTOR_REMOVAL) {
+      int removed = ragUtil.removeContent(job.getPostId().toString());
+      log.info("Removed {} vectors of deleted post {}", removed, job.getPostId());
+      return;
+    }
+
+    Optional<Post> post = postRepository.findById(job.getPostId());
+
+    if (post.isEmpty()) {
+      log.info("Skipping {} job, post {} no longer exists", job.getType(), job.getPostId());
+      return;
+    }
+
+    switch (job.getType()) {
+      case TIDBITS_AND_SAFETY -> backgroundAiAnalysis(post.get());
+      case VECTOR_EMBEDDINGS -> addToVectorDb(post.get());
+      case COMBINED -> enrich(post.get());
     }
   }
 
-  public void addToVectorDb(UUID postId, PostRequestDto requestDto) {
+  private void backgroundAiAnalysis(Post post) {
 
-    requestDto.setVideoPaths(null);
+    MultiModalAiRequestDto aiRequestDto = new MultiModalAiRequestDto();
+    setFields(aiRequestDto, post, true);
+
+    TidbitsAndSafetyDto responseDto = aiService.getTidbitsAndSafety(aiRequestDto).join();
+
+    if (responseDto.getText() == null && responseDto.getFinishReason() == FinishReason.OTHER) {
+      throw new AiGenerationFailedException(ResponseMessage.TIDBITS_GENERATION_FAILED);
+    }
+
+    // Re-read, the post may have been edited while the model was running
+    postRepository
+        .findById(post.getId())
+        .ifPresent(
+            latest -> {
+              updatePostWithAnalysis(responseDto, latest);
+              postRepository.save(latest);
+            });
+  }
+
+  private void addToVectorDb(Post post) {
+
+    MultiModalAiRequestDto aiRequestDto = new MultiModalAiRequestDto();
+    setFields(aiRequestDto, post, false);
+
+    aiService.addContentToVectorDb(aiRequestDto, post.getId()).join();
+  }
+
+  private void enrich(Post post) {
 
     MultiModalAiRequestDto aiRequestDto = new MultiModalAiRequestDto();
-    setFields(aiRequestDto, requestDto);
+    setFields(aiRequestDto, post, true);
+
+    PostEnrichmentDto responseDto = aiService.getPostEnrichment(aiRequestDto, post.getId()).join();
+
+    if (responseDto.getFinishReason() == FinishReason.OTHER) {
+      throw new AiGenerationFailedException(ResponseMessage.TIDBITS_GENERATION_FAILED);
+    }
 
-    aiService.addContentToVectorDb(aiRequestDto, postId);
+    postRepository
+        .findById(post.getId())
+        .ifPresent(
+            latest -> {
+              if (responseDto.getFinishReason() == FinishReason.CONTENT_FILTER
+                  || Boolean.FALSE.equals(responseDto.getIsSafe())) {
+                latest.setIsSafe(false);
+              } else if (responseDto.getTidbits() != null && !responseDto.getTidbits().isEmpty()) {
+                latest.setTidbits(responseDto.getTidbits());
+              }
+              postRepository.save(latest);
+            });
   }
 
-  private void setFields(MultiModalAiRequestDto aiRequestDto, PostRequestDto createRequestDto) {
+  private void setFields(MultiModalAiRequestDto aiRequestDto, Post post, boolean includeVideos) {
 
-    if (createRequestDto.getText() != null && !createRequestDto.getText().isEmpty()) {
-      aiRequestDto.setText(createRequestDto.getText());
+    if (post.getText() != null && !post.getText().isEmpty()) {
+      aiRequestDto.setText(post.getText());
     }
-    if (createRequestDto.getImagePaths() != null && !createRequestDto.getImagePaths().isEmpty()) {
-      aiRequestDto.setMediaUrls(createRequestDto.getImagePaths());
+    if (post.getImagePaths() != null && !post.getImagePaths().isEmpty()) {
+      aiRequestDto.setMediaUrls(new ArrayList<>(post.getImagePaths()));
     }
-    if (createRequestDto.getVideoPaths() != null && !createRequestDto.getVideoPaths().isEmpty()) {
-      aiRequestDto.getMediaUrls().addAll(createRequestDto.getVideoPaths());
+    if (includeVideos && post.getVideoPaths() != null && !post.getVideoPaths().isEmpty()) {
+      aiRequestDto.getMediaUrls().addAll(post.getVideoPaths());
     }
   }
 
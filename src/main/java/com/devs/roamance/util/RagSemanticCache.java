@@ -0,0 +1,303 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.dto.response.ai.PostIdListRagSearchDto;
+import dev.langchain4j.data.embedding.Embedding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Semantic cache of RAG search results.
+ *
+ * <p>A query is answered from the cache when a previous query with the same scope has a cosine
+ * similarity of at least {@code similarity-threshold}, so "beaches in Bali" can reuse the result of
+ * "Bali beaches". Entries expire after {@code ttl}. When new content is stored, every cached query
+ * whose cosine similarity to one of the new segments reaches {@code invalidation-threshold} is
+ * dropped, since its result could now include the new content. Unrelated texts commonly reach a
+ * cosine of 0.5, a lower threshold flushes most of the cache on every write. Removing the vectors
+ * of a content drops every cached result that contains it.
+ *
+ * <p>Each invalidation starts a new generation. A search reads the generation before it starts and
+ * passes it to {@link #put}, which drops the result when an invalidation happened in between, as
+ * the search may have missed the content that caused it.
+ */
+@Component
+@Slf4j
+public class RagSemanticCache {
+
+  private record Entry(
+      float[] vector, String scope, PostIdListRagSearchDto result, long createdAtMillis) {}
+
+  @Value("${application.ai.rag-cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${application.ai.rag-cache.similarity-threshold:0.95}")
+  private double similarityThreshold;
+
+  @Value("${application.ai.rag-cache.invalidation-threshold:0.8}")
+  private double invalidationThreshold;
+
+  @Value("${application.ai.rag-cache.ttl:10m}")
+  private Duration ttl;
+
+  @Value("${application.ai.rag-cache.max-entries:1000}")
+  private int maxEntries;
+
+  /** Insertion ordered, the eldest entry is evicted first */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+  /** Number of invalidations so far, guarded by the entries lock */
+  private long generation;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter invalidations;
+
+  public RagSemanticCache(MeterRegistry meterRegistry) {
+
+    this.hits = meterRegistry.counter("rag.semantic.cache.requests", "result", "hit");
+    this.misses = meterRegistry.counter("rag.semantic.cache.requests", "result", "miss");
+    this.invalidations = meterRegistry.counter("rag.semantic.cache.invalidations");
+
+    Gauge.builder("rag.semantic.cache.size", this, RagSemanticCache::size)
+        .register(meterRegistry);
+    Gauge.builder("rag.semantic.cache.hit.ratio", this, RagSemanticCache::hitRatio)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Current generation, to read before a search whose result is cached
+   *
+   * @return Number of invalidations so far
+   */
+  public long generation() {
+    synchronized (entries) {
+      return generation;
+    }
+  }
+
+  /**
+   * Looks up the result of a semantically equivalent query
+   *
+   * @param queryEmbedding Embedding of the query text
+   * @param scope Image URL and retrieval mode of the query, must match exactly
+   * @return Cached result if a close enough query is found
+   */
+  public Optional<PostIdListRagSearchDto> get(Embedding queryEmbedding, String scope) {
+
+    if (!enabled) {
+      return Optional.empty();
+    }
+
+    float[] vector = normalize(queryEmbedding.vector());
+    long now = System.currentTimeMillis();
+
+    Entry best = null;
+    double bestScore = similarityThreshold;
+
+    synchronized (entries) {
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (iterator.hasNext()) {
+        Entry entry = iterator.next();
+
+        if (now - entry.createdAtMillis() > ttl.toMillis()) {
+          iterator.remove();
+          continue;
+        }
+        if (!Objects.equals(entry.scope(), scope)) {
+          continue;
+        }
+
+        double score = dot(vector, entry.vector());
+        if (score >= bestScore) {
+          best = entry;
+          bestScore = score;
+        }
+      }
+    }
+
+    if (best == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+
+    hits.increment();
+    return Optional.of(copy(best.result()));
+  }
+
+  /**
+   * Caches the result of a query
+   *
+   * @param query Query text, identical queries replace each other
+   * @param queryEmbedding Embedding of the query text
+   * @param scope Image URL and retrieval mode of the query
+   * @param result Result to cache
+   * @param searchGeneration Generation read before the search started
+   */
+  public void put(
+      String query,
+      Embedding queryEmbedding,
+      String scope,
+      PostIdListRagSearchDto result,
+      long searchGeneration) {
+
+    if (!enabled) {
+      return;
+    }
+
+    String key = query.trim().toLowerCase(Locale.ROOT) + "\n" + scope;
+    Entry entry =
+        new Entry(
+            normalize(queryEmbedding.vector()), scope, copy(result), System.currentTimeMillis());
+
+    synchronized (entries) {
+      if (searchGeneration != generation) {
+        return;
+      }
+
+      entries.remove(key);
+      entries.put(key, entry);
+
+      Iterator<String> eldest = entries.keySet().iterator();
+      while (entries.size() > maxEntries && eldest.hasNext()) {
+        eldest.next();
+        eldest.remove();
+      }
+    }
+  }
+
+  /**
+   * Drops cached queries whose results could change because of newly stored content
+   *
+   * @param contentEmbeddings Embeddings of the stored segments
+   */
+  public void invalidateSimilar(List<Embedding> contentEmbeddings) {
+
+    if (!enabled || contentEmbeddings.isEmpty()) {
+      return;
+    }
+
+    List<float[]> vectors = new ArrayList<>(contentEmbeddings.size());
+    for (Embedding embedding : contentEmbeddings) {
+      vectors.add(normalize(embedding.vector()));
+    }
+
+    int removed = 0;
+
+    synchronized (entries) {
+      generation++;
+
+      Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        float[] queryVector = iterator.next().getValue().vector();
+
+        for (float[] vector : vectors) {
+          if (dot(queryVector, vector) >= invalidationThreshold) {
+            iterator.remove();
+            removed++;
+            break;
+          }
+        }
+      }
+    }
+
+    if (removed > 0) {
+      invalidations.increment(removed);
+      log.debug("Invalidated {} cached RAG queries after a content write", removed);
+    }
+  }
+
+  /**
+   * Drops cached queries whose results contain a content, after its vectors were removed
+   *
+   * @param contentId Id of the content
+   */
+  public void invalidateContent(String contentId) {
+
+    if (!enabled) {
+      return;
+    }
+
+    int removed = 0;
+
+    synchronized (entries) {
+      generation++;
+
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (iterator.hasNext()) {
+        List<UUID> postIds = iterator.next().result().getPostIds();
+
+        if (postIds != null
+            && postIds.stream().anyMatch(postId -> postId.toString().equals(contentId))) {
+          iterator.remove();
+          removed++;
+        }
+      }
+    }
+
+    if (removed > 0) {
+      invalidations.increment(removed);
+      log.debug("Invalidated {} cached RAG queries after removing {}", removed, contentId);
+    }
+  }
+
+  private int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private double hitRatio() {
+    double total = hits.count() + misses.count();
+    return total == 0 ? 0 : hits.count() / total;
+  }
+
+  private static PostIdListRagSearchDto copy(PostIdListRagSearchDto result) {
+    return new PostIdListRagSearchDto(
+        result.getPostIds() == null ? new ArrayList<>() : new ArrayList<>(result.getPostIds()));
+  }
+
+  private static float[] normalize(float[] vector) {
+
+    double norm = 0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    norm = Math.sqrt(norm);
+
+    float[] normalized = new float[vector.length];
+    if (norm == 0) {
+      return normalized;
+    }
+    for (int i = 0; i < vector.length; i++) {
+      normalized[i] = (float) (vector[i] / norm);
+    }
+    return normalized;
+  }
+
+  private static double dot(float[] a, float[] b) {
+
+    if (a.length != b.length) {
+      return -1;
+    }
+
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+}
@@ -7,21 +7,29 @@ import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.input.PromptTemplate;
-import dev.langchain4j.model.nomic.NomicEmbeddingModel;
-import dev.langchain4j.rag.DefaultRetrievalAugmentor;
-import dev.langchain4j.rag.RetrievalAugmentor;
-import dev.langchain4j.rag.content.injector.ContentInjector;
-import dev.langchain4j.rag.content.injector.DefaultContentInjector;
-import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
-import dev.langchain4j.rag.query.router.DefaultQueryRouter;
-import dev.langchain4j.rag.query.router.QueryRouter;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -32,137 +40,383 @@ public class RagUtil {
 
   private String metadataKey = "contentId";
 
-  @Value("${application.pgvector.host}")
-  private String host;
+  /**
+   * Metadata key of the hash of the source a segment was embedded from, a text or an image URL,
+   * used to skip re-embedding unchanged parts of a content
+   */
+  public static final String CONTENT_HASH_KEY = "contentHash";
 
-  @Value("${application.pgvector.port}")
-  private Integer port;
+  /** Placeholder text of segments stored in the image embeddings table */
+  private static final String IMAGE_SEGMENT_TEXT = "An image.";
 
-  @Value("${application.pgvector.db}")
-  private String vectorDb;
+  private static final int MAX_SNIPPETS_PER_CONTENT = 3;
 
-  @Value("${application.pgvector.user}")
-  private String user;
+  @Value("${application.ai.rag.max-results-per-table:20}")
+  private int maxResultsPerTable;
 
-  @Value("${application.pgvector.password}")
-  private String password;
+  @Value("${application.ai.rag.rrf-k:60}")
+  private int rrfK;
 
-  public void embedAndStore(
-      String apiKey, Document document, String contentId, String taskType, String tableName) {
+  /** A content id ranked by reciprocal rank fusion, with its matched text for re-ranking */
+  public record RankedContent(String contentId, double score, List<String> snippets) {}
 
-    EmbeddingModel embeddingModel = buildEmbeddingModel(apiKey, taskType);
+  /** One vector search, a table and the embedding to search it with */
+  public record SearchTarget(Embedding queryEmbedding, String tableName, double minScore) {}
 
-    EmbeddingStore<TextSegment> embeddingStore =
-        buildEmbeddingStore(embeddingModel.dimension(), tableName);
+  private final PgVectorStoreRegistry storeRegistry;
+  private final RagSemanticCache semanticCache;
+  private final EmbeddingModelProvider embeddingModelProvider;
 
-    EmbeddingStoreIngestor ingestor =
-        EmbeddingStoreIngestor.builder()
-            .documentTransformer(
-                doc -> {
-                  doc.metadata().put(metadataKey, contentId);
-                  return doc;
-                })
-            .documentSplitter(DocumentSplitters.recursive(1000, 200))
-            .textSegmentTransformer(
-                textSegment ->
-                    TextSegment.from(
-                        textSegment.metadata().getString(metadataKey) + "\n" + textSegment.text(),
-                        textSegment.metadata()))
-            .embeddingModel(embeddingModel)
-            .embeddingStore(embeddingStore)
-            .build();
+  public RagUtil(
+      PgVectorStoreRegistry storeRegistry,
+      RagSemanticCache semanticCache,
+      EmbeddingModelProvider embeddingModelProvider) {
+
+    this.storeRegistry = storeRegistry;
+    this.semanticCache = semanticCache;
+    this.embeddingModelProvider = embeddingModelProvider;
+  }
+
+  /**
+   * Fingerprint of an embedded source
+   *
+   * @param value Text or image URL, may be null
+   * @return Hex encoded SHA-256 of the value, null for a null or blank value
+   */
+  public static String contentHash(String value) {
+
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Returns the fingerprints of the sources stored for a content in a table
+   *
+   * @param contentId Id of the content
+   * @param tableName Name of the vector table
+   * @return Stored content hashes, an empty string stands for rows stored without a hash
+   */
+  public Set<String> contentHashes(String contentId, String tableName) {
+
+    String sql =
+        "SELECT DISTINCT COALESCE(metadata->>'"
+            + CONTENT_HASH_KEY
+            + "', '') FROM "
+            + tableName
+            + " WHERE metadata->>'"
+            + metadataKey
+            + "' = ?";
+
+    Set<String> hashes = new HashSet<>();
+
+    try (Connection connection = storeRegistry.getDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+
+      statement.setString(1, contentId);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          hashes.add(resultSet.getString(1));
+        }
+      }
+
+    } catch (SQLException e) {
+      throw new IllegalStateException("Reading content hashes of " + contentId + " failed", e);
+    }
+
+    return hashes;
+  }
+
+  /**
+   * Returns the mean of the stored embeddings of each content, one per content that has any
+   *
+   * @param contentIds Ids of the contents
+   * @param tableName Name of the vector table
+   * @return Mean embedding by content id
+   */
+  public Map<String, float[]> meanEmbeddings(Collection<String> contentIds, String tableName) {
+
+    String sql =
+        "SELECT metadata->>'"
+            + metadataKey
+            + "', embedding::text FROM "
+            + tableName
+            + " WHERE metadata->>'"
+            + metadataKey
+            + "' = ANY(?)";
+
+    Map<String, float[]> sums = new HashMap<>();
+    Map<String, Integer> counts = new HashMap<>();
+
+    try (Connection connection = storeRegistry.getDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+
+      statement.setArray(1, connection.createArrayOf("text", contentIds.toArray()));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          String contentId = resultSet.getString(1);
+          float[] vector = parseVector(resultSet.getString(2));
+
+          float[] sum = sums.computeIfAbsent(contentId, id -> new float[vector.length]);
+          for (int i = 0; i < Math.min(sum.length, vector.length); i++) {
+            sum[i] += vector[i];
+          }
+          counts.merge(contentId, 1, Integer::sum);
+        }
+      }
+
+    } catch (SQLException e) {
+      throw new IllegalStateException("Reading embeddings from " + tableName + " failed", e);
+    }
+
+    sums.forEach(
+        (contentId, sum) -> {
+          int count = counts.get(contentId);
+          for (int i = 0; i < sum.length; i++) {
+            sum[i] /= count;
+          }
+        });
+
+    return sums;
+  }
+
+  // pgvector text format, "[0.1,0.2,...]"
+  private static float[] parseVector(String value) {
+
+    String[] parts = value.substring(1, value.length() - 1).split(",");
+    float[] vector = new float[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      vector[i] = Float.parseFloat(parts[i]);
+    }
+    return vector;
+  }
+
+  /**
+   * Removes every vector of a content from all known tables
+   *
+   * @param contentId Id of the content
+   * @return Number of removed rows
+   */
+  public int removeContent(String contentId) {
 
-    ingestor.ingest(document);
+    int removed = 0;
+    for (String table : PgVectorStoreRegistry.KNOWN_TABLES) {
+      removed += removeContent(contentId, table, null);
+    }
+    return removed;
+  }
+
+  /**
+   * Removes vectors of a content from a table
+   *
+   * @param contentId Id of the content
+   * @param tableName Name of the vector table
+   * @param contentHashes Only rows with one of these hashes are removed, null removes all rows
+   * @return Number of removed rows
+   */
+  public int removeContent(String contentId, String tableName, Collection<String> contentHashes) {
+
+    String sql = "DELETE FROM " + tableName + " WHERE metadata->>'" + metadataKey + "' = ?";
+    if (contentHashes != null) {
+      sql += " AND COALESCE(metadata->>'" + CONTENT_HASH_KEY + "', '') = ANY(?)";
+    }
+
+    int removed;
+
+    try (Connection connection = storeRegistry.getDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+
+      statement.setString(1, contentId);
+      if (contentHashes != null) {
+        statement.setArray(2, connection.createArrayOf("text", contentHashes.toArray()));
+      }
+      removed = statement.executeUpdate();
+
+    } catch (SQLException e) {
+      throw new IllegalStateException("Removing vectors of " + contentId + " failed", e);
+    }
+
+    if (removed > 0) {
+      // Cached results may rank the removed vectors
+      semanticCache.invalidateContent(contentId);
+      log.debug("Removed {} vectors of {} from {}", removed, contentId, tableName);
+    }
+
+    return removed;
+  }
+
+  /**
+   * Splits a document into embeddable segments tagged with the content id
+   *
+   * @param document Document to split
+   * @param contentId Id of the content the document belongs to
+   * @return Segments prefixed with the content id
+   */
+  public List<TextSegment> toSegments(Document document, String contentId) {
+
+    document.metadata().put(metadataKey, contentId);
+
+    return DocumentSplitters.recursive(1000, 200).split(document).stream()
+        .map(
+            textSegment ->
+                TextSegment.from(
+                    textSegment.metadata().getString(metadataKey) + "\n" + textSegment.text(),
+                    textSegment.metadata()))
+        .toList();
   }
 
   public void store(
       List<EmbeddingResponse> embeddingResponses,
+      List<String> contentHashes,
       Integer dimension,
       String contentId,
       String tableName) {
 
+    if (embeddingResponses.isEmpty()) {
+      return;
+    }
+    if (embeddingResponses.size() != contentHashes.size()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Got %d embeddings for %d sources of %s",
+              embeddingResponses.size(), contentHashes.size(), contentId));
+    }
+
     EmbeddingStore<TextSegment> embeddingStore = buildEmbeddingStore(dimension, tableName);
 
-    embeddingResponses.forEach(
-        embeddingResponse ->
-            embeddingStore.add(
-                new Embedding(embeddingResponse.getEmbedding()),
-                TextSegment.from("An image.", Metadata.from(metadataKey, contentId))));
+    List<Embedding> embeddings =
+        embeddingResponses.stream()
+            .map(embeddingResponse -> new Embedding(embeddingResponse.getEmbedding()))
+            .toList();
+    List<TextSegment> segments =
+        contentHashes.stream()
+            .map(
+                contentHash ->
+                    TextSegment.from(
+                        IMAGE_SEGMENT_TEXT,
+                        Metadata.from(metadataKey, contentId).put(CONTENT_HASH_KEY, contentHash)))
+            .toList();
+
+    // A single multi-row insert instead of one round trip per image
+    embeddingStore.addAll(embeddings, segments);
+
+    // Image vectors share the space of the query embeddings, cached searches near them are stale
+    semanticCache.invalidateSimilar(embeddings);
   }
 
-  public RetrievalAugmentor buildAugmentor(
-      String apiKey, String taskType, String textsTableName, String imageDescriptionsTableName) {
+  /**
+   * Returns the shared embedding store of a vector table
+   *
+   * @param tableName Name of the vector table
+   * @return Shared EmbeddingStore instance
+   */
+  public EmbeddingStore<TextSegment> getEmbeddingStore(String tableName) {
 
-    EmbeddingModel embeddingModel = buildEmbeddingModel(apiKey, taskType);
+    return buildEmbeddingStore(PgVectorStoreRegistry.NOMIC_DIMENSION, tableName);
+  }
 
-    EmbeddingStore<TextSegment> textsEmbeddingStore =
-        buildEmbeddingStore(embeddingModel.dimension(), textsTableName);
-    EmbeddingStore<TextSegment> imageDescriptionsEmbeddingStore =
-        buildEmbeddingStore(embeddingModel.dimension(), imageDescriptionsTableName);
+  /**
+   * Returns the shared text embedding model of a task type, see {@link EmbeddingModelProvider}
+   *
+   * @param apiKey Nomic API key
+   * @param taskType Nomic task type, e.g. "search_document" or "search_query"
+   * @return Shared EmbeddingModel instance
+   */
+  public EmbeddingModel getEmbeddingModel(String apiKey, String taskType) {
 
-    ContentRetriever textsContentRetriever =
-        EmbeddingStoreContentRetriever.builder()
-            .embeddingStore(textsEmbeddingStore)
-            .embeddingModel(embeddingModel)
-            .maxResults(20)
-            .minScore(0.6)
-            .build();
-    ContentRetriever imageDescriptionsContentRetriever =
-        EmbeddingStoreContentRetriever.builder()
-            .embeddingStore(imageDescriptionsEmbeddingStore)
-            .embeddingModel(embeddingModel)
-            .maxResults(20)
-            .minScore(0.6)
-            .build();
+    return embeddingModelProvider.get(apiKey, taskType);
+  }
 
-    QueryRouter queryRouter =
-        new DefaultQueryRouter(textsContentRetriever, imageDescriptionsContentRetriever);
+  /**
+   * Runs several vector searches and fuses their rankings
+   *
+   * <p>Every search ranks content ids by their best matching segment. The rankings are merged with
+   * reciprocal rank fusion, {@code sum(1 / (k + rank))}, so scores of different tables and
+   * modalities never have to be compared directly.
+   *
+   * @param targets Searches to run, each with its table, query embedding and minimum score
+   * @param annOptions HNSW ef_search / IVFFlat probes for these searches
+   * @return Content ids ordered by fused score, best first
+   */
+  public List<RankedContent> searchContentIds(
+      List<SearchTarget> targets, AnnTuningDataSource.AnnOptions annOptions) {
 
-    ContentInjector contentInjector =
-        DefaultContentInjector.builder()
-            .promptTemplate(
-                PromptTemplate.from(
-                    """
-                            {{userMessage}}
+    List<List<EmbeddingMatch<TextSegment>>> perTable;
 
-                            return the relevant contentIds using the following information:
-                            {{contents}}"""))
-            .metadataKeysToInclude(List.of(metadataKey))
-            .build();
+    // The searches are independent, running them in parallel bounds latency by the slowest one
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<CompletableFuture<List<EmbeddingMatch<TextSegment>>>> searches =
+          targets.stream()
+              .map(
+                  target ->
+                      CompletableFuture.supplyAsync(
+                          () -> AnnTuningDataSource.withOptions(annOptions, () -> search(target)),
+                          executor))
+              .toList();
+
+      perTable = searches.stream().map(CompletableFuture::join).toList();
+    }
+
+    Map<String, Double> scores = new HashMap<>();
+    Map<String, List<String>> snippets = new LinkedHashMap<>();
 
-    return DefaultRetrievalAugmentor.builder()
-        .queryRouter(queryRouter)
-        .contentInjector(contentInjector)
-        .build();
+    for (List<EmbeddingMatch<TextSegment>> matches : perTable) {
+      int rank = 0;
+      Set<String> seen = new HashSet<>();
+
+      for (EmbeddingMatch<TextSegment> match : matches) {
+        String contentId = match.embedded().metadata().getString(metadataKey);
+        if (contentId == null) {
+          continue;
+        }
+
+        List<String> contentSnippets = snippets.computeIfAbsent(contentId, id -> new ArrayList<>());
+        if (contentSnippets.size() < MAX_SNIPPETS_PER_CONTENT
+            && !IMAGE_SEGMENT_TEXT.equals(match.embedded().text())) {
+          contentSnippets.add(match.embedded().text());
+        }
+
+        // Only the best segment of a content counts in each table
+        if (seen.add(contentId)) {
+          rank++;
+          scores.merge(contentId, 1.0 / (rrfK + rank), Double::sum);
+        }
+      }
+    }
+
+    return scores.entrySet().stream()
+        .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+        .map(
+            entry ->
+                new RankedContent(
+                    entry.getKey(),
+                    entry.getValue(),
+                    snippets.getOrDefault(entry.getKey(), List.of())))
+        .toList();
   }
 
-  private EmbeddingModel buildEmbeddingModel(String apiKey, String taskType) {
-
-    return NomicEmbeddingModel.builder()
-        .baseUrl("https://api-atlas.nomic.ai/v1/")
-        .apiKey(apiKey)
-        .modelName("nomic-embed-text-v1.5")
-        .taskType(taskType)
-        .maxSegmentsPerBatch(1)
-        .timeout(Duration.ofSeconds(10))
-        .logRequests(true)
-        .logResponses(true)
-        .build();
+  private List<EmbeddingMatch<TextSegment>> search(SearchTarget target) {
+
+    EmbeddingSearchRequest request =
+        EmbeddingSearchRequest.builder()
+            .queryEmbedding(target.queryEmbedding())
+            .maxResults(maxResultsPerTable)
+            .minScore(target.minScore())
+            .build();
+
+    return getEmbeddingStore(target.tableName()).search(request).matches();
   }
 
   private EmbeddingStore<TextSegment> buildEmbeddingStore(Integer dimension, String tableName) {
 
-    return PgVectorEmbeddingStore.builder()
-        .host(host)
-        .port(port)
-        .database(vectorDb)
-        .user(user)
-        .password(password)
-        .table(tableName)
-        .dimension(dimension)
-        .useIndex(true)
-        .indexListSize(100)
-        .createTable(true)
-        .build();
+    return storeRegistry.getStore(tableName, dimension);
   }
 }
@@ -0,0 +1,385 @@
+package com.devs.roamance.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed features of the recent posts and the scoring of the "for you" feed.
+ *
+ * <p>Features are kept in parallel primitive arrays, replaced as a whole by {@link #replace} so
+ * that a ranking never sees a half updated pool and never locks. Embeddings are kept across
+ * replacements, a post is only embedded once. A post found without an embedding, e.g. an image only
+ * post, is not looked up again until it changes or its retry time has passed. Scoring a pool of
+ * {@code n} posts is {@code n} dot products plus a few exponentials, split in chunks scored in
+ * parallel once the pool is large enough for it to pay off.
+ */
+public class RankingCandidatePool {
+
+  /**
+   * Features of a post, latitude and longitude are NaN when it has no location. The modification
+   * time tells when a post has changed since it was found without an embedding.
+   */
+  public record Candidate(
+      UUID id,
+      UUID authorId,
+      long createdAtEpochSecond,
+      long modifiedAtEpochSecond,
+      int likes,
+      int comments,
+      double latitude,
+      double longitude) {}
+
+  /**
+   * The reader of a feed, latitude and longitude are NaN when unknown and the embedding, unit
+   * length, is null when their preferences are not embedded yet
+   */
+  public record Viewer(
+      UUID userId, long nowEpochSecond, double latitude, double longitude, float[] embedding) {}
+
+  /**
+   * Weights of the score terms, each term being between 0 and 1
+   *
+   * @param recencyHalfLifeHours Age at which the recency term halves
+   * @param proximityScaleKm Distance at which the proximity term falls to 1/e
+   */
+  public record Weights(
+      double recency,
+      double engagement,
+      double proximity,
+      double similarity,
+      double recencyHalfLifeHours,
+      double proximityScaleKm) {}
+
+  private static final int CHUNK_SIZE = 1024;
+  private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+
+  private record Snapshot(
+      UUID[] ids,
+      UUID[] authorIds,
+      long[] createdAt,
+      long[] modifiedAt,
+      float[] engagement,
+      double[] latitudes,
+      double[] longitudes,
+      float[][] embeddings) {
+
+    int size() {
+      return ids.length;
+    }
+  }
+
+  private final double saturation;
+  private final Map<UUID, float[]> embeddings = new HashMap<>();
+
+  /** Posts found without an embedding, with their modification time then and their retry time */
+  private record Miss(long modifiedAt, long retryAt) {}
+
+  private final Map<UUID, Miss> misses = new HashMap<>();
+
+  private volatile Snapshot snapshot = empty();
+
+  /**
+   * @param engagementSaturation Likes plus twice the comments at which the engagement term reaches
+   *     1, it grows logarithmically up to there
+   */
+  public RankingCandidatePool(double engagementSaturation) {
+
+    this.saturation = Math.log1p(Math.max(1, engagementSaturation));
+  }
+
+  /**
+   * Replaces the candidates, keeping the embeddings of the posts still in the pool and the misses
+   * of the ones that have not changed
+   *
+   * @param candidates Candidates, in any order
+   */
+  public synchronized void replace(Collection<Candidate> candidates) {
+
+    int n = candidates.size();
+    UUID[] ids = new UUID[n];
+    UUID[] authorIds = new UUID[n];
+    long[] createdAt = new long[n];
+    long[] modifiedAt = new long[n];
+    float[] engagement = new float[n];
+    double[] latitudes = new double[n];
+    double[] longitudes = new double[n];
+    float[][] vectors = new float[n][];
+
+    Map<UUID, float[]> kept = new HashMap<>();
+    Map<UUID, Miss> keptMisses = new HashMap<>();
+
+    int i = 0;
+    for (Candidate candidate : candidates) {
+      ids[i] = candidate.id();
+      authorIds[i] = candidate.authorId();
+      createdAt[i] = candidate.createdAtEpochSecond();
+      modifiedAt[i] = candidate.modifiedAtEpochSecond();
+      engagement[i] =
+          (float)
+              Math.min(1, Math.log1p(candidate.likes() + 2.0 * candidate.comments()) / saturation);
+      latitudes[i] = candidate.latitude();
+      longitudes[i] = candidate.longitude();
+
+      vectors[i] = embeddings.get(candidate.id());
+      if (vectors[i] != null) {
+        kept.put(candidate.id(), vectors[i]);
+      }
+
+      Miss miss = misses.get(candidate.id());
+      if (miss != null && miss.modifiedAt() == modifiedAt[i]) {
+        keptMisses.put(candidate.id(), miss);
+      }
+      i++;
+    }
+
+    embeddings.clear();
+    embeddings.putAll(kept);
+    misses.clear();
+    misses.putAll(keptMisses);
+
+    snapshot =
+        new Snapshot(
+            ids, authorIds, createdAt, modifiedAt, engagement, latitudes, longitudes, vectors);
+  }
+
+  /**
+   * Sets the embeddings of posts in the pool, they are normalized to unit length
+   *
+   * @param vectors Embeddings by post id
+   */
+  public synchronized void putEmbeddings(Map<UUID, float[]> vectors) {
+
+    if (vectors.isEmpty()) {
+      return;
+    }
+
+    Snapshot current = snapshot;
+    float[][] updated = current.embeddings().clone();
+
+    for (int i = 0; i < current.size(); i++) {
+      float[] vector = vectors.get(current.ids()[i]);
+      if (vector != null) {
+        updated[i] = normalize(vector);
+        embeddings.put(current.ids()[i], updated[i]);
+        misses.remove(current.ids()[i]);
+      }
+    }
+
+    snapshot =
+        new Snapshot(
+            current.ids(),
+            current.authorIds(),
+            current.createdAt(),
+            current.modifiedAt(),
+            current.engagement(),
+            current.latitudes(),
+            current.longitudes(),
+            updated);
+  }
+
+  /**
+   * Records posts of the pool that were looked up and have no embedding
+   *
+   * @param ids Ids of the posts
+   * @param retryAtEpochSecond Time after which they are looked up again even if unchanged
+   */
+  public synchronized void markWithoutEmbedding(Set<UUID> ids, long retryAtEpochSecond) {
+
+    Snapshot current = snapshot;
+    for (int i = 0; i < current.size(); i++) {
+      if (current.embeddings()[i] == null && ids.contains(current.ids()[i])) {
+        misses.put(current.ids()[i], new Miss(current.modifiedAt()[i], retryAtEpochSecond));
+      }
+    }
+  }
+
+  /**
+   * Ids of the candidates that have no embedding yet, leaving out the unchanged posts found without
+   * one before their retry time
+   *
+   * @param nowEpochSecond Current time
+   */
+  public synchronized List<UUID> missingEmbeddings(long nowEpochSecond) {
+
+    Snapshot current = snapshot;
+    List<UUID> missing = new ArrayList<>();
+
+    for (int i = 0; i < current.size(); i++) {
+      if (current.embeddings()[i] != null) {
+        continue;
+      }
+      Miss miss = misses.get(current.ids()[i]);
+      if (miss == null || miss.retryAt() <= nowEpochSecond) {
+        missing.add(current.ids()[i]);
+      }
+    }
+    return missing;
+  }
+
+  public int size() {
+    return snapshot.size();
+  }
+
+  /**
+   * Ranks the pool for a viewer, leaving out their own posts
+   *
+   * @param viewer The reader of the feed
+   * @param weights Weights of the score terms
+   * @param offset Number of ranked posts to skip
+   * @param limit Maximum number of posts to return
+   * @return Post ids, best first
+   */
+  public List<UUID> rank(Viewer viewer, Weights weights, int offset, int limit) {
+
+    Snapshot current = snapshot;
+    int n = current.size();
+    int wanted = (int) Math.min((long) offset + limit, n);
+
+    if (wanted <= offset) {
+      return List.of();
+    }
+
+    float[] scores = new float[n];
+    int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+    IntStream chunkStream = IntStream.range(0, chunks);
+    if (n >= PARALLEL_THRESHOLD) {
+      chunkStream = chunkStream.parallel();
+    }
+    chunkStream.forEach(
+        chunk ->
+            score(
+                current,
+                viewer,
+                weights,
+                scores,
+                chunk * CHUNK_SIZE,
+                Math.min(n, (chunk + 1) * CHUNK_SIZE)));
+
+    // Newest first among equal scores
+    Comparator<Integer> order =
+        Comparator.<Integer>comparingDouble(index -> scores[index])
+            .thenComparingLong(index -> current.createdAt()[index]);
+
+    PriorityQueue<Integer> best = new PriorityQueue<>(wanted + 1, order);
+    for (int i = 0; i < n; i++) {
+      if (scores[i] == Float.NEGATIVE_INFINITY) {
+        continue;
+      }
+      if (best.size() < wanted) {
+        best.add(i);
+      } else if (order.compare(i, best.peek()) > 0) {
+        best.poll();
+        best.add(i);
+      }
+    }
+
+    List<Integer> ranked = new ArrayList<>(best);
+    ranked.sort(order.reversed());
+
+    return ranked.stream()
+        .skip(offset)
+        .limit(limit)
+        .map(index -> current.ids()[index])
+        .toList();
+  }
+
+  private static void score(
+      Snapshot pool, Viewer viewer, Weights weights, float[] scores, int from, int to) {
+
+    boolean located = !Double.isNaN(viewer.latitude()) && !Double.isNaN(viewer.longitude());
+    float[] viewerEmbedding = viewer.embedding();
+    double decayPerSecond = Math.log(2) / (weights.recencyHalfLifeHours() * 3600);
+
+    for (int i = from; i < to; i++) {
+
+      if (viewer.userId() != null && viewer.userId().equals(pool.authorIds()[i])) {
+        scores[i] = Float.NEGATIVE_INFINITY;
+        continue;
+      }
+
+      long age = Math.max(0, viewer.nowEpochSecond() - pool.createdAt()[i]);
+      double score =
+          weights.recency() * Math.exp(-decayPerSecond * age)
+              + weights.engagement() * pool.engagement()[i];
+
+      if (located && !Double.isNaN(pool.latitudes()[i])) {
+        double distance =
+            GeoUtil.distanceKm(
+                viewer.latitude(),
+                viewer.longitude(),
+                pool.latitudes()[i],
+                pool.longitudes()[i]);
+        score += weights.proximity() * Math.exp(-distance / weights.proximityScaleKm());
+      }
+
+      float[] embedding = pool.embeddings()[i];
+      if (viewerEmbedding != null && embedding != null) {
+        score += weights.similarity() * Math.max(0, dot(viewerEmbedding, embedding));
+      }
+
+      scores[i] = (float) score;
+    }
+  }
+
+  private static float dot(float[] a, float[] b) {
+
+    int length = Math.min(a.length, b.length);
+    int unrolled = length & ~3;
+
+    // Independent sums, a single one makes every addition wait for the previous one
+    float sum0 = 0;
+    float sum1 = 0;
+    float sum2 = 0;
+    float sum3 = 0;
+    for (int i = 0; i < unrolled; i += 4) {
+      sum0 += a[i] * b[i];
+      sum1 += a[i + 1] * b[i + 1];
+      sum2 += a[i + 2] * b[i + 2];
+      sum3 += a[i + 3] * b[i + 3];
+    }
+    for (int i = unrolled; i < length; i++) {
+      sum0 += a[i] * b[i];
+    }
+    return (sum0 + sum1) + (sum2 + sum3);
+  }
+
+  /**
+   * Scales a vector to unit length, so that a dot product is the cosine similarity
+   *
+   * @return A normalized copy, the vector itself when it is zero
+   */
+  public static float[] normalize(float[] vector) {
+
+    double norm = Math.sqrt(dot(vector, vector));
+    if (norm == 0) {
+      return vector;
+    }
+
+    float[] normalized = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      normalized[i] = (float) (vector[i] / norm);
+    }
+    return normalized;
+  }
+
+  private static Snapshot empty() {
+    return new Snapshot(
+        new UUID[0],
+        new UUID[0],
+        new long[0],
+        new long[0],
+        new float[0],
+        new double[0],
+        new double[0],
+        new float[0][]);
+  }
+}
@@ -1,19 +1,36 @@
 package com.devs.roamance.util;
 
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
+import javax.imageio.ImageIO;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.util.unit.DataSize;
 
 @Component
 @Slf4j
@@ -22,13 +39,41 @@ public class RestUtil {
   /** Default fallback MIME type */
   private static final String DEFAULT_MIME = "application/octet-stream";
 
-  private final RestTemplate restTemplate = new RestTemplate();
-  private final RestUtil self;
-
   private static final List<String> ALLOWED_DOMAINS = List.of("res.cloudinary.com");
 
-  public RestUtil(@Lazy RestUtil self) {
-    this.self = self;
+  /** Image types ImageIO can decode and re-encode without extra plugins */
+  private static final Set<String> SCALABLE_MIMES = Set.of("image/jpeg", "image/png", "image/bmp");
+
+  private final MediaCache mediaCache;
+
+  /** Downloads block on IO only, virtual threads keep them off the platform pools */
+  private final ExecutorService downloadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final HttpClient httpClient;
+  private final Duration readTimeout;
+  private final long maxBytes;
+  private final int maxImageDimension;
+
+  public RestUtil(
+      MediaCache mediaCache,
+      @Value("${application.media-fetch.connect-timeout:5s}") Duration connectTimeout,
+      @Value("${application.media-fetch.read-timeout:10s}") Duration readTimeout,
+      @Value("${application.media-fetch.max-bytes:20MB}") DataSize maxBytes,
+      @Value("${application.media-fetch.max-image-dimension:1536}") int maxImageDimension) {
+
+    this.mediaCache = mediaCache;
+    this.readTimeout = readTimeout;
+    this.maxBytes = maxBytes.toBytes();
+    this.maxImageDimension = maxImageDimension;
+
+    this.httpClient =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            // Redirects could leave the allowed domains
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .executor(downloadExecutor)
+            .build();
   }
 
   /** Simple holder for downloaded bytes + resolved MIME type. */
@@ -59,7 +104,6 @@ public class RestUtil {
    * @param url the URL of the media to download
    * @return a CompletableFuture containing the downloaded bytes + MIME type
    */
-  @Async("asyncExecutor")
   public CompletableFuture<Media> downloadMediaWithMime(String url) {
 
     if (url == null || url.isBlank() || !isValidUrl(url)) {
@@ -68,22 +112,15 @@ public class RestUtil {
           new IllegalArgumentException("Invalid or unauthorized media URL"));
     }
 
-    try {
-      ResponseEntity<byte[]> resp =
-          restTemplate.exchange(URI.create(url), HttpMethod.GET, HttpEntity.EMPTY, byte[].class);
-
-      byte[] bytes = resp.getBody();
-      if (bytes == null || bytes.length == 0) {
-        return CompletableFuture.failedFuture(new IOException("No content at " + url));
-      }
-
-      String mime = extractMime(resp.getHeaders(), bytes);
-      return CompletableFuture.completedFuture(new Media(bytes, mime));
-
-    } catch (Exception e) {
-      log.error("Error fetching {}: {}", url, e.getMessage(), e);
-      return CompletableFuture.failedFuture(e);
-    }
+    return CompletableFuture.supplyAsync(
+            () -> mediaCache.get(url, etag -> fetch(url, etag)), downloadExecutor)
+        .thenCompose(media -> media)
+        .whenComplete(
+            (media, e) -> {
+              if (e != null) {
+                log.error("Error fetching {}: {}", url, e.getMessage(), e);
+              }
+            });
   }
 
   /**
@@ -92,7 +129,6 @@ public class RestUtil {
    * @param urls list of media URLs
    * @return a CompletableFuture mapping each URL to its Media
    */
-  @Async("asyncExecutor")
   public CompletableFuture<Map<String, Media>> downloadMultipleMediaWithMime(List<String> urls) {
 
     if (urls == null || urls.isEmpty()) {
@@ -103,7 +139,7 @@ public class RestUtil {
         urls.stream()
             .map(
                 u ->
-                    self.downloadMediaWithMime(u)
+                    downloadMediaWithMime(u)
                         .thenApply(media -> Map.entry(u, media))
                         .exceptionally(
                             e -> {
@@ -118,14 +154,196 @@ public class RestUtil {
                 futures.stream()
                     .map(CompletableFuture::join)
                     .filter(Objects::nonNull)
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+                    .collect(
+                        Collectors.toMap(
+                            Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first)));
+  }
+
+  /** Downloads a URL, conditionally when a cached ETag is known. */
+  private MediaCache.Fetched fetch(String url, String etag)
+      throws IOException, InterruptedException {
+
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(URI.create(url)).timeout(readTimeout).GET();
+    if (etag != null) {
+      request.header("If-None-Match", etag);
+    }
+
+    HttpResponse<byte[]> resp = send(request.build(), url);
+
+    if (resp.statusCode() == 304) {
+      return new MediaCache.Fetched(null, etag);
+    }
+    if (resp.statusCode() / 100 != 2) {
+      throw new IOException("Unexpected status " + resp.statusCode() + " for " + url);
+    }
+
+    byte[] bytes = resp.body();
+    if (bytes.length == 0) {
+      throw new IOException("No content at " + url);
+    }
+
+    String mime = extractMime(resp.headers().firstValue("Content-Type").orElse(null), bytes);
+    Media media = downscale(new Media(bytes, mime));
+
+    return new MediaCache.Fetched(media, resp.headers().firstValue("ETag").orElse(null));
+  }
+
+  /**
+   * Sends a request and reads its body, the whole response has to arrive within the read timeout.
+   * The request timeout of the client only covers the response headers, a server trickling the
+   * body would otherwise hold the download for as long as it likes.
+   */
+  private HttpResponse<byte[]> send(HttpRequest request, String url)
+      throws IOException, InterruptedException {
+
+    CompletableFuture<HttpResponse<byte[]>> response =
+        httpClient.sendAsync(request, info -> new LimitedBodySubscriber(info, url));
+
+    try {
+      return response.get(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+    } catch (TimeoutException e) {
+      // Cancelling closes the connection, the rest of the body is not transferred
+      response.cancel(true);
+      throw new HttpTimeoutException("Media at " + url + " not read within " + readTimeout);
+
+    } catch (InterruptedException e) {
+      response.cancel(true);
+      throw e;
+
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException cause) {
+        throw cause;
+      }
+      throw new IOException("Fetching " + url + " failed", e.getCause());
+    }
+  }
+
+  /** Collects the body and aborts as soon as it grows past the configured maximum. */
+  private class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+    private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final long declaredLength;
+    private final String url;
+
+    private Flow.Subscription subscription;
+    private long total;
+
+    LimitedBodySubscriber(HttpResponse.ResponseInfo info, String url) {
+      this.declaredLength = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+      this.url = url;
+    }
+
+    @Override
+    public CompletionStage<byte[]> getBody() {
+      return body;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+
+      this.subscription = subscription;
+      if (declaredLength > maxBytes) {
+        tooLarge();
+      } else {
+        subscription.request(1);
+      }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+
+      for (ByteBuffer buffer : buffers) {
+        total += buffer.remaining();
+        if (total > maxBytes) {
+          tooLarge();
+          return;
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        out.write(bytes, 0, bytes.length);
+      }
+      subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      body.complete(out.toByteArray());
+    }
+
+    private void tooLarge() {
+      // Cancelling the subscription stops the rest of the transfer
+      subscription.cancel();
+      body.completeExceptionally(
+          new IOException("Media at " + url + " exceeds " + maxBytes + " bytes"));
+    }
+  }
+
+  /** Shrinks images larger than the resolution the model works with, other media is untouched. */
+  private Media downscale(Media media) {
+
+    if (maxImageDimension <= 0 || !SCALABLE_MIMES.contains(media.mimeType())) {
+      return media;
+    }
+
+    try {
+      BufferedImage source = ImageIO.read(new ByteArrayInputStream(media.content()));
+      if (source == null) {
+        return media;
+      }
+
+      int longest = Math.max(source.getWidth(), source.getHeight());
+      if (longest <= maxImageDimension) {
+        return media;
+      }
+
+      double scale = (double) maxImageDimension / longest;
+      int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+      int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+      boolean keepAlpha = source.getColorModel().hasAlpha();
+      BufferedImage scaled =
+          new BufferedImage(
+              width, height, keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+
+      Graphics2D graphics = scaled.createGraphics();
+      try {
+        graphics.setRenderingHint(
+            RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+      } finally {
+        graphics.dispose();
+      }
+
+      String format = keepAlpha ? "png" : "jpeg";
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      if (!ImageIO.write(scaled, format, out)) {
+        return media;
+      }
+
+      return new Media(out.toByteArray(), "image/" + format);
+
+    } catch (Exception e) {
+      log.warn("Image downscaling failed, keeping original: {}", e.getMessage());
+      return media;
+    }
   }
 
   /** Extracts the MIME type from headers, falling back to byte‐sniffing. */
-  private String extractMime(HttpHeaders headers, byte[] content) {
-    MediaType ct = headers.getContentType();
-    if (ct != null && !ct.isWildcardType() && !DEFAULT_MIME.equals(ct.toString())) {
-      return ct.toString();
+  private String extractMime(String contentType, byte[] content) {
+    if (contentType != null && !contentType.isBlank()) {
+      String mime = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+      if (!mime.contains("*") && !DEFAULT_MIME.equals(mime)) {
+        return mime;
+      }
     }
     return guessMime(content);
   }
@@ -142,7 +360,7 @@ public class RestUtil {
   }
 
   /** Check if the URL is from trusted domain to avoid SSRF attacks */
-  private boolean isValidUrl(String url) {
+  public boolean isValidUrl(String url) {
     try {
       URI uri = URI.create(url);
       String host = uri.getHost();
@@ -153,4 +371,10 @@ public class RestUtil {
       return false;
     }
   }
+
+  @PreDestroy
+  public void close() {
+    httpClient.close();
+    downloadExecutor.shutdownNow();
+  }
 }
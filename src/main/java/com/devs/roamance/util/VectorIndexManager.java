@@ -0,0 +1,360 @@
+package com.devs.roamance.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates and maintains the ANN indexes of the pgvector tables.
+ *
+ * <p>Each table gets either an HNSW index built with the configured {@code m} and {@code
+ * ef-construction}, or an IVFFlat index whose list count follows the row count ({@code rows / 1000}
+ * up to a million rows, {@code sqrt(rows)} above). Indexes whose parameters no longer match, e.g.
+ * an IVFFlat index built when the table was small, are rebuilt concurrently and swapped in, so
+ * searches keep running during maintenance. An expression index on the content id of the metadata
+ * backs the per-content lookups and deletes.
+ *
+ * <p>Defaults live under {@code application.pgvector.index}, and any of {@code type}, {@code m},
+ * {@code ef-construction} can be overridden per table under {@code
+ * application.pgvector.index.tables.<table>}.
+ */
+@Component
+@Slf4j
+public class VectorIndexManager {
+
+  public enum IndexType {
+    HNSW,
+    IVFFLAT
+  }
+
+  /** Desired index of a table */
+  public record IndexSettings(IndexType type, int m, int efConstruction) {}
+
+  private static final String PREFIX = "application.pgvector.index.";
+  private static final Pattern PARAMETER = Pattern.compile("(\\w+)\\s*=\\s*'?(\\d+)'?");
+
+  /** Key of the advisory lock that lets one instance at a time maintain the indexes */
+  private static final long MAINTENANCE_LOCK = 0x7067766563696478L;
+
+  private final PgVectorStoreRegistry storeRegistry;
+  private final Environment environment;
+
+  @Value("${application.pgvector.index.maintenance:true}")
+  private boolean maintenance;
+
+  @Value("${application.pgvector.index.ivfflat-rebuild-factor:2.0}")
+  private double ivfflatRebuildFactor;
+
+  @Value("${application.pgvector.index.ivfflat-min-rows:1000}")
+  private long ivfflatMinRows;
+
+  @Value("${application.pgvector.index.maintenance-work-mem:256MB}")
+  private String maintenanceWorkMem;
+
+  public VectorIndexManager(PgVectorStoreRegistry storeRegistry, Environment environment) {
+    this.storeRegistry = storeRegistry;
+    this.environment = environment;
+  }
+
+  /**
+   * Runs after the vector store warm up has created the tables. Building an index can take minutes,
+   * so it runs on the async executor instead of delaying the other ready listeners.
+   */
+  @Async("asyncExecutor")
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(Ordered.LOWEST_PRECEDENCE)
+  public void onReady() {
+    if (maintenance) {
+      maintainAll();
+    }
+  }
+
+  @Scheduled(
+      fixedDelayString = "${application.pgvector.index.check-interval:3600000}",
+      initialDelayString = "${application.pgvector.index.check-interval:3600000}")
+  public void scheduledMaintenance() {
+    if (maintenance) {
+      maintainAll();
+    }
+  }
+
+  /**
+   * Maintains the indexes of every vector table. Skipped while another instance holds the
+   * maintenance lock, concurrent builds of the same index would fail each other.
+   */
+  public void maintainAll() {
+
+    // Session level lock, held by this connection until it is released or closed
+    try (Connection lock = storeRegistry.getDataSource().getConnection()) {
+
+      if (!advisoryLock(lock, "pg_try_advisory_lock")) {
+        log.info("Vector index maintenance is running on another instance, skipped");
+        return;
+      }
+
+      try {
+        for (String table : PgVectorStoreRegistry.KNOWN_TABLES) {
+          try {
+            maintain(table);
+          } catch (Exception e) {
+            log.warn("Vector index maintenance failed for table {}: {}", table, e.getMessage());
+          }
+        }
+      } finally {
+        advisoryLock(lock, "pg_advisory_unlock");
+      }
+
+    } catch (SQLException e) {
+      log.warn("Vector index maintenance lock failed: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Brings the ANN index of a table in line with its settings and current size
+   *
+   * @param table Name of the vector table
+   */
+  public void maintain(String table) throws SQLException {
+
+    IndexSettings settings = settingsFor(table);
+
+    try (Connection connection = storeRegistry.getDataSource().getConnection()) {
+
+      if (!tableExists(connection, table)) {
+        return;
+      }
+
+      ensureContentIdIndex(connection, table);
+
+      Map<String, String> indexes = vectorIndexes(connection, table);
+
+      switch (settings.type()) {
+        case HNSW -> maintainHnsw(connection, table, settings, indexes);
+        case IVFFLAT -> maintainIvfflat(connection, table, indexes);
+      }
+    }
+  }
+
+  /**
+   * IVFFlat list count recommended by pgvector for a row count
+   *
+   * @param rows Number of rows in the table
+   * @return Number of lists
+   */
+  public static int ivfflatLists(long rows) {
+    if (rows <= 1_000_000) {
+      return (int) Math.max(1, rows / 1000);
+    }
+    return (int) Math.sqrt(rows);
+  }
+
+  private void maintainHnsw(
+      Connection connection, String table, IndexSettings settings, Map<String, String> indexes)
+      throws SQLException {
+
+    String name = table + "_hnsw_index";
+    String definition = indexes.get(name);
+
+    boolean upToDate =
+        definition != null
+            && parameter(definition, "m") == settings.m()
+            && parameter(definition, "ef_construction") == settings.efConstruction();
+
+    if (!upToDate) {
+      String options =
+          String.format("m = %d, ef_construction = %d", settings.m(), settings.efConstruction());
+      build(connection, table, name, "hnsw", options, definition != null);
+    }
+
+    dropOthers(connection, indexes, name);
+  }
+
+  private void maintainIvfflat(Connection connection, String table, Map<String, String> indexes)
+      throws SQLException {
+
+    String name = table + "_ivfflat_index";
+    String definition = indexes.get(name);
+
+    long rows = countRows(connection, table);
+    if (rows < ivfflatMinRows) {
+      // An exact scan is fast enough and lists built on few rows cluster badly
+      if (definition == null) {
+        dropOthers(connection, indexes, null);
+      }
+      return;
+    }
+
+    int wanted = ivfflatLists(rows);
+    int current = definition == null ? -1 : parameter(definition, "lists");
+
+    boolean upToDate =
+        current > 0
+            && Math.max(current, wanted) / (double) Math.min(current, wanted)
+                < ivfflatRebuildFactor;
+
+    if (!upToDate) {
+      log.info("Table {} has {} rows, building IVFFlat index with {} lists", table, rows, wanted);
+      build(connection, table, name, "ivfflat", "lists = " + wanted, definition != null);
+    }
+
+    dropOthers(connection, indexes, name);
+  }
+
+  private void build(
+      Connection connection,
+      String table,
+      String name,
+      String method,
+      String options,
+      boolean replace)
+      throws SQLException {
+
+    String target = replace ? name + "_rebuild" : name;
+
+    log.info("Building {} index {} on {} with ({})", method, name, table, options);
+
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("SET maintenance_work_mem = '" + maintenanceWorkMem + "'");
+
+      try {
+        // A failed concurrent build leaves an invalid index behind
+        statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + target);
+        statement.execute(
+            String.format(
+                "CREATE INDEX CONCURRENTLY %s ON %s USING %s (embedding vector_cosine_ops)"
+                    + " WITH (%s)",
+                target, table, method, options));
+
+        if (replace) {
+          statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+          statement.execute("ALTER INDEX " + target + " RENAME TO " + name);
+        }
+
+      } finally {
+        // The connection goes back to the pool, searches must not inherit the setting
+        statement.execute("RESET maintenance_work_mem");
+      }
+    }
+  }
+
+  /** Vectors are looked up and removed by content id on every post update and delete */
+  private static void ensureContentIdIndex(Connection connection, String table)
+      throws SQLException {
+
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(
+          String.format(
+              "CREATE INDEX CONCURRENTLY IF NOT EXISTS %1$s_content_id_index"
+                  + " ON %1$s ((metadata->>'contentId'))",
+              table));
+    }
+  }
+
+  private void dropOthers(Connection connection, Map<String, String> indexes, String keep)
+      throws SQLException {
+
+    try (Statement statement = connection.createStatement()) {
+      for (String index : indexes.keySet()) {
+        if (!index.equals(keep)) {
+          log.info("Dropping superseded vector index {}", index);
+          statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+        }
+      }
+    }
+  }
+
+  private IndexSettings settingsFor(String table) {
+
+    String type = property(table, "type", "hnsw");
+    int m = Integer.parseInt(property(table, "m", "16"));
+    int efConstruction = Integer.parseInt(property(table, "ef-construction", "64"));
+
+    return new IndexSettings(IndexType.valueOf(type.toUpperCase(Locale.ROOT)), m, efConstruction);
+  }
+
+  private String property(String table, String key, String defaultValue) {
+    return environment.getProperty(
+        PREFIX + "tables." + table + "." + key,
+        environment.getProperty(PREFIX + key, defaultValue));
+  }
+
+  private static boolean advisoryLock(Connection connection, String function)
+      throws SQLException {
+
+    try (PreparedStatement statement =
+        connection.prepareStatement("SELECT " + function + "(?)")) {
+      statement.setLong(1, MAINTENANCE_LOCK);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  private static boolean tableExists(Connection connection, String table) throws SQLException {
+
+    try (PreparedStatement statement =
+        connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+      statement.setString(1, table);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  /** ANN indexes of a table by name, with their definitions */
+  private static Map<String, String> vectorIndexes(Connection connection, String table)
+      throws SQLException {
+
+    Map<String, String> indexes = new LinkedHashMap<>();
+
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "SELECT indexname, indexdef FROM pg_indexes WHERE tablename = ?"
+                + " AND (indexdef ILIKE '%USING hnsw%' OR indexdef ILIKE '%USING ivfflat%')")) {
+      statement.setString(1, table);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          indexes.put(resultSet.getString(1), resultSet.getString(2));
+        }
+      }
+    }
+
+    return indexes;
+  }
+
+  private static long countRows(Connection connection, String table) throws SQLException {
+
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM " + table)) {
+      return resultSet.next() ? resultSet.getLong(1) : 0;
+    }
+  }
+
+  private static int parameter(String definition, String name) {
+
+    Matcher matcher = PARAMETER.matcher(definition);
+    while (matcher.find()) {
+      if (matcher.group(1).equalsIgnoreCase(name)) {
+        return Integer.parseInt(matcher.group(2));
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,230 @@
+package com.devs.roamance.util;
+
+import com.devs.roamance.repository.PostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically removes orphaned vectors, rows whose content id no longer belongs to a post.
+ *
+ * <p>Deleted posts normally remove their vectors through the enrichment outbox, this job catches
+ * what slips through: posts removed by cascades, enrichment that finished after the post was
+ * deleted, and rows without a valid content id. Content ids are walked in batches of {@code
+ * batch-size} in key order, so the vector tables are never loaded at once. Reclaimed rows and their
+ * approximate size are logged and counted per table, and tables that lost rows are vacuumed so the
+ * space is reused.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(
+    name = "application.ai.vector-compaction.enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class VectorStoreCompactor {
+
+  /** Outcome of compacting one table */
+  public record CompactionReport(String table, long reclaimedRows, long reclaimedBytes) {}
+
+  private static final String CONTENT_ID = "metadata->>'contentId'";
+
+  private final PgVectorStoreRegistry storeRegistry;
+  private final PostRepository postRepository;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${application.ai.vector-compaction.batch-size:500}")
+  private int batchSize;
+
+  public VectorStoreCompactor(
+      PgVectorStoreRegistry storeRegistry,
+      PostRepository postRepository,
+      MeterRegistry meterRegistry) {
+
+    this.storeRegistry = storeRegistry;
+    this.postRepository = postRepository;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Scheduled(
+      fixedDelayString = "${application.ai.vector-compaction.interval:21600000}",
+      initialDelayString = "${application.ai.vector-compaction.interval:21600000}")
+  public void scheduledCompaction() {
+    compactAll();
+  }
+
+  public List<CompactionReport> compactAll() {
+
+    List<CompactionReport> reports = new ArrayList<>();
+
+    for (String table : PgVectorStoreRegistry.KNOWN_TABLES) {
+      try {
+        CompactionReport report = compact(table);
+        reports.add(report);
+
+        if (report.reclaimedRows() > 0) {
+          log.info(
+              "Vector compaction reclaimed {} rows (~{} KB) from {}",
+              report.reclaimedRows(),
+              report.reclaimedBytes() / 1024,
+              table);
+        }
+
+      } catch (Exception e) {
+        log.warn("Vector compaction failed for table {}: {}", table, e.getMessage());
+      }
+    }
+
+    return reports;
+  }
+
+  /**
+   * Removes the orphaned vectors of a table
+   *
+   * @param table Name of the vector table
+   * @return Reclaimed rows and bytes
+   */
+  public CompactionReport compact(String table) throws SQLException {
+
+    long rows = 0;
+    long bytes = 0;
+
+    try (Connection connection = storeRegistry.getDataSource().getConnection()) {
+
+      long[] reclaimed =
+          delete(
+              connection,
+              String.format(
+                  "WITH deleted AS (DELETE FROM %1$s t WHERE %2$s IS NULL"
+                      + " RETURNING pg_column_size(t.*) AS size)"
+                      + " SELECT count(*), COALESCE(sum(size), 0) FROM deleted",
+                  table, CONTENT_ID),
+              null);
+      rows += reclaimed[0];
+      bytes += reclaimed[1];
+
+      String after = "";
+      List<String> contentIds;
+
+      do {
+        contentIds = nextContentIds(connection, table, after);
+        if (contentIds.isEmpty()) {
+          break;
+        }
+        after = contentIds.getLast();
+
+        List<String> orphans = orphans(contentIds);
+        if (!orphans.isEmpty()) {
+          reclaimed =
+              delete(
+                  connection,
+                  String.format(
+                      "WITH deleted AS (DELETE FROM %1$s t WHERE %2$s = ANY(?)"
+                          + " RETURNING pg_column_size(t.*) AS size)"
+                          + " SELECT count(*), COALESCE(sum(size), 0) FROM deleted",
+                      table, CONTENT_ID),
+                  orphans);
+          rows += reclaimed[0];
+          bytes += reclaimed[1];
+        }
+      } while (contentIds.size() == batchSize);
+
+      if (rows > 0) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("VACUUM (ANALYZE) " + table);
+        }
+      }
+    }
+
+    Counter.builder("vector.compaction.reclaimed.rows")
+        .tag("table", table)
+        .register(meterRegistry)
+        .increment(rows);
+    Counter.builder("vector.compaction.reclaimed.bytes")
+        .tag("table", table)
+        .register(meterRegistry)
+        .increment(bytes);
+
+    return new CompactionReport(table, rows, bytes);
+  }
+
+  private List<String> nextContentIds(Connection connection, String table, String after)
+      throws SQLException {
+
+    String sql =
+        String.format(
+            "SELECT DISTINCT %1$s FROM %2$s WHERE %1$s > ? ORDER BY 1 LIMIT ?", CONTENT_ID, table);
+
+    List<String> contentIds = new ArrayList<>();
+
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(1, after);
+      statement.setInt(2, batchSize);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          contentIds.add(resultSet.getString(1));
+        }
+      }
+    }
+
+    return contentIds;
+  }
+
+  /** Content ids of the batch that are not the id of an existing post */
+  private List<String> orphans(List<String> contentIds) {
+
+    Map<UUID, String> ids = new LinkedHashMap<>();
+    List<String> orphans = new ArrayList<>();
+
+    for (String contentId : contentIds) {
+      try {
+        ids.put(UUID.fromString(contentId), contentId);
+      } catch (IllegalArgumentException e) {
+        orphans.add(contentId);
+      }
+    }
+
+    if (!ids.isEmpty()) {
+      Set<UUID> existing =
+          new HashSet<>(postRepository.findExistingIds(ids.keySet().toArray(new UUID[0])));
+
+      ids.forEach(
+          (id, contentId) -> {
+            if (!existing.contains(id)) {
+              orphans.add(contentId);
+            }
+          });
+    }
+
+    return orphans;
+  }
+
+  private static long[] delete(Connection connection, String sql, List<String> contentIds)
+      throws SQLException {
+
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      if (contentIds != null) {
+        statement.setArray(1, connection.createArrayOf("text", contentIds.toArray()));
+      }
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return new long[] {resultSet.getLong(1), resultSet.getLong(2)};
+      }
+    }
+  }
+}
@@ -5,9 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
+import com.devs.roamance.dto.common.AiPoweredDayPlanDto;
 import com.devs.roamance.dto.request.ai.AiPoweredItineraryCreateRequestDto;
 import com.devs.roamance.dto.request.ai.MultiModalRagRequestDto;
 import com.devs.roamance.dto.request.ai.UniModalAiRequestDto;
@@ -30,12 +30,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.context.request.async.DeferredResult;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 @ExtendWith(MockitoExtension.class)
@@ -56,17 +56,8 @@ class AiControllerTest {
     UniModalAiRequestDto requestDto = new UniModalAiRequestDto();
     requestDto.setText("This is a sample text that needs proofreading.");
 
-    // Mock AiService behavior to emit to the sink
-    doAnswer(
-            invocation -> {
-              Sinks.Many<String> sink = invocation.getArgument(1);
-              sink.tryEmitNext("Proofreading result 1");
-              sink.tryEmitNext("Proofreading result 2");
-              sink.tryEmitComplete();
-              return null;
-            })
-        .when(aiService)
-        .getProofreading(any(UniModalAiRequestDto.class), any());
+    when(aiService.getProofreading(any(UniModalAiRequestDto.class)))
+        .thenReturn(Flux.just("Proofreading result 1", "Proofreading result 2"));
 
     // When
     Flux<String> result = aiController.generateProofreading(requestDto);
@@ -169,4 +160,39 @@ class AiControllerTest {
     assertNotNull(response.getBody());
     assertEquals(true, response.getBody().isSuccess());
   }
+
+  @Test
+  @DisplayName("Should stream day plans followed by the itinerary")
+  void streamItineraryShouldEmitDayPlansThenItinerary() {
+    // Given
+    AiPoweredItineraryCreateRequestDto requestDto = new AiPoweredItineraryCreateRequestDto();
+    requestDto.setLocation("Sylhet");
+    requestDto.setBudgetLevel("Medium");
+    requestDto.setNumberOfDays(2);
+    requestDto.setNumberOfPeople(2);
+    requestDto.setStartDate(LocalDate.now());
+
+    AiPoweredItineraryResponseDto responseDto = new AiPoweredItineraryResponseDto();
+    responseDto.setStatus(200);
+    responseDto.setSuccess(true);
+
+    when(aiService.getAiPoweredItineraryStream(any(AiPoweredItineraryCreateRequestDto.class)))
+        .thenReturn(
+            Flux.just(
+                ServerSentEvent.<Object>builder(new AiPoweredDayPlanDto())
+                    .event("day-plan")
+                    .build(),
+                ServerSentEvent.<Object>builder(responseDto).event("itinerary").build()));
+
+    // When
+    Flux<ServerSentEvent<Object>> result = aiController.streamItinerary(requestDto);
+
+    // Then
+    StepVerifier.create(result)
+        .expectNextMatches(event -> "day-plan".equals(event.event()))
+        .expectNextMatches(
+            event -> "itinerary".equals(event.event()) && event.data() == responseDto)
+        .expectComplete()
+        .verify();
+  }
 }
@@ -1,6 +1,7 @@
 package com.devs.roamance.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -115,7 +116,8 @@ class CommentControllerTest {
             any(Integer.class),
             any(Integer.class),
             any(String.class),
-            any(String.class)))
+            any(String.class),
+            isNull()))
         .thenReturn(responseDto);
 
     // When & Then
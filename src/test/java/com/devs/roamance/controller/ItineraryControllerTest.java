@@ -118,7 +118,8 @@ class ItineraryControllerTest {
     // Arrange
     ItineraryListResponseDto responseDto = new ItineraryListResponseDto();
     responseDto.setSuccess(true);
-    when(itineraryService.getAll(anyInt(), anyInt(), Mockito.<String>any(), Mockito.<String>any()))
+    when(itineraryService.getAll(
+            anyInt(), anyInt(), Mockito.<String>any(), Mockito.<String>any(), Mockito.isNull()))
         .thenReturn(responseDto);
 
     MockHttpServletRequestBuilder getResult = MockMvcRequestBuilders.get("/travel/itineraries");
@@ -155,7 +156,12 @@ class ItineraryControllerTest {
     ItineraryListResponseDto responseDto = new ItineraryListResponseDto();
     responseDto.setSuccess(true);
     when(itineraryService.getByUserId(
-            Mockito.<UUID>any(), anyInt(), anyInt(), Mockito.<String>any(), Mockito.<String>any()))
+            Mockito.<UUID>any(),
+            anyInt(),
+            anyInt(),
+            Mockito.<String>any(),
+            Mockito.<String>any(),
+            Mockito.isNull()))
         .thenReturn(responseDto);
 
     MockHttpServletRequestBuilder getResult =
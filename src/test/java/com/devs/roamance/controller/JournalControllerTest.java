@@ -3,6 +3,7 @@ package com.devs.roamance.controller;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -54,7 +55,7 @@ class JournalControllerTest {
     // Given
     JournalListResponseDto responseDto = new JournalListResponseDto();
     responseDto.setSuccess(true);
-    when(journalService.getAll(anyInt(), anyInt(), anyString(), anyString()))
+    when(journalService.getAll(anyInt(), anyInt(), anyString(), anyString(), isNull()))
         .thenReturn(responseDto);
 
     // When & Then
@@ -159,7 +160,7 @@ class JournalControllerTest {
     // Given
     JournalListResponseDto responseDto = new JournalListResponseDto();
     responseDto.setSuccess(true);
-    when(journalService.getPublic(anyInt(), anyInt(), anyString(), anyString()))
+    when(journalService.getPublic(anyInt(), anyInt(), anyString(), anyString(), isNull()))
         .thenReturn(responseDto);
 
     // When & Then
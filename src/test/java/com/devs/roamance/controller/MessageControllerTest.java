@@ -3,6 +3,7 @@ package com.devs.roamance.controller;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -77,7 +78,8 @@ class MessageControllerTest {
     UUID chatId = UUID.randomUUID();
     MessageListResponseDto responseDto = new MessageListResponseDto();
     responseDto.setSuccess(true);
-    when(messageService.getByChatId(any(UUID.class), anyInt(), anyInt(), anyString(), anyString()))
+    when(messageService.getByChatId(
+            any(UUID.class), anyInt(), anyInt(), anyString(), anyString(), isNull()))
         .thenReturn(responseDto);
 
     // When & Then
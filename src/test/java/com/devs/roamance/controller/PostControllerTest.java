@@ -4,12 +4,16 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.devs.roamance.config.WebMvcTestConfig;
@@ -78,7 +82,8 @@ class PostControllerTest {
     // Given
     PostListResponseDto responseDto = new PostListResponseDto();
     responseDto.setSuccess(true);
-    when(postService.getAll(anyInt(), anyInt(), anyString(), anyString())).thenReturn(responseDto);
+    when(postService.getAll(anyInt(), anyInt(), anyString(), anyString(), isNull()))
+        .thenReturn(responseDto);
 
     // When & Then
     mockMvc
@@ -92,6 +97,60 @@ class PostControllerTest {
         .andExpect(status().isOk());
   }
 
+  @Test
+  @DisplayName("Should pass the cursor when scrolling posts")
+  void getAllPostsWithCursorShouldPassCursor() throws Exception {
+    // Given
+    PostListResponseDto responseDto = new PostListResponseDto();
+    responseDto.setSuccess(true);
+    responseDto.setNextCursor("next");
+    when(postService.getAll(anyInt(), anyInt(), anyString(), anyString(), eq("current")))
+        .thenReturn(responseDto);
+
+    // When & Then
+    mockMvc
+        .perform(get("/social/posts").param("pageSize", "10").param("cursor", "current"))
+        .andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.next_cursor").value("next"));
+
+    verify(postService).getAll(0, 10, "audit.createdAt", "desc", "current");
+  }
+
+  @Test
+  @DisplayName("Should return the feed of the current user")
+  void getFeedShouldReturnFeed() throws Exception {
+    // Given
+    PostListResponseDto responseDto = new PostListResponseDto();
+    responseDto.setSuccess(true);
+    when(postService.getFeed(anyInt(), anyInt(), isNull())).thenReturn(responseDto);
+
+    // When & Then
+    mockMvc
+        .perform(get("/social/posts/feed").param("pageSize", "20"))
+        .andDo(print())
+        .andExpect(status().isOk());
+
+    verify(postService).getFeed(0, 20, null);
+  }
+
+  @Test
+  @DisplayName("Should pass the location to the ranked feed")
+  void getForYouShouldPassLocation() throws Exception {
+    // Given
+    PostListResponseDto responseDto = new PostListResponseDto();
+    responseDto.setSuccess(true);
+    when(postService.getForYou(anyInt(), anyInt(), any(), any())).thenReturn(responseDto);
+
+    // When & Then
+    mockMvc
+        .perform(get("/social/posts/for-you").param("latitude", "23.8").param("longitude", "90.4"))
+        .andDo(print())
+        .andExpect(status().isOk());
+
+    verify(postService).getForYou(0, 10, 23.8, 90.4);
+  }
+
   @Test
   @DisplayName("Should return post when getting by ID")
   void getPostByIdShouldReturnPost() throws Exception {
@@ -139,7 +198,8 @@ class PostControllerTest {
     PostListResponseDto responseDto = new PostListResponseDto();
     responseDto.setSuccess(true);
 
-    when(postService.getByUserId(any(UUID.class), anyInt(), anyInt(), anyString(), anyString()))
+    when(postService.getByUserId(
+            any(UUID.class), anyInt(), anyInt(), anyString(), anyString(), isNull()))
         .thenReturn(responseDto);
 
     // When & Then
@@ -161,7 +221,7 @@ class PostControllerTest {
     PostListResponseDto responseDto = new PostListResponseDto();
     responseDto.setSuccess(true);
 
-    when(postService.getSavedByCurrentUser(anyInt(), anyInt(), anyString(), anyString()))
+    when(postService.getSavedByCurrentUser(anyInt(), anyInt(), anyString(), anyString(), isNull()))
         .thenReturn(responseDto);
 
     // When & Then
@@ -143,7 +143,7 @@ class ChatServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     List<Chat> chats = new ArrayList<>();
@@ -157,7 +157,7 @@ class ChatServiceTest {
 
     // Act
     ChatListResponseDto result =
-        chatService.getForCurrentUser(pageNumber, pageSize, sortBy, sortDir);
+        chatService.getForCurrentUser(pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
@@ -153,7 +153,7 @@ class CommentServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     when(postRepository.existsById(testPostId)).thenReturn(true);
@@ -170,7 +170,7 @@ class CommentServiceTest {
 
     // Act
     CommentListResponseDto result =
-        commentService.getByPostId(testPostId, pageNumber, pageSize, sortBy, sortDir);
+        commentService.getByPostId(testPostId, pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
@@ -184,7 +184,7 @@ class CommentServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     when(postRepository.existsById(testPostId)).thenReturn(false);
@@ -192,7 +192,7 @@ class CommentServiceTest {
     // Act & Assert
     assertThrows(
         ResourceNotFoundException.class,
-        () -> commentService.getByPostId(testPostId, pageNumber, pageSize, sortBy, sortDir),
+        () -> commentService.getByPostId(testPostId, pageNumber, pageSize, sortBy, sortDir, null),
         String.format(ResponseMessage.POST_NOT_FOUND, testPostId));
   }
 }
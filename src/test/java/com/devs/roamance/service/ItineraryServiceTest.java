@@ -22,6 +22,7 @@ import com.devs.roamance.model.travel.itinerary.Itinerary;
 import com.devs.roamance.model.user.User;
 import com.devs.roamance.repository.ItineraryRepository;
 import com.devs.roamance.service.impl.ItineraryServiceImpl;
+import com.devs.roamance.util.GeoGridIndex;
 import com.devs.roamance.util.ItineraryUtil;
 import com.devs.roamance.util.UserUtil;
 import java.time.LocalDate;
@@ -50,6 +51,8 @@ class ItineraryServiceTest {
 
   @Mock private ModelMapper modelMapper;
 
+  @Mock private GeoGridIndex geoGridIndex;
+
   private ItineraryService itineraryService;
 
   private User testUser;
@@ -60,7 +63,8 @@ class ItineraryServiceTest {
   @BeforeEach
   void setUp() {
     itineraryService =
-        new ItineraryServiceImpl(itineraryRepository, itineraryUtil, modelMapper, userUtil);
+        new ItineraryServiceImpl(
+            itineraryRepository, itineraryUtil, modelMapper, userUtil, geoGridIndex);
 
     // Setup test data
     testUserId = UUID.randomUUID();
@@ -140,20 +144,20 @@ class ItineraryServiceTest {
     itineraries.add(testItinerary);
     Page<Itinerary> itineraryPage = new PageImpl<>(itineraries);
 
-    when(itineraryRepository.findAll(any(Pageable.class))).thenReturn(itineraryPage);
+    when(itineraryRepository.findAllBy(any(Pageable.class))).thenReturn(itineraryPage);
 
     ItineraryBriefDto itineraryBriefDto = new ItineraryBriefDto();
     when(modelMapper.map(testItinerary, ItineraryBriefDto.class)).thenReturn(itineraryBriefDto);
 
     // Act
     ItineraryListResponseDto result =
-        itineraryService.getAll(pageNumber, pageSize, sortBy, sortDir);
+        itineraryService.getAll(pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
     assertNotNull(result.getData());
     assertEquals(1, result.getData().size());
-    verify(itineraryRepository, times(1)).findAll(any(Pageable.class));
+    verify(itineraryRepository, times(1)).findAllBy(any(Pageable.class));
   }
 
   @Test
@@ -205,7 +209,7 @@ class ItineraryServiceTest {
 
     // Act
     ItineraryListResponseDto result =
-        itineraryService.getByUserId(testUserId, pageNumber, pageSize, sortBy, sortDir);
+        itineraryService.getByUserId(testUserId, pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
@@ -268,6 +272,7 @@ class ItineraryServiceTest {
     // Assert
     assertNotNull(result);
     verify(itineraryRepository, times(1)).delete(testItinerary);
+    verify(geoGridIndex, times(1)).remove(GeoGridIndex.Kind.ITINERARY, testItineraryId);
   }
 
   @Test
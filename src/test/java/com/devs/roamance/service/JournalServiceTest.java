@@ -24,6 +24,7 @@ import com.devs.roamance.model.user.User;
 import com.devs.roamance.repository.JournalRepository;
 import com.devs.roamance.repository.UserRepository;
 import com.devs.roamance.service.impl.JournalServiceImpl;
+import com.devs.roamance.util.GeoGridIndex;
 import com.devs.roamance.util.UserUtil;
 import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -51,6 +52,8 @@ class JournalServiceTest {
 
   @Mock private UserUtil userUtil;
 
+  @Mock private GeoGridIndex geoGridIndex;
+
   @Mock private Authentication authentication;
 
   @Mock private SecurityContext securityContext;
@@ -68,7 +71,8 @@ class JournalServiceTest {
   @BeforeEach
   void setUp() {
     journalService =
-        new JournalServiceImpl(journalRepository, userRepository, modelMapper, userUtil);
+        new JournalServiceImpl(
+            journalRepository, userRepository, modelMapper, userUtil, geoGridIndex);
 
     // Setup test data
     journalId = UUID.randomUUID();
@@ -168,7 +172,7 @@ class JournalServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     List<Journal> journals = Collections.singletonList(testJournal);
@@ -186,7 +190,8 @@ class JournalServiceTest {
     when(modelMapper.map(testJournal, JournalBriefDto.class)).thenReturn(journalBriefDto);
 
     // Act
-    JournalListResponseDto result = journalService.getAll(pageNumber, pageSize, sortBy, sortDir);
+    JournalListResponseDto result =
+        journalService.getAll(pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
@@ -201,19 +206,20 @@ class JournalServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     List<Journal> journals = Collections.singletonList(testJournal);
     Page<Journal> journalPage = new PageImpl<>(journals);
 
     when(userUtil.isAuthenticatedUserAdmin()).thenReturn(true);
-    when(journalRepository.findAll(any(Pageable.class))).thenReturn(journalPage);
+    when(journalRepository.findAllBy(any(Pageable.class))).thenReturn(journalPage);
     when(journalRepository.findById(journalId)).thenReturn(Optional.of(testJournal));
     when(modelMapper.map(testJournal, JournalBriefDto.class)).thenReturn(journalBriefDto);
 
     // Act
-    JournalListResponseDto result = journalService.getAll(pageNumber, pageSize, sortBy, sortDir);
+    JournalListResponseDto result =
+        journalService.getAll(pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
@@ -313,5 +319,6 @@ class JournalServiceTest {
     assertTrue(result.isSuccess());
     assertEquals(ResponseMessage.JOURNAL_DELETE_SUCCESS, result.getMessage());
     verify(journalRepository).delete(testJournal);
+    verify(geoGridIndex).remove(GeoGridIndex.Kind.JOURNAL, journalId);
   }
 }
@@ -190,7 +190,7 @@ class MessageServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     List<Message> messages = Collections.singletonList(testMessage);
@@ -202,7 +202,7 @@ class MessageServiceTest {
 
     // Act
     MessageListResponseDto result =
-        messageService.getByChatId(chatId, pageNumber, pageSize, sortBy, sortDir);
+        messageService.getByChatId(chatId, pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
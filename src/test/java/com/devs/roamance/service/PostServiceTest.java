@@ -20,6 +20,10 @@ import com.devs.roamance.model.user.User;
 import com.devs.roamance.repository.PostRepository;
 import com.devs.roamance.repository.UserRepository;
 import com.devs.roamance.service.impl.PostServiceImpl;
+import com.devs.roamance.util.FeedUtil;
+import com.devs.roamance.util.ForYouRanker;
+import com.devs.roamance.util.GeoGridIndex;
+import com.devs.roamance.util.PaginationSortingUtil.CursorPage;
 import com.devs.roamance.util.PostUtil;
 import com.devs.roamance.util.UserUtil;
 import java.util.ArrayList;
@@ -30,12 +34,21 @@ import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
 @ExtendWith(MockitoExtension.class)
 class PostServiceTest {
@@ -50,6 +63,12 @@ class PostServiceTest {
 
   @Mock private ModelMapper modelMapper;
 
+  @Mock private GeoGridIndex geoGridIndex;
+
+  @Mock private FeedUtil feedUtil;
+
+  @Mock private ForYouRanker forYouRanker;
+
   private PostService postService;
 
   private User testUser;
@@ -60,7 +79,15 @@ class PostServiceTest {
   @BeforeEach
   void setUp() {
     postService =
-        new PostServiceImpl(postRepository, userRepository, postUtil, userUtil, modelMapper);
+        new PostServiceImpl(
+            postRepository,
+            userRepository,
+            postUtil,
+            userUtil,
+            modelMapper,
+            geoGridIndex,
+            feedUtil,
+            forYouRanker);
 
     // Setup test data
     testUserId = UUID.randomUUID();
@@ -96,8 +123,117 @@ class PostServiceTest {
     assertEquals(postDto, result.getData());
     verify(postRepository, times(1)).save(any(Post.class));
     verify(postRepository, times(1)).flush();
-    verify(postUtil, times(1)).backgroundAiAnalysis(testPost.getId(), createRequestDto);
-    verify(postUtil, times(1)).addToVectorDb(testPost.getId(), createRequestDto);
+    verify(postUtil, times(1)).enqueueEnrichment(testPost.getId());
+    verify(feedUtil, times(1)).fanOut(testPost);
+  }
+
+  @Test
+  void getFeed_ShouldReturnFeedPostsInFeedOrder() {
+    // Arrange
+    Post olderPost = new Post();
+    olderPost.setId(UUID.randomUUID());
+
+    when(userUtil.getAuthenticatedUser()).thenReturn(testUser);
+    when(feedUtil.hasFeed(testUserId)).thenReturn(true);
+    when(feedUtil.page(testUserId, null, 0, 10))
+        .thenReturn(new CursorPage<>(List.of(testPostId, olderPost.getId()), "next"));
+    when(postRepository.findAllById(List.of(testPostId, olderPost.getId())))
+        .thenReturn(List.of(olderPost, testPost));
+
+    PostDto postDto = new PostDto();
+    PostDto olderPostDto = new PostDto();
+    when(modelMapper.map(testPost, PostDto.class)).thenReturn(postDto);
+    when(modelMapper.map(olderPost, PostDto.class)).thenReturn(olderPostDto);
+
+    // Act
+    PostListResponseDto result = postService.getFeed(0, 10, null);
+
+    // Assert
+    assertEquals(List.of(postDto, olderPostDto), result.getData());
+    assertEquals("next", result.getNextCursor());
+    verify(feedUtil, times(1)).pull(testUserId);
+  }
+
+  @Test
+  void getFeed_ShouldFallBackToLatestPosts_WhenUserHasNoFeed() {
+    // Arrange
+    when(userUtil.getAuthenticatedUser()).thenReturn(testUser);
+    when(feedUtil.hasFeed(testUserId)).thenReturn(false);
+    when(postRepository.findAllBy(any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(testPost)));
+    when(modelMapper.map(testPost, PostDto.class)).thenReturn(new PostDto());
+
+    // Act
+    PostListResponseDto result = postService.getFeed(0, 10, null);
+
+    // Assert
+    assertEquals(1, result.getData().size());
+    verify(feedUtil, never()).page(any(), any(), anyInt(), anyInt());
+  }
+
+  @Test
+  void getFeed_ShouldKeepServingLatestPosts_WhenCursorCameFromTheFallback() {
+    // Arrange
+    when(userUtil.getAuthenticatedUser()).thenReturn(testUser);
+    when(feedUtil.hasFeed(testUserId)).thenReturn(false);
+    when(postRepository.findAllBy(any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(testPost), PageRequest.of(0, 1), true));
+    when(postRepository.findAllBy(any(ScrollPosition.class), any(Sort.class), any(Limit.class)))
+        .thenReturn(Window.from(List.of(), index -> ScrollPosition.keyset()));
+    when(modelMapper.map(testPost, PostDto.class)).thenReturn(new PostDto());
+
+    // Act
+    PostListResponseDto first = postService.getFeed(0, 1, null);
+    PostListResponseDto next = postService.getFeed(0, 1, first.getNextCursor());
+
+    // Assert
+    assertNotNull(first.getNextCursor());
+    assertNull(next.getNextCursor());
+    verify(feedUtil, times(1)).hasFeed(testUserId);
+    verify(feedUtil, never()).page(any(), any(), anyInt(), anyInt());
+  }
+
+  @Test
+  void getForYou_ShouldReturnRankedPostsInRankOrder() {
+    // Arrange
+    Post otherPost = new Post();
+    otherPost.setId(UUID.randomUUID());
+
+    when(userUtil.getAuthenticatedUser()).thenReturn(testUser);
+    when(forYouRanker.rank(testUserId, 23.8, 90.4, 10, 10))
+        .thenReturn(Optional.of(List.of(otherPost.getId(), testPostId)));
+    when(postRepository.findAllById(List.of(otherPost.getId(), testPostId)))
+        .thenReturn(List.of(testPost, otherPost));
+
+    PostDto postDto = new PostDto();
+    PostDto otherPostDto = new PostDto();
+    when(modelMapper.map(testPost, PostDto.class)).thenReturn(postDto);
+    when(modelMapper.map(otherPost, PostDto.class)).thenReturn(otherPostDto);
+
+    // Act
+    PostListResponseDto result = postService.getForYou(1, 10, 23.8, 90.4);
+
+    // Assert
+    assertSame(otherPostDto, result.getData().get(0));
+    assertSame(postDto, result.getData().get(1));
+    verify(postRepository, never()).findAllBy(any(Pageable.class));
+  }
+
+  @Test
+  void getForYou_ShouldReturnLatestPosts_WhenRankingUnavailable() {
+    // Arrange
+    when(userUtil.getAuthenticatedUser()).thenReturn(testUser);
+    when(forYouRanker.rank(testUserId, null, null, 0, 10)).thenReturn(Optional.empty());
+    when(postRepository.findAllBy(any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(testPost)));
+    when(modelMapper.map(testPost, PostDto.class)).thenReturn(new PostDto());
+
+    // Act
+    PostListResponseDto result = postService.getForYou(0, 10, null, null);
+
+    // Assert
+    assertEquals(1, result.getData().size());
+    verify(postRepository, never()).findAllById(any());
   }
 
   @Test
@@ -134,26 +270,26 @@ class PostServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     List<Post> posts = new ArrayList<>();
     posts.add(testPost);
     Page<Post> postPage = new PageImpl<>(posts);
 
-    when(postRepository.findAll(any(Pageable.class))).thenReturn(postPage);
+    when(postRepository.findAllBy(any(Pageable.class))).thenReturn(postPage);
 
     PostDto postDto = new PostDto();
     when(modelMapper.map(testPost, PostDto.class)).thenReturn(postDto);
 
     // Act
-    PostListResponseDto result = postService.getAll(pageNumber, pageSize, sortBy, sortDir);
+    PostListResponseDto result = postService.getAll(pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
     assertNotNull(result.getData());
     assertEquals(1, result.getData().size());
-    verify(postRepository, times(1)).findAll(any(Pageable.class));
+    verify(postRepository, times(1)).findAllBy(any(Pageable.class));
   }
 
   @Test
@@ -187,7 +323,7 @@ class PostServiceTest {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     List<Post> posts = new ArrayList<>();
@@ -201,7 +337,7 @@ class PostServiceTest {
 
     // Act
     PostListResponseDto result =
-        postService.getByUserId(testUserId, pageNumber, pageSize, sortBy, sortDir);
+        postService.getByUserId(testUserId, pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
@@ -210,12 +346,63 @@ class PostServiceTest {
     verify(postRepository, times(1)).findAllByUserId(eq(testUserId), any(Pageable.class));
   }
 
+  @Test
+  void getByUserId_WithCursor_ShouldContinueAfterLastPost() {
+    // Arrange
+    Slice<Post> firstPage = new SliceImpl<>(List.of(testPost), PageRequest.of(0, 1), true);
+
+    when(postRepository.findAllByUserId(eq(testUserId), any(Pageable.class)))
+        .thenReturn(firstPage);
+    when(postRepository.findAllByUserId(
+            eq(testUserId), any(ScrollPosition.class), any(Sort.class), any(Limit.class)))
+        .thenReturn(Window.from(List.of(), index -> ScrollPosition.keyset()));
+    when(modelMapper.map(testPost, PostDto.class)).thenReturn(new PostDto());
+
+    // Act
+    PostListResponseDto first = postService.getByUserId(testUserId, 0, 1, "id", "desc", null);
+    PostListResponseDto next =
+        postService.getByUserId(testUserId, 0, 1, "id", "desc", first.getNextCursor());
+
+    // Assert
+    assertNotNull(first.getNextCursor());
+    assertNull(next.getNextCursor());
+
+    ArgumentCaptor<ScrollPosition> position = ArgumentCaptor.forClass(ScrollPosition.class);
+    ArgumentCaptor<Limit> limit = ArgumentCaptor.forClass(Limit.class);
+    verify(postRepository)
+        .findAllByUserId(eq(testUserId), position.capture(), any(Sort.class), limit.capture());
+
+    assertEquals(1, limit.getValue().max());
+
+    KeysetScrollPosition keyset = assertInstanceOf(KeysetScrollPosition.class, position.getValue());
+    assertEquals(testPostId, keyset.getKeys().get("id"));
+  }
+
+  @Test
+  void getByUserId_WithInvalidCursor_ShouldThrowException() {
+    // Act & Assert
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> postService.getByUserId(testUserId, 0, 10, "id", "desc", "not-a-cursor"),
+        ResponseMessage.INVALID_CURSOR);
+  }
+
+  @Test
+  void getAll_WithAssociationSort_ShouldThrowException() {
+    // Act & Assert
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> postService.getAll(0, 10, "user", "desc", null),
+        String.format(ResponseMessage.INVALID_SORT_BY, "user"));
+    verifyNoInteractions(postRepository);
+  }
+
   @Test
   void getSavedByCurrentUser_ShouldReturnSavedPosts() {
     // Arrange
     int pageNumber = 0;
     int pageSize = 10;
-    String sortBy = "createdAt";
+    String sortBy = "audit.createdAt";
     String sortDir = "desc";
 
     when(userUtil.getAuthenticatedUser()).thenReturn(testUser);
@@ -232,7 +419,7 @@ class PostServiceTest {
 
     // Act
     PostListResponseDto result =
-        postService.getSavedByCurrentUser(pageNumber, pageSize, sortBy, sortDir);
+        postService.getSavedByCurrentUser(pageNumber, pageSize, sortBy, sortDir, null);
 
     // Assert
     assertNotNull(result);
@@ -291,6 +478,25 @@ class PostServiceTest {
     assertEquals(postDto, result.getData());
     verify(postRepository, times(1)).save(any(Post.class));
     verify(postRepository, times(1)).flush();
+    verify(postUtil, times(1)).enqueueEnrichment(testPostId);
+  }
+
+  @Test
+  void update_ShouldNotReEnrich_WhenContentUnchanged() {
+    // Arrange
+    PostRequestDto updateRequestDto = new PostRequestDto();
+    updateRequestDto.setText("Test Post Content");
+
+    when(postRepository.findById(testPostId)).thenReturn(Optional.of(testPost));
+    when(userUtil.getAuthenticatedUser()).thenReturn(testUser);
+    when(postRepository.save(any(Post.class))).thenReturn(testPost);
+    when(modelMapper.map(testPost, PostDto.class)).thenReturn(new PostDto());
+
+    // Act
+    postService.update(updateRequestDto, testPostId);
+
+    // Assert
+    verify(postUtil, never()).enqueueEnrichment(any());
   }
 
   @Test
@@ -391,6 +597,9 @@ class PostServiceTest {
     // Assert
     assertNotNull(result);
     verify(postRepository, times(1)).delete(testPost);
+    verify(postUtil, times(1)).enqueueVectorRemoval(testPostId);
+    verify(geoGridIndex, times(1)).remove(GeoGridIndex.Kind.POST, testPostId);
+    verify(feedUtil, times(1)).remove(testPostId);
   }
 
   @Test
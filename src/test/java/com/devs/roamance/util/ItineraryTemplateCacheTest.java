@@ -0,0 +1,110 @@
+package com.devs.roamance.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.devs.roamance.dto.common.AiPoweredActivityDto;
+import com.devs.roamance.dto.common.AiPoweredDayPlanDto;
+import com.devs.roamance.dto.common.AiPoweredItineraryDto;
+import com.devs.roamance.dto.request.ai.AiPoweredItineraryCreateRequestDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+class ItineraryTemplateCacheTest {
+
+  // A Saturday in June
+  private static final LocalDate START = LocalDate.of(2025, 6, 7);
+
+  private ItineraryTemplateCache cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = new ItineraryTemplateCache(new SimpleMeterRegistry());
+
+    ReflectionTestUtils.setField(cache, "enabled", true);
+    ReflectionTestUtils.setField(cache, "ttl", Duration.ofHours(24));
+    ReflectionTestUtils.setField(cache, "maxEntries", 500);
+    ReflectionTestUtils.setField(cache, "maxBytes", DataSize.ofMegabytes(16));
+    ReflectionTestUtils.setField(cache, "matchWeekday", true);
+  }
+
+  @Test
+  void get_ShouldReturnRedatedTemplate_WhenRequestIsEquivalent() {
+
+    cache.put(request("Paris", START, "Medium", 3), itinerary(START, "120.00"));
+
+    LocalDate nextSaturday = START.plusWeeks(1);
+    Optional<AiPoweredItineraryDto> cached =
+        cache.get(request("  paris!", nextSaturday, "medium", 3));
+
+    assertTrue(cached.isPresent());
+    assertEquals(nextSaturday, cached.get().getStartDate());
+    assertEquals(nextSaturday.plusDays(1), cached.get().getEndDate());
+    assertEquals(nextSaturday, cached.get().getDayPlans().getFirst().getDate());
+    assertEquals(nextSaturday.plusDays(1), cached.get().getDayPlans().get(1).getDate());
+  }
+
+  @Test
+  void get_ShouldMiss_WhenWeekdayOrSeasonDiffers() {
+
+    cache.put(request("Paris", START, "Medium", 3), itinerary(START, "120.00"));
+
+    assertTrue(cache.get(request("Paris", START.plusDays(1), "Medium", 3)).isEmpty());
+    assertTrue(cache.get(request("Paris", START.plusWeeks(26), "Medium", 3)).isEmpty());
+  }
+
+  @Test
+  void get_ShouldKeepGroupCosts_OnlyForTheSameNumberOfPeople() {
+
+    cache.put(request("Paris", START, "Medium", 3), itinerary(START, "120.00"));
+    cache.put(request("Paris", START, "Medium", 5), itinerary(START, "200.00"));
+
+    assertEquals(new BigDecimal("120.00"), firstCost(request("Paris", START, "Medium", 3)));
+    assertEquals(new BigDecimal("200.00"), firstCost(request("Paris", START, "Medium", 5)));
+    assertTrue(cache.get(request("Paris", START, "Medium", 4)).isEmpty());
+  }
+
+  private BigDecimal firstCost(AiPoweredItineraryCreateRequestDto requestDto) {
+    AiPoweredItineraryDto itinerary = cache.get(requestDto).orElseThrow();
+    return itinerary.getDayPlans().getFirst().getActivities().getFirst().getCost();
+  }
+
+  private static AiPoweredItineraryCreateRequestDto request(
+      String location, LocalDate startDate, String budgetLevel, int numberOfPeople) {
+
+    return new AiPoweredItineraryCreateRequestDto(
+        location, startDate, 2, budgetLevel, numberOfPeople, false);
+  }
+
+  private static AiPoweredItineraryDto itinerary(LocalDate startDate, String cost) {
+
+    AiPoweredActivityDto activity = new AiPoweredActivityDto();
+    activity.setType("SIGHTSEEING");
+    activity.setStartTime(LocalTime.of(9, 0));
+    activity.setEndTime(LocalTime.of(11, 0));
+    activity.setCost(new BigDecimal(cost));
+
+    AiPoweredDayPlanDto first = new AiPoweredDayPlanDto();
+    first.setDate(startDate);
+    first.setActivities(List.of(activity));
+
+    AiPoweredDayPlanDto second = new AiPoweredDayPlanDto();
+    second.setDate(startDate.plusDays(1));
+
+    AiPoweredItineraryDto itinerary = new AiPoweredItineraryDto();
+    itinerary.setTitle("Two days in Paris");
+    itinerary.setStartDate(startDate);
+    itinerary.setEndDate(startDate.plusDays(1));
+    itinerary.setDayPlans(List.of(first, second));
+    return itinerary;
+  }
+}
@@ -0,0 +1,77 @@
+package com.devs.roamance.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonArrayStreamParserTest {
+
+  record Stop(String name, Map<String, Object> details, List<Stop> stops) {}
+
+  private static final String DOCUMENT =
+      """
+      {"title": "days: [{\\"name\\": \\"fake\\"}]",
+       "meta": {"days": [{"name": "nested field, not the root one"}]},
+       "days": [
+         {"name": "Caf\\u00e9 \\"Le Nord\\" \\\\ {brace} [bracket]",
+          "details": {"open": {"from": 9, "to": 17}, "tags": ["a", "}"]},
+          "stops": [{"name": "inner stop"}]},
+         {"name": "Second", "details": {}}
+       ],
+       "summary": "done"}
+      """;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void feed_ShouldEmitElementsOfRootArrayField_WhenSplitIntoSingleCharacters() throws IOException {
+
+    List<Stop> stops = new ArrayList<>();
+    JsonArrayStreamParser<Stop> parser =
+        new JsonArrayStreamParser<>(objectMapper, "days", Stop.class, stops::add);
+
+    for (int i = 0; i < DOCUMENT.length(); i++) {
+      parser.feed(DOCUMENT.substring(i, i + 1));
+    }
+
+    assertEquals(2, stops.size());
+    assertEquals("Café \"Le Nord\" \\ {brace} [bracket]", stops.get(0).name());
+    assertEquals(Map.of("from", 9, "to", 17), stops.get(0).details().get("open"));
+    assertEquals(List.of("a", "}"), stops.get(0).details().get("tags"));
+    assertEquals("inner stop", stops.get(0).stops().getFirst().name());
+    assertEquals("Second", stops.get(1).name());
+  }
+
+  @Test
+  void feed_ShouldEmitElementBeforeDocumentIsComplete() throws IOException {
+
+    List<Stop> stops = new ArrayList<>();
+    JsonArrayStreamParser<Stop> parser =
+        new JsonArrayStreamParser<>(objectMapper, "days", Stop.class, stops::add);
+
+    int secondElement = DOCUMENT.indexOf("{\"name\": \"Second\"");
+
+    // Chunks end inside a string, an escape sequence and a nested object
+    int insideString = DOCUMENT.indexOf("Nord");
+    int insideEscape = DOCUMENT.indexOf("\\u00e9") + 3;
+    int insideNested = DOCUMENT.indexOf("\"from\"") + 2;
+
+    parser.feed(DOCUMENT.substring(0, insideEscape));
+    parser.feed(DOCUMENT.substring(insideEscape, insideString));
+    parser.feed(DOCUMENT.substring(insideString, insideNested));
+    assertTrue(stops.isEmpty());
+
+    parser.feed(DOCUMENT.substring(insideNested, secondElement));
+    assertEquals(1, stops.size());
+    assertEquals("Café \"Le Nord\" \\ {brace} [bracket]", stops.getFirst().name());
+
+    parser.feed(DOCUMENT.substring(secondElement));
+    assertEquals(2, stops.size());
+  }
+}